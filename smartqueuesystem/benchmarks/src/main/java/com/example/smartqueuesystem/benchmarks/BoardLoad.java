@@ -0,0 +1,138 @@
+package com.example.smartqueuesystem.benchmarks;
+
+import com.example.smartqueuesystem.BoardFeed;
+import com.example.smartqueuesystem.BoardReplica;
+import com.example.smartqueuesystem.DepartmentQueues;
+import com.example.smartqueuesystem.LatencyHistogram;
+import com.example.smartqueuesystem.QueueManager;
+import com.example.smartqueuesystem.QueueSnapshot;
+import com.example.smartqueuesystem.ScaledClock;
+import com.example.smartqueuesystem.WorkloadGenerator;
+
+import java.net.InetSocketAddress;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Display boards against a live engine: a WorkloadGenerator feeds a QueueManager on a ScaledClock,
+ * a BoardFeed streams it on a loopback port and `replicas` BoardReplicas follow it, for `seconds`
+ * of wall time at `speed` queue seconds per wall second.
+ * Every second it compares each replica's next-20 ETAs with the engine's own snapshot; at the end
+ * it stops the engine and checks every replica's waiting lines token for token.
+ * Prints the bytes each board received next to what resending the waiting list on every change would cost.
+ *
+ *   java -cp target/benchmarks.jar com.example.smartqueuesystem.benchmarks.BoardLoad [replicas] [seconds] [speed]
+ */
+public class BoardLoad {
+
+    public static void main(String[] args) throws Exception {
+        int replicaCount = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        double speed = args.length > 2 ? Double.parseDouble(args[2]) : 60;
+
+        System.setProperty("smartqueue.dataDir", System.getProperty("java.io.tmpdir") + "/smartqueue-boardload");
+        if (System.getProperty("smartqueue.departments") == null) System.setProperty("smartqueue.departments", "OPD:4,Lab:2");
+        ScaledClock clock = new ScaledClock(LocalTime.of(8, 0), speed);
+        QueueManager manager = new QueueManager(DepartmentQueues.configured(clock), 0, clock);
+        WorkloadGenerator load = WorkloadGenerator.configured(7);
+        if (System.getProperty("smartqueue.load.arrivals") == null) {
+            // Over capacity, so the lines grow and the boards have something to show
+            load.arrivals("poisson:" + 1.5 * manager.getDeskCount() * 3600 / 80);
+        }
+        if (System.getProperty("smartqueue.load.departments") == null) {
+            StringBuilder weights = new StringBuilder();
+            for (DepartmentQueues.Shard s : manager.getDepartments()) weights.append(s.getName()).append(':').append(s.getDesks()).append(',');
+            load.departments(weights.toString());
+        }
+        manager.setVisitDuration(load);
+        manager.setKeepOpen(true);
+
+        BoardFeed feed = new BoardFeed(manager, new InetSocketAddress("127.0.0.1", 0));
+        feed.start();
+        List<BoardReplica> replicas = new ArrayList<>();
+        for (int i = 0; i < replicaCount; i++) replicas.add(new BoardReplica(feed.getAddress()).start());
+
+        Thread engine = new Thread(manager, "board-engine");
+        engine.start();
+        while (!manager.isRunning()) Thread.onSpinWait();
+
+        long wallEnd = System.nanoTime() + seconds * 1_000_000_000L;
+        Thread producer = new Thread(() -> {
+            try {
+                while (System.nanoTime() < wallEnd) {
+                    WorkloadGenerator.Arrival a = load.next();
+                    clock.sleepUntil(a.getAtMillis());
+                    manager.addPatient(a.toPatient(clock.localTime()));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "board-arrivals");
+        producer.setDaemon(true);
+        producer.start();
+
+        System.out.printf("📺 %d replicas on %s, %d desks, %.0fx speed, %.0f arrivals/h%n",
+                replicaCount, feed.getAddress(), manager.getDeskCount(), speed, load.meanRatePerHour());
+        System.out.println("wall s | waiting | boards | frames  | ETA diff s (mean / max over replicas' next 20)");
+
+        // |replica ETA - engine ETA| for tokens both show, in queue seconds; snapshot rows work out
+        // their waits when read, so both sides are as of this moment.
+        LatencyHistogram etaDiff = new LatencyHistogram();
+        long resendBytes = 0;
+        long lastFrames = 0;
+        for (int s = 1; System.nanoTime() < wallEnd; s++) {
+            Thread.sleep(1000);
+            QueueSnapshot engineView = manager.snapshot();
+            LatencyHistogram second = new LatencyHistogram();
+            for (BoardReplica r : replicas) {
+                for (BoardReplica.Upcoming u : r.next(null, 20)) {
+                    QueueSnapshot.Row row = engineView.rowOf(u.getTokenNumber());
+                    if (row == null) continue; // called or added between the two views
+                    second.record(Math.abs(row.getWaitSeconds() - u.getWaitSeconds()));
+                }
+            }
+            etaDiff.add(second);
+            // Resending the list on every change instead: at least 16 bytes per waiting patient
+            long frames = feed.getFrameCount();
+            resendBytes += (frames - lastFrames) * 16L * engineView.getWaitingCount();
+            lastFrames = frames;
+            System.out.printf("%6d | %7d | %6d | %7d | %6.1f / %d%n", s, engineView.getWaitingCount(),
+                    feed.getBoardCount(), frames, second.mean(), second.percentile(100));
+        }
+
+        manager.stop();
+        engine.join(30_000);
+        Thread.sleep(1000); // let the replicas drain their sockets
+
+        // Quiescent now: every replica must hold exactly the engine's lines
+        QueueSnapshot last = manager.snapshot();
+        Map<String, List<Integer>> expected = new HashMap<>();
+        for (QueueSnapshot.Department d : last.getDepartments()) {
+            List<Integer> tokens = new ArrayList<>();
+            for (QueueSnapshot.Row row : d.getWaiting()) tokens.add(row.getTokenNumber());
+            expected.put(d.getName(), tokens);
+        }
+        int mismatches = 0;
+        for (BoardReplica r : replicas) {
+            for (Map.Entry<String, List<Integer>> e : expected.entrySet()) {
+                if (!r.waitingTokens(e.getKey()).equals(e.getValue())) mismatches++;
+            }
+        }
+
+        BoardReplica first = replicas.get(0);
+        long events = first.getFrameCount();
+        System.out.printf("%n✅ Final lines: %d waiting, %d mismatching department line(s) across %d replicas%n",
+                last.getWaitingCount(), mismatches, replicaCount);
+        System.out.printf("⏱ ETA diff vs engine: mean %.2f s, p99 %d s, max %d s (%d samples)%n",
+                etaDiff.mean(), etaDiff.percentile(99), etaDiff.percentile(100), etaDiff.count());
+        System.out.printf("📦 Per board: %d frames, %d bytes, %.1f bytes/frame (HELLO included); reconnects %d%n",
+                events, first.getByteCount(), first.getByteCount() / (double) Math.max(1, events), first.getConnectCount() - 1);
+        System.out.printf("📦 Resending the waiting list on every change instead: ~%d bytes per board%n", resendBytes);
+        for (BoardReplica r : replicas) r.close();
+        feed.close();
+        System.exit(mismatches == 0 ? 0 : 1);
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.smartqueuesystem.benchmarks;
+
+import com.example.smartqueuesystem.Patient;
+
+import java.time.LocalTime;
+import java.util.Random;
+
+/** Deterministic patient mixes shared by the benchmarks. */
+final class Fixtures {
+
+    private Fixtures() {}
+
+    // Ages 1–90 cover the Child / General / Senior auto-classification; about 1 in 16 is an emergency
+    static Patient[] patients(int n, long seed) {
+        Random r = new Random(seed);
+        Patient[] out = new Patient[n];
+        LocalTime start = LocalTime.of(8, 0);
+        for (int i = 0; i < n; i++) {
+            String category = r.nextInt(16) == 0 ? "Emergency" : "General";
+            out[i] = new Patient("Patient " + i, 1 + r.nextInt(90), i % 2 == 0 ? "Male" : "Female", category,
+                    start.plusNanos(r.nextLong(8L * 3600 * 1_000_000_000L)));
+            out[i].setExpectedServeTime(40 + r.nextInt(61));
+        }
+        return out;
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.smartqueuesystem.benchmarks;
+
+import com.example.smartqueuesystem.KioskServer;
+import com.example.smartqueuesystem.LatencyHistogram;
+import com.example.smartqueuesystem.Patient;
+import com.example.smartqueuesystem.PatientQueue;
+import com.example.smartqueuesystem.QueueManager;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * End-to-end load test of the kiosk API: an in-process KioskServer on a loopback port and
+ * `kiosks` concurrent clients on virtual threads, each on its own keep-alive connection
+ * posting `batch` registrations per request for `seconds` (after a 2 s warm-up).
+ * Prints sustained registrations/s, client round-trip p50/p99 and handler p99.
+ * The clients speak raw HTTP/1.1 so the measurement isn't dominated by client overhead.
+ *
+ *   java -cp target/benchmarks.jar com.example.smartqueuesystem.benchmarks.KioskLoad [kiosks] [batch] [seconds]
+ */
+public class KioskLoad {
+
+    public static void main(String[] args) throws Exception {
+        int kiosks = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int batch = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        System.setProperty("smartqueue.dataDir", System.getProperty("java.io.tmpdir") + "/smartqueue-kioskload");
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) System.setProperty("sun.net.httpserver.nodelay", "true");
+        QueueManager manager = new QueueManager(new PatientQueue(1 << 16, Patient.PRIORITY_ORDER), 1, 0);
+        KioskServer kiosk = new KioskServer(manager, "127.0.0.1", 0);
+        kiosk.start();
+
+        StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < batch; i++) {
+            lines.append("Kiosk patient ").append(i).append(',').append(5 + i % 80).append(",Female,General\n");
+        }
+        byte[] body = lines.toString().getBytes(StandardCharsets.UTF_8);
+        byte[] head = ("POST /patients HTTP/1.1\r\nHost: localhost\r\nContent-Type: text/plain\r\nContent-Length: "
+                + body.length + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+
+        LatencyHistogram latency = new LatencyHistogram();
+        AtomicLong accepted = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        long warmupEnd = System.nanoTime() + 2_000_000_000L;
+        long end = warmupEnd + seconds * 1_000_000_000L;
+
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int k = 0; k < kiosks; k++) {
+                clients.submit(() -> {
+                    try (Socket socket = new Socket("127.0.0.1", kiosk.getPort())) {
+                        socket.setTcpNoDelay(true);
+                        OutputStream out = socket.getOutputStream();
+                        InputStream in = new BufferedInputStream(socket.getInputStream());
+                        long start;
+                        while ((start = System.nanoTime()) < end) {
+                            out.write(head);
+                            out.write(body);
+                            out.flush();
+                            int status = readResponse(in);
+                            long done = System.nanoTime();
+                            if (start < warmupEnd) continue;
+                            if (status == 202) {
+                                latency.record(done - start);
+                                accepted.addAndGet(batch);
+                            } else {
+                                failed.incrementAndGet();
+                            }
+                        }
+                    }
+                    return null;
+                });
+            }
+        }
+
+        kiosk.close();
+        System.out.printf("%d kiosks x batch %d: %.0f registrations/s, round trip p50 %.2f ms p99 %.2f ms, "
+                        + "handler p99 %.2f ms, failed %d, queued %d%n",
+                kiosks, batch, accepted.get() / (double) seconds,
+                latency.percentile(50) / 1e6, latency.percentile(99) / 1e6,
+                kiosk.getLatency().percentile(99) / 1e6, failed.get(), manager.getQueue().size());
+        System.exit(0);
+    }
+
+    // Reads one response and returns its status code
+    private static int readResponse(InputStream in) throws IOException {
+        String status = readLine(in);
+        int length = 0;
+        for (String line; !(line = readLine(in)).isEmpty(); ) {
+            if (line.regionMatches(true, 0, "Content-Length:", 0, 15)) length = Integer.parseInt(line.substring(15).trim());
+        }
+        in.readNBytes(length);
+        return Integer.parseInt(status.split(" ")[1]);
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int c; (c = in.read()) != '\n'; ) {
+            if (c < 0) throw new EOFException();
+            if (c != '\r') sb.append((char) c);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.smartqueuesystem.benchmarks;
+
+import com.example.smartqueuesystem.LogWriter;
+import com.example.smartqueuesystem.Patient;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Log-event formatting and writes.
+ * legacyFileWriterPerEvent is the original open-append-close per event;
+ * asyncEnqueue is the cost the serving thread now pays with LogWriter.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LogBenchmark {
+
+    private Patient patient;
+    private Path directory;
+    private String legacyPath;
+    private LogWriter writer;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        patient = Fixtures.patients(1, 4)[0];
+        directory = Files.createTempDirectory("smartqueue-bench");
+        legacyPath = directory.resolve("legacy_log.txt").toString();
+        writer = new LogWriter(directory.resolve("async"), 64, 200, Long.MAX_VALUE, false, 1 << 16);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        writer.close();
+    }
+
+    private String event() {
+        return "✅ Served completed: " + patient.getName() + " (" + patient.getCategory() + ")\n" +
+                "   Token: " + patient.getTokenNumber() + " | Queue: " + patient.getQueueNumber() +
+                " | Expected: " + patient.getExpectedServeTime() + "s";
+    }
+
+    @Benchmark
+    public String formatEvent() {
+        return LocalTime.now().format(DateTimeFormatter.ofPattern("HH:mm:ss")) + " - " + event() + "\n";
+    }
+
+    @Benchmark
+    public void legacyFileWriterPerEvent() throws IOException {
+        try (FileWriter fw = new FileWriter(legacyPath, true)) {
+            fw.write(formatEvent());
+        }
+    }
+
+    @Benchmark
+    public void asyncEnqueue() {
+        writer.log(event());
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.smartqueuesystem.benchmarks;
+
+import com.example.smartqueuesystem.Patient;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Patient construction and single priority comparisons.
+ * compare uses the packed sort key; legacyCompare is the earlier comparator that lower-cased
+ * the category string and compared LocalTimes on every call.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PatientBenchmark {
+
+    private static final int PAIRS = 1024;
+
+    private final Comparator<Patient> comparator = Patient.PRIORITY_ORDER;
+
+    static final Comparator<Patient> LEGACY_ORDER = Comparator
+            .comparingInt(PatientBenchmark::legacyPriority)
+            .thenComparing((p1, p2) -> {
+                if (p1.getCategory().equalsIgnoreCase("senior"))
+                    return Integer.compare(p2.getAge(), p1.getAge());
+                if (p1.getCategory().equalsIgnoreCase("child"))
+                    return Integer.compare(p1.getAge(), p2.getAge());
+                return 0;
+            })
+            .thenComparing(Patient::getArrivalTime);
+    private Patient[] patients;
+    private int age;
+
+    @Setup
+    public void setup() {
+        patients = Fixtures.patients(PAIRS * 2, 1);
+    }
+
+    @Benchmark
+    public Patient construct() {
+        age = (age + 7) % 90;
+        return new Patient("Patient", age, "Female", "General");
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAIRS)
+    public void compare(Blackhole bh) {
+        for (int i = 0; i < PAIRS; i++) {
+            bh.consume(comparator.compare(patients[2 * i], patients[2 * i + 1]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAIRS)
+    public void legacyCompare(Blackhole bh) {
+        for (int i = 0; i < PAIRS; i++) {
+            bh.consume(LEGACY_ORDER.compare(patients[2 * i], patients[2 * i + 1]));
+        }
+    }
+
+    private static int legacyPriority(Patient p) {
+        switch (p.getCategory().toLowerCase()) {
+            case "emergency": return 1;
+            case "senior": return 2;
+            case "child": return 3;
+            default: return 4;
+        }
+    }
+}
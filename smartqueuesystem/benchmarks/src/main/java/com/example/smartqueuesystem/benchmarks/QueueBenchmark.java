@@ -0,0 +1,74 @@
+package com.example.smartqueuesystem.benchmarks;
+
+import com.example.smartqueuesystem.Patient;
+import com.example.smartqueuesystem.PatientQueue;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Enqueue and dequeue at a steady queue size.
+ * The legacy* benchmarks reproduce the original PriorityBlockingQueue paths
+ * (copy the whole queue, sort it, remove the head with a linear scan) as a baseline.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueueBenchmark {
+
+    @Param({"10", "1000", "100000", "1000000"})
+    public int size;
+
+    private Patient[] patients;
+    private PriorityBlockingQueue<Patient> legacy;
+    private PatientQueue heap;
+    private int next;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        patients = Fixtures.patients(size * 2, 2);
+        legacy = new PriorityBlockingQueue<>(size, Patient.PRIORITY_ORDER);
+        heap = new PatientQueue(size, Patient.PRIORITY_ORDER);
+        for (int i = 0; i < size; i++) {
+            legacy.add(patients[i]);
+            heap.add(patients[i]);
+        }
+        next = size;
+    }
+
+    // Recycle a patient that is not currently queued, keeping the size constant
+    private Patient spare() {
+        Patient p = patients[next];
+        next = next + 1 == patients.length ? 0 : next + 1;
+        return p;
+    }
+
+    @Benchmark
+    public Patient legacyEnqueueDequeue() {
+        legacy.add(spare());
+        return legacy.poll();
+    }
+
+    @Benchmark
+    public Patient legacyCopySortRemove() {
+        legacy.add(spare());
+        List<Patient> sorted = new ArrayList<>(legacy);
+        sorted.sort(Patient.PRIORITY_ORDER);
+        Patient head = sorted.get(0);
+        legacy.remove(head);
+        return head;
+    }
+
+    @Benchmark
+    public Patient heapEnqueueDequeue() {
+        Patient p = spare();
+        if (!heap.contains(p)) heap.add(p);
+        return heap.poll();
+    }
+}
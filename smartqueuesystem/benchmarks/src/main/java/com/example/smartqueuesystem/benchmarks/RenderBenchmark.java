@@ -0,0 +1,92 @@
+package com.example.smartqueuesystem.benchmarks;
+
+import com.example.smartqueuesystem.DisplayText;
+import com.example.smartqueuesystem.Patient;
+import com.example.smartqueuesystem.PatientQueue;
+import com.example.smartqueuesystem.QueueManager;
+import com.example.smartqueuesystem.QueueSnapshot;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Text of one list row, as the waiting and served cells draw it on every scroll or tick.
+ * waitingRow / servedRow fill a reused buffer through DisplayText and make the one String a
+ * changed cell needs; the legacy variants are the earlier concatenation with String.format and
+ * DateTimeFormatter.ofPattern per call. Run with -prof gc to compare bytes per row.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderBenchmark {
+
+    private static final int ROWS = 1024;
+
+    private Patient[] patients;
+    private List<QueueSnapshot.Row> rows;
+    private final StringBuilder text = new StringBuilder(96);
+
+    @Setup
+    public void setup() {
+        System.setProperty("smartqueue.dataDir", System.getProperty("java.io.tmpdir") + "/smartqueue-bench");
+        QueueManager manager = new QueueManager(new PatientQueue(ROWS, Patient.PRIORITY_ORDER), 4, 0);
+        Map<Integer, Patient> byToken = new HashMap<>();
+        for (Patient p : Fixtures.patients(ROWS, 1)) {
+            manager.addPatient(p);
+            byToken.put(p.getTokenNumber(), p);
+        }
+        // Rows in serving order, each next to its own patient
+        rows = new ArrayList<>(manager.snapshot().getDepartments().get(0).getWaiting()); // rows are made on access; keep one set
+        manager.stop(); // never run; lets its snapshot publisher exit
+        patients = new Patient[ROWS];
+        for (int i = 0; i < ROWS; i++) {
+            patients[i] = byToken.get(rows.get(i).getTokenNumber());
+            patients[i].markServed(patients[i].getArrivalTime().plusMinutes(20));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void waitingRow(Blackhole bh) {
+        for (int i = 0; i < ROWS; i++) {
+            bh.consume(DisplayText.waitingRow(text, patients[i], rows.get(i), false).toString());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void legacyWaitingRow(Blackhole bh) {
+        for (int i = 0; i < ROWS; i++) {
+            Patient p = patients[i];
+            QueueSnapshot.Row row = rows.get(i);
+            long wait = row.getWaitSeconds();
+            bh.consume("Q" + row.getQueueNumber() + " | Token " + p.getTokenNumber() + " | " + p.getName()
+                    + " | " + p.getCategory() + " | ⏱ " + String.format("%02dm %02ds", wait / 60, wait % 60));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void servedRow(Blackhole bh) {
+        for (int i = 0; i < ROWS; i++) bh.consume(DisplayText.servedRow(text, patients[i]).toString());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void legacyServedRow(Blackhole bh) {
+        for (int i = 0; i < ROWS; i++) {
+            Patient p = patients[i];
+            bh.consume("Token " + p.getTokenNumber() + " | " + p.getName() + " | Served ✅ at "
+                    + p.getServedTime().format(DateTimeFormatter.ofPattern("HH:mm:ss")));
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.example.smartqueuesystem.benchmarks;
+
+import com.example.smartqueuesystem.DepartmentQueues;
+import com.example.smartqueuesystem.LatencyHistogram;
+import com.example.smartqueuesystem.Patient;
+import com.example.smartqueuesystem.QueueHandle;
+import com.example.smartqueuesystem.QueueListener;
+import com.example.smartqueuesystem.QueueManager;
+import com.example.smartqueuesystem.ScaledClock;
+import com.example.smartqueuesystem.WorkloadGenerator;
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.sun.management.GcInfo;
+
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Soak test of the live engine: a WorkloadGenerator feeds the real QueueManager (desk threads,
+ * PatientQueue locks, listeners, LogWriter) on a ScaledClock, `speed` queue seconds per wall
+ * second, for `hours` of wall time or until `maxPatients` have arrived.
+ * Every `reportSeconds` it prints one row: throughput, waiting depth, heap after the last GC,
+ * GC pauses, and how far the ETA promised at registration was from the real wait.
+ * The summary fits the after-GC heap and the ETA error against time, so a leak or a
+ * drifting estimate shows up as a slope rather than a single bad sample.
+ *
+ * Desks and departments come from smartqueue.desks / smartqueue.departments (8 desks if unset),
+ * the workload from smartqueue.load.* (see WorkloadGenerator); without smartqueue.load.arrivals
+ * patients arrive at 90% of the desks' capacity.
+ *
+ *   java -Xmx512m -cp target/benchmarks.jar com.example.smartqueuesystem.benchmarks.SoakTest [hours] [speed] [reportSeconds] [maxPatients]
+ */
+public class SoakTest {
+
+    private static final AtomicLong gcPauses = new AtomicLong();
+    private static final AtomicLong gcPauseMillis = new AtomicLong();
+    private static final AtomicLong gcMaxPauseMillis = new AtomicLong();
+    private static final AtomicLong heapAfterGc = new AtomicLong(-1);
+
+    /** One report interval. */
+    private record Window(double wallHours, double queueHours, long added, long served, long waiting,
+                          double heapMb, long pauses, long pauseMillis, long maxPauseMillis,
+                          double etaErrorSeconds, long etaP95Seconds, double etaBiasSeconds) {}
+
+    public static void main(String[] args) throws Exception {
+        double hours = args.length > 0 ? Double.parseDouble(args[0]) : 1;
+        double speed = args.length > 1 ? Double.parseDouble(args[1]) : 60;
+        int reportSeconds = args.length > 2 ? Integer.parseInt(args[2]) : 60;
+        long maxPatients = args.length > 3 ? Long.parseLong(args[3]) : Long.MAX_VALUE;
+
+        System.setProperty("smartqueue.dataDir", System.getProperty("java.io.tmpdir") + "/smartqueue-soak");
+        if (System.getProperty("smartqueue.departments") == null && System.getProperty("smartqueue.desks") == null) {
+            System.setProperty("smartqueue.desks", "8");
+        }
+        ScaledClock clock = new ScaledClock(LocalTime.of(0, 0), speed);
+        QueueManager manager = new QueueManager(DepartmentQueues.configured(clock),
+                Integer.getInteger("smartqueue.emergencyDesks", 0), clock);
+        WorkloadGenerator load = WorkloadGenerator.configured(42);
+        if (System.getProperty("smartqueue.load.arrivals") == null) {
+            load.arrivals("poisson:" + 0.9 * manager.getDeskCount() * 3600 / 80);
+        }
+        if (System.getProperty("smartqueue.load.departments") == null && manager.getDepartments().size() > 1) {
+            StringBuilder weights = new StringBuilder();
+            for (DepartmentQueues.Shard s : manager.getDepartments()) weights.append(s.getName()).append(':').append(s.getDesks()).append(',');
+            load.departments(weights.toString());
+        }
+        manager.setVisitDuration(load);
+        manager.setKeepOpen(true);
+
+        // Registration time and promised wait per waiting token, settled when a desk calls them
+        Map<Integer, long[]> promised = new ConcurrentHashMap<>();
+        AtomicLong served = new AtomicLong();
+        AtomicLong etaBias = new AtomicLong();
+        // Swapped each interval; a record racing the swap lands in the old one and is dropped
+        AtomicReference<LatencyHistogram> etaError = new AtomicReference<>(new LatencyHistogram());
+        manager.addListener(new QueueListener() {
+            @Override
+            public void onServingStarted(int desk, Patient p, long expected) {
+                long[] eta = promised.remove(p.getTokenNumber());
+                if (eta == null) return;
+                long waited = (clock.nowMillis() - eta[0]) / 1000;
+                etaError.get().record(Math.abs(waited - eta[1]));
+                etaBias.addAndGet(waited - eta[1]);
+            }
+
+            @Override
+            public void onServed(int desk, Patient p) {
+                served.incrementAndGet();
+            }
+        });
+        watchGcPauses();
+
+        Thread engine = new Thread(manager, "soak-engine");
+        engine.start();
+        while (!manager.isRunning()) Thread.onSpinWait();
+
+        AtomicLong added = new AtomicLong();
+        long wallEnd = System.nanoTime() + (long) (hours * 3_600_000_000_000L);
+        Thread producer = new Thread(() -> {
+            try {
+                while (System.nanoTime() < wallEnd && added.get() < maxPatients) {
+                    WorkloadGenerator.Arrival a = load.next();
+                    clock.sleepUntil(a.getAtMillis());
+                    long at = clock.nowMillis();
+                    QueueHandle h = manager.addPatient(a.toPatient(clock.localTime()));
+                    promised.put(h.getPatient().getTokenNumber(), new long[] { at, Math.max(0, h.getWaitTime()) });
+                    added.incrementAndGet();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "soak-arrivals");
+        producer.setDaemon(true);
+        producer.start();
+
+        System.out.printf("🧪 Soak: %d desks in %d department(s), %.0fx speed, %.0f arrivals/h, %.2f h wall%n",
+                manager.getDeskCount(), manager.getDepartments().size(), speed, load.meanRatePerHour(), hours);
+        System.out.println("wall min | queue h | added    | served   | served/s | waiting | heap MB | GCs  | GC ms | max ms | ETA err s | p95 s | bias s");
+
+        List<Window> windows = new ArrayList<>();
+        long wallStart = System.nanoTime();
+        long lastServed = 0;
+        while (true) {
+            Thread.sleep(reportSeconds * 1000L);
+            long pauses = gcPauses.getAndSet(0);
+            long pauseMillis = gcPauseMillis.getAndSet(0);
+            long maxPause = gcMaxPauseMillis.getAndSet(0);
+            LatencyHistogram eta = etaError.getAndSet(new LatencyHistogram());
+            long bias = etaBias.getAndSet(0);
+            long servedNow = served.get();
+            Window w = new Window((System.nanoTime() - wallStart) / 3.6e12, clock.nowMillis() / 3.6e6,
+                    added.get(), servedNow, manager.getDepartments().totalWaiting(), heapAfterGcMb(),
+                    pauses, pauseMillis, maxPause, eta.mean(), eta.percentile(95),
+                    eta.count() > 0 ? (double) bias / eta.count() : 0);
+            windows.add(w);
+            System.out.printf("%8.1f | %7.2f | %8d | %8d | %8.1f | %7d | %7.1f | %4d | %5d | %6d | %9.1f | %5d | %6.1f%n",
+                    w.wallHours * 60, w.queueHours, w.added, w.served, (servedNow - lastServed) / (double) reportSeconds,
+                    w.waiting, w.heapMb, w.pauses, w.pauseMillis, w.maxPauseMillis,
+                    w.etaErrorSeconds, w.etaP95Seconds, w.etaBiasSeconds);
+            lastServed = servedNow;
+            // Out of time, or every patient of a maxPatients run has been called
+            if (!producer.isAlive() && (w.waiting == 0 || System.nanoTime() >= wallEnd)) break;
+        }
+        manager.stop();
+        engine.join(10_000);
+        summary(windows);
+        System.exit(0);
+    }
+
+    // -------------------- SUMMARY --------------------
+    private static void summary(List<Window> windows) {
+        if (windows.size() < 2) {
+            System.out.println("Too short for a trend; run for several report intervals.");
+            return;
+        }
+        Window last = windows.get(windows.size() - 1);
+        // The first interval is warm-up (class loading, JIT, the queue filling); fit the rest
+        List<Window> steady = windows.subList(1, windows.size());
+        long totalPauses = 0, totalPauseMillis = 0, maxPause = 0;
+        for (Window w : windows) {
+            totalPauses += w.pauses;
+            totalPauseMillis += w.pauseMillis;
+            maxPause = Math.max(maxPause, w.maxPauseMillis);
+        }
+        double heapSlope = slope(steady, w -> w.wallHours, w -> w.heapMb);
+        double etaSlope = slope(steady, w -> w.queueHours, w -> w.etaErrorSeconds);
+
+        System.out.printf("%n📊 Throughput: %d served in %.2f wall h (%.1f/s), %.0f per queue hour%n",
+                last.served, last.wallHours, last.served / (last.wallHours * 3600), last.served / last.queueHours);
+        System.out.printf("🧠 Heap after GC: %.1f → %.1f MB, trend %+.1f MB per wall hour%n",
+                steady.get(0).heapMb, last.heapMb, heapSlope);
+        System.out.printf("🗑 GC: %d pauses, %d ms total, longest %d ms%n", totalPauses, totalPauseMillis, maxPause);
+        System.out.printf("⏱ ETA error: %.1f s → %.1f s mean, trend %+.2f s per queue hour%n",
+                steady.get(0).etaErrorSeconds, last.etaErrorSeconds, etaSlope);
+    }
+
+    private interface Axis {
+        double of(Window w);
+    }
+
+    // Least-squares slope of y over x
+    private static double slope(List<Window> points, Axis x, Axis y) {
+        double n = points.size(), sx = 0, sy = 0, sxx = 0, sxy = 0;
+        for (Window w : points) {
+            double xv = x.of(w), yv = y.of(w);
+            sx += xv;
+            sy += yv;
+            sxx += xv * xv;
+            sxy += xv * yv;
+        }
+        double d = n * sxx - sx * sx;
+        return d == 0 ? 0 : (n * sxy - sx * sy) / d;
+    }
+
+    // -------------------- JVM PROBES --------------------
+    // Live data only: the whole heap right after the latest collection (plain usage before the first)
+    private static double heapAfterGcMb() {
+        long bytes = heapAfterGc.get();
+        if (bytes < 0) bytes = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        return bytes / (1024.0 * 1024);
+    }
+
+    // Every collection's duration; ZGC / Shenandoah "Cycles" beans time concurrent work, not pauses
+    private static void watchGcPauses() {
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (gc.getName().contains("Cycles") || !(gc instanceof NotificationEmitter emitter)) continue;
+            emitter.addNotificationListener((notification, handback) -> {
+                if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) return;
+                GcInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData()).getGcInfo();
+                long millis = info.getDuration();
+                long after = 0;
+                for (MemoryUsage pool : info.getMemoryUsageAfterGc().values()) after += pool.getUsed();
+                heapAfterGc.set(after);
+                gcPauses.incrementAndGet();
+                gcPauseMillis.addAndGet(millis);
+                gcMaxPauseMillis.accumulateAndGet(millis, Math::max);
+            }, null, null);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.smartqueuesystem.benchmarks;
+
+import com.example.smartqueuesystem.Patient;
+import com.example.smartqueuesystem.PatientQueue;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeping queue numbers and wait times current after one patient joins.
+ * legacyRecompute is the original updateWaitTimes (copy, sort, rewrite everyone);
+ * the index benchmarks are what the UI now does per visible row.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WaitTimeBenchmark {
+
+    /** Rows a waiting-list viewport typically shows. */
+    private static final int VISIBLE_ROWS = 20;
+
+    @Param({"10", "1000", "100000", "1000000"})
+    public int size;
+
+    private Patient[] patients;
+    private PriorityBlockingQueue<Patient> legacy;
+    private PatientQueue heap;
+    private int probe;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        patients = Fixtures.patients(size, 3);
+        legacy = new PriorityBlockingQueue<>(size, Patient.PRIORITY_ORDER);
+        heap = new PatientQueue(size, Patient.PRIORITY_ORDER);
+        for (Patient p : patients) {
+            legacy.add(p);
+            heap.add(p);
+        }
+    }
+
+    @Benchmark
+    public long legacyRecompute() {
+        List<Patient> sorted = new ArrayList<>(legacy);
+        sorted.sort(Patient.PRIORITY_ORDER);
+        long cumulative = 0;
+        int pos = 1;
+        for (Patient p : sorted) {
+            p.setQueueNumber(pos++);
+            p.setApproxWaitTime(cumulative);
+            cumulative += p.getExpectedServeTime();
+        }
+        return cumulative;
+    }
+
+    @Benchmark
+    public long indexSingleLookup() {
+        probe = probe + 1 == patients.length ? 0 : probe + 1;
+        return heap.waitTimeOf(patients[probe]);
+    }
+
+    @Benchmark
+    public void indexVisibleRows(Blackhole bh) {
+        for (int i = 0; i < VISIBLE_ROWS && i < patients.length; i++) {
+            probe = probe + 1 == patients.length ? 0 : probe + 1;
+            bh.consume(heap.refreshEta(patients[probe]));
+        }
+    }
+
+    @Benchmark
+    public long indexInsertRemove() {
+        probe = probe + 1 == patients.length ? 0 : probe + 1;
+        Patient p = patients[probe];
+        heap.remove(p);
+        heap.add(p);
+        return heap.waitTimeOf(p);
+    }
+}
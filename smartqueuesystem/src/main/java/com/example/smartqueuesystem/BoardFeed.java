@@ -0,0 +1,381 @@
+package com.example.smartqueuesystem;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Binary state-change stream for waiting-room display boards (see BoardReplica).
+ *
+ * A QueueListener that keeps a small mirror of what boards need (waiting tokens with their
+ * sort keys, each desk's patient and expected finish) and turns every engine event into a
+ * fixed-size frame. A board that connects first gets one HELLO with the mirror, then only
+ * deltas, so no list is ever resent:
+ *
+ *   HELLO       engine time, departments (name, desks), desks (department, emergency-only, token,
+ *               deadline), waiting
+ *   ENQUEUE     token, department, category, expected seconds, sort key          17 bytes
+ *   REMOVE      token (cancelled)                                                 5 bytes
+ *   UPDATE      same body as ENQUEUE (edited, or re-keyed by a policy change)    17 bytes
+ *   SERVE_START desk, token, deadline (engine millis)                           15 bytes
+ *   SERVED      desk                                                              3 bytes
+ *   SHIFT       desk, new deadline (overrun or early-finish correction)          11 bytes
+ *   TICK        engine time, once a second                                        9 bytes
+ *
+ * Deadlines are absolute, so the HELLO and the deltas after it never need to be merged with
+ * care; a replica derives ETAs from them exactly as PatientQueue does. Events from different
+ * threads can arrive out of order (a desk may call a patient before the registering thread
+ * reports the add); the mirror remembers such tokens and drops their late ENQUEUE.
+ *
+ * Engine threads only encode a frame and offer it to each board's queue; a writer thread per
+ * board does the socket I/O. A board more than smartqueue.board.backlog bytes behind is cut off
+ * and gets a fresh HELLO when it reconnects. Started when -Dsmartqueue.board.port (TCP, bound to
+ * smartqueue.board.host, default 127.0.0.1) or -Dsmartqueue.board.socket (Unix-domain path) is set.
+ */
+public class BoardFeed implements QueueListener, AutoCloseable {
+
+    static final byte HELLO = 1, ENQUEUE = 2, REMOVE = 3, UPDATE = 4, SERVE_START = 5, SERVED = 6, SHIFT = 7, TICK = 8;
+    static final int PROTOCOL = 2;
+    static final int ENTRY_BYTES = 16;
+
+    /** A waiting patient as boards see it. */
+    private static final class Entry {
+        final int token, department, category, expected;
+        final long sortKey;
+
+        Entry(Patient p, int department) {
+            this.token = p.getTokenNumber();
+            this.department = department;
+            this.category = p.getCategoryType().ordinal();
+            this.expected = (int) Math.min(0xFFFF, Math.max(0, p.getExpectedServeTime()));
+            this.sortKey = p.getSortKey();
+        }
+
+        void writeTo(ByteBuffer b) {
+            b.putInt(token).put((byte) department).put((byte) category).putShort((short) expected).putLong(sortKey);
+        }
+    }
+
+    private final QueueManager manager;
+    private final ServerSocketChannel server;
+    private final SocketAddress address;
+    private final long maxBacklog;
+    private final List<Board> boards = new CopyOnWriteArrayList<>();
+
+    // Mirror, guarded by this: a new board's HELLO and every later frame are taken under the same lock
+    private final Map<Integer, Entry> waiting = new HashMap<>();
+    private final Set<Integer> goneBeforeAdded = new HashSet<>();
+    private final int[] deskToken;
+    private final long[] deskDeadline;
+    private final int[] deskDepartment;
+
+    private final AtomicLong frames = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile boolean open = true;
+
+    public BoardFeed(QueueManager manager, SocketAddress address) throws IOException {
+        this.manager = manager;
+        this.maxBacklog = Long.getLong("smartqueue.board.backlog", 1 << 20);
+        int desks = manager.getDeskCount();
+        this.deskToken = new int[desks + 1];
+        this.deskDeadline = new long[desks + 1];
+        this.deskDepartment = new int[desks + 1];
+        for (int d = 1; d <= desks; d++) {
+            deskDepartment[d] = manager.getDepartments().shardOf(manager.getDepartmentOf(d)).getIndex();
+        }
+        if (address instanceof UnixDomainSocketAddress unix) {
+            Files.deleteIfExists(unix.getPath());
+            this.server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        } else {
+            this.server = ServerSocketChannel.open();
+        }
+        server.bind(address, 64);
+        this.address = server.getLocalAddress();
+    }
+
+    /** Starts a feed for manager when smartqueue.board.port or smartqueue.board.socket is set, otherwise returns null. */
+    public static BoardFeed startIfConfigured(QueueManager manager) {
+        Integer port = Integer.getInteger("smartqueue.board.port");
+        String socket = System.getProperty("smartqueue.board.socket");
+        if (port == null && socket == null) return null;
+        try {
+            SocketAddress address = socket != null ? UnixDomainSocketAddress.of(Path.of(socket))
+                    : new InetSocketAddress(System.getProperty("smartqueue.board.host", "127.0.0.1"), port);
+            BoardFeed feed = new BoardFeed(manager, address);
+            feed.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(feed::close, "board-feed-shutdown"));
+            System.out.println("📺 Display board feed on " + feed.getAddress());
+            return feed;
+        } catch (IOException e) {
+            System.err.println("⚠ Display board feed not started: " + e.getMessage());
+            return null;
+        }
+    }
+
+    public void start() {
+        synchronized (this) {
+            manager.addListener(this); // events from now on wait for the seed below
+            seed();
+        }
+        Thread acceptor = new Thread(this::acceptLoop, "board-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        Thread ticker = new Thread(this::tickLoop, "board-tick");
+        ticker.setDaemon(true);
+        ticker.start();
+    }
+
+    public SocketAddress getAddress() {
+        return address;
+    }
+
+    public int getBoardCount() { return boards.size(); }
+    public long getFrameCount() { return frames.get(); }
+    public long getByteCount() { return bytes.get(); }
+    /** Boards cut off for falling too far behind. */
+    public long getDroppedCount() { return dropped.get(); }
+
+    @Override
+    public void close() {
+        open = false;
+        manager.removeListener(this);
+        try {
+            server.close();
+        } catch (IOException ignored) {
+        }
+        for (Board b : boards) b.close();
+    }
+
+    // -------------------- ENGINE EVENTS --------------------
+    @Override
+    public synchronized void onPatientAdded(Patient p) {
+        if (goneBeforeAdded.remove(p.getTokenNumber())) return; // already called or cancelled
+        Entry e = new Entry(p, departmentOf(p));
+        waiting.put(e.token, e);
+        broadcast(entryFrame(ENQUEUE, e));
+    }
+
+    @Override
+    public synchronized void onPatientCancelled(Patient p, String reason) {
+        if (waiting.remove(p.getTokenNumber()) == null) {
+            goneBeforeAdded.add(p.getTokenNumber());
+            return;
+        }
+        broadcast(frame(REMOVE, 4).putInt(p.getTokenNumber()));
+    }
+
+    @Override
+    public synchronized void onPatientUpdated(Patient p, Patient.Category previousCategory, long previousExpected) {
+        if (!waiting.containsKey(p.getTokenNumber())) return; // its ENQUEUE will carry the new values
+        Entry e = new Entry(p, departmentOf(p));
+        waiting.put(e.token, e);
+        broadcast(entryFrame(UPDATE, e));
+    }
+
+    // A new scheduling policy re-keyed everyone: an UPDATE for each patient whose key moved re-sorts the boards
+    @Override
+    public synchronized void onOrderChanged() {
+        for (DepartmentQueues.Shard shard : manager.getDepartments()) {
+            for (Patient p : shard.getQueue()) {
+                Entry old = waiting.get(p.getTokenNumber());
+                if (old == null) continue; // its ENQUEUE is still to come and reads the new key
+                Entry e = new Entry(p, shard.getIndex());
+                if (e.sortKey == old.sortKey) continue;
+                waiting.put(e.token, e);
+                broadcast(entryFrame(UPDATE, e));
+            }
+        }
+    }
+
+    @Override
+    public synchronized void onServingStarted(int desk, Patient p, long expected) {
+        if (waiting.remove(p.getTokenNumber()) == null) goneBeforeAdded.add(p.getTokenNumber());
+        deskToken[desk] = p.getTokenNumber();
+        deskDeadline[desk] = manager.getClock().nowMillis() + expected * 1000;
+        broadcast(frame(SERVE_START, 14).putShort((short) desk).putInt(deskToken[desk]).putLong(deskDeadline[desk]));
+    }
+
+    @Override
+    public synchronized void onDelayChanged(int desk, long seconds) {
+        if (deskToken[desk] == 0) return;
+        deskDeadline[desk] += seconds * 1000;
+        broadcast(frame(SHIFT, 10).putShort((short) desk).putLong(deskDeadline[desk]));
+    }
+
+    @Override
+    public synchronized void onServed(int desk, Patient p) {
+        deskToken[desk] = 0;
+        deskDeadline[desk] = 0;
+        broadcast(frame(SERVED, 2).putShort((short) desk));
+    }
+
+    // Patients and desks already busy before the feed started
+    private void seed() {
+        for (DepartmentQueues.Shard shard : manager.getDepartments()) {
+            for (Patient p : shard.getQueue()) waiting.put(p.getTokenNumber(), new Entry(p, shard.getIndex()));
+        }
+        long now = manager.getClock().nowMillis();
+        for (QueueSnapshot.Desk d : manager.snapshot().getDesks()) {
+            if (d.isIdle()) continue;
+            deskToken[d.getNumber()] = d.getServing().getTokenNumber();
+            deskDeadline[d.getNumber()] = now + Math.max(0, d.getExpected() - d.getElapsed()) * 1000;
+        }
+    }
+
+    private int departmentOf(Patient p) {
+        return manager.getDepartments().shardOf(p).getIndex();
+    }
+
+    // -------------------- FRAMES --------------------
+    private static ByteBuffer frame(byte type, int payload) {
+        return ByteBuffer.allocate(1 + payload).put(type);
+    }
+
+    private static ByteBuffer entryFrame(byte type, Entry e) {
+        ByteBuffer b = frame(type, ENTRY_BYTES);
+        e.writeTo(b);
+        return b;
+    }
+
+    private ByteBuffer hello() {
+        DepartmentQueues departments = manager.getDepartments();
+        List<byte[]> names = new ArrayList<>();
+        int size = 1 + 8 + 1 + 2 + (deskToken.length - 1) * 14 + 4 + waiting.size() * ENTRY_BYTES;
+        for (DepartmentQueues.Shard s : departments) {
+            byte[] name = s.getName().getBytes(StandardCharsets.UTF_8);
+            names.add(name);
+            size += 2 + name.length + 2;
+        }
+        ByteBuffer b = frame(HELLO, size).put((byte) PROTOCOL).putLong(manager.getClock().nowMillis());
+        b.put((byte) departments.size());
+        for (DepartmentQueues.Shard s : departments) {
+            byte[] name = names.get(s.getIndex());
+            b.putShort((short) name.length).put(name).putShort((short) s.getDesks());
+        }
+        b.putShort((short) (deskToken.length - 1));
+        for (int d = 1; d < deskToken.length; d++) {
+            b.put((byte) deskDepartment[d]).put((byte) (manager.isEmergencyDesk(d) ? 1 : 0))
+                    .putInt(deskToken[d]).putLong(deskDeadline[d]);
+        }
+        b.putInt(waiting.size());
+        for (Entry e : waiting.values()) e.writeTo(b);
+        return b;
+    }
+
+    // Called with the lock held, so every board sees frames in mirror order
+    private void broadcast(ByteBuffer frame) {
+        byte[] data = frame.array();
+        frames.incrementAndGet();
+        for (Board b : boards) b.offer(data);
+    }
+
+    // -------------------- CONNECTIONS --------------------
+    private void acceptLoop() {
+        while (open) {
+            try {
+                SocketChannel channel = server.accept();
+                Board board = new Board(channel);
+                synchronized (this) {
+                    board.offer(hello().array());
+                    boards.add(board);
+                }
+                Thread.ofVirtual().name("board-writer").start(board::writeLoop);
+            } catch (IOException e) {
+                if (open) System.err.println("⚠ Display board accept failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private void tickLoop() {
+        while (open) {
+            try {
+                Thread.sleep(1000);
+            } catch (InterruptedException e) {
+                return;
+            }
+            synchronized (this) {
+                broadcast(frame(TICK, 8).putLong(manager.getClock().nowMillis()));
+            }
+        }
+    }
+
+    /** One connected board: frames wait in its own queue until its writer thread sends them. */
+    private final class Board {
+        private final SocketChannel channel;
+        private final LinkedBlockingQueue<byte[]> outbox = new LinkedBlockingQueue<>();
+        private final AtomicLong backlog = new AtomicLong();
+        private volatile boolean closed;
+
+        Board(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        void offer(byte[] frame) {
+            if (closed) return;
+            if (backlog.addAndGet(frame.length) > maxBacklog) {
+                dropped.incrementAndGet();
+                close();
+                return;
+            }
+            outbox.add(frame);
+        }
+
+        // Sends everything queued so far in one write, so bursts cost one syscall
+        void writeLoop() {
+            List<byte[]> batch = new ArrayList<>();
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            try {
+                while (!closed) {
+                    byte[] first = outbox.poll(5, TimeUnit.SECONDS);
+                    if (first == null) continue;
+                    batch.add(first);
+                    outbox.drainTo(batch);
+                    for (byte[] f : batch) {
+                        if (f.length > buffer.remaining()) {
+                            flush(buffer);
+                            if (f.length > buffer.capacity()) buffer = ByteBuffer.allocate(f.length);
+                        }
+                        buffer.put(f);
+                        backlog.addAndGet(-f.length);
+                    }
+                    flush(buffer);
+                    batch.clear();
+                }
+            } catch (IOException | InterruptedException e) {
+                // board went away; it reconnects for a fresh HELLO
+            } finally {
+                close();
+            }
+        }
+
+        private void flush(ByteBuffer buffer) throws IOException {
+            buffer.flip();
+            bytes.addAndGet(buffer.remaining());
+            while (buffer.hasRemaining()) channel.write(buffer);
+            buffer.clear();
+        }
+
+        void close() {
+            closed = true;
+            boards.remove(this);
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
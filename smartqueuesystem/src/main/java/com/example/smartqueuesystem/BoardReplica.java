@@ -0,0 +1,398 @@
+package com.example.smartqueuesystem;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read replica of the queue for a waiting-room display board.
+ * Follows a BoardFeed: one HELLO on connect, then small deltas applied to a local copy of
+ * every department's waiting line (ordered by the engine's own sort keys) and of each desk.
+ * ETAs are computed locally from the desk deadlines and expected serve times, the same way
+ * PatientQueue does, against the engine time carried by the feed's once-a-second TICK
+ * (extrapolated between ticks at the rate the last two showed, so a sped-up clock works too).
+ * A lost connection is retried every few seconds and starts over from a fresh HELLO.
+ *
+ * Display mode, one board per hall (department name or "all", default 20 upcoming tokens):
+ *   java -cp target/classes com.example.smartqueuesystem.BoardReplica 127.0.0.1:7070 [department] [rows]
+ *   java -cp target/classes com.example.smartqueuesystem.BoardReplica /tmp/smartqueue-board.sock [department] [rows]
+ */
+public class BoardReplica implements AutoCloseable {
+
+    /** A token on the board's "next" list. */
+    public static final class Upcoming {
+        private final int token;
+        private final String department;
+        private final Patient.Category category;
+        private final int queueNumber;
+        private final long waitSeconds;
+
+        Upcoming(int token, String department, Patient.Category category, int queueNumber, long waitSeconds) {
+            this.token = token;
+            this.department = department;
+            this.category = category;
+            this.queueNumber = queueNumber;
+            this.waitSeconds = waitSeconds;
+        }
+
+        public int getTokenNumber() { return token; }
+        public String getDepartment() { return department; }
+        public Patient.Category getCategory() { return category; }
+        public int getQueueNumber() { return queueNumber; }
+        public long getWaitSeconds() { return waitSeconds; }
+    }
+
+    /** A desk that is serving someone. */
+    public static final class Serving {
+        private final int desk;
+        private final String department;
+        private final int token;
+        private final long remainingSeconds;
+
+        Serving(int desk, String department, int token, long remainingSeconds) {
+            this.desk = desk;
+            this.department = department;
+            this.token = token;
+            this.remainingSeconds = remainingSeconds;
+        }
+
+        public int getDesk() { return desk; }
+        public String getDepartment() { return department; }
+        public int getTokenNumber() { return token; }
+        /** Seconds until the desk's expected finish, overruns included. */
+        public long getRemainingSeconds() { return remainingSeconds; }
+    }
+
+    private static final class Waiting {
+        final int token, department, category, expected;
+        final long sortKey;
+
+        Waiting(DataInputStream in) throws IOException {
+            this.token = in.readInt();
+            this.department = in.readUnsignedByte();
+            this.category = in.readUnsignedByte();
+            this.expected = in.readUnsignedShort();
+            this.sortKey = in.readLong();
+        }
+    }
+
+    // Patient.PRIORITY_ORDER on the wire values: sort key, then token
+    private static final Comparator<Waiting> ORDER =
+            Comparator.<Waiting>comparingLong(w -> w.sortKey).thenComparingInt(w -> w.token);
+    private static final Patient.Category[] CATEGORIES = Patient.Category.values();
+
+    private final SocketAddress address;
+    private final Thread reader;
+    private volatile boolean open = true;
+    private volatile SocketChannel channel;
+
+    // Replica state, guarded by this
+    private String[] departments = new String[0];
+    private int[] departmentDesks = new int[0];
+    private List<TreeSet<Waiting>> lines = new ArrayList<>();
+    private final Map<Integer, Waiting> byToken = new HashMap<>();
+    private int[] deskDepartment = new int[1];
+    private boolean[] deskEmergencyOnly = new boolean[1];
+    private int[] departmentGeneralDesks = new int[0]; // desks that call more than Emergency patients
+    private int[] deskToken = new int[1];
+    private long[] deskDeadline = new long[1];
+    private long engineMillisAtTick;
+    private long localNanosAtTick;
+    private double engineRate = 1; // engine millis per local milli, from the last two TICKs
+    private boolean synced;
+
+    private final AtomicLong frames = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong connects = new AtomicLong();
+
+    public BoardReplica(SocketAddress address) {
+        this.address = address;
+        this.reader = new Thread(this::readLoop, "board-replica");
+        reader.setDaemon(true);
+    }
+
+    public BoardReplica start() {
+        reader.start();
+        return this;
+    }
+
+    /** "host:port" for TCP, anything else is a Unix-domain socket path. */
+    public static SocketAddress parseAddress(String text) {
+        int colon = text.lastIndexOf(':');
+        if (colon > 0 && !text.startsWith("/") && text.substring(colon + 1).chars().allMatch(Character::isDigit)) {
+            return new InetSocketAddress(text.substring(0, colon), Integer.parseInt(text.substring(colon + 1)));
+        }
+        return UnixDomainSocketAddress.of(Path.of(text));
+    }
+
+    public long getFrameCount() { return frames.get(); }
+    public long getByteCount() { return bytes.get(); }
+    /** HELLOs received: the first connect plus every reconnect. */
+    public long getConnectCount() { return connects.get(); }
+
+    public synchronized boolean isSynced() {
+        return synced;
+    }
+
+    @Override
+    public void close() {
+        open = false;
+        reader.interrupt();
+        SocketChannel c = channel;
+        if (c != null) {
+            try {
+                c.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    // -------------------- BOARD VIEWS --------------------
+
+    /** Desks serving someone, in desk order. */
+    public synchronized List<Serving> nowServing() {
+        long now = engineNow();
+        List<Serving> out = new ArrayList<>();
+        for (int d = 1; d < deskToken.length; d++) {
+            if (deskToken[d] == 0) continue;
+            out.add(new Serving(d, departments[deskDepartment[d]], deskToken[d],
+                    Math.max(0, (deskDeadline[d] - now + 999) / 1000)));
+        }
+        return out;
+    }
+
+    /** The next n tokens of one department (null: every department, soonest first) with their ETAs. */
+    public synchronized List<Upcoming> next(String department, int n) {
+        long now = engineNow();
+        List<Upcoming> out = new ArrayList<>();
+        for (int dep = 0; dep < departments.length; dep++) {
+            if (department != null && !departments[dep].equalsIgnoreCase(department)) continue;
+            long base = baseWait(dep, false, now);
+            long generalBase = baseWait(dep, true, now);
+            long ahead = 0;
+            int position = 0;
+            for (Waiting w : lines.get(dep)) {
+                if (position == n) break;
+                long wait = CATEGORIES[w.category] == Patient.Category.EMERGENCY
+                        ? (base + ahead) / departmentDesks[dep]
+                        : (generalBase + ahead) / departmentGeneralDesks[dep];
+                out.add(new Upcoming(w.token, departments[dep], CATEGORIES[w.category], ++position, wait));
+                ahead += w.expected;
+            }
+        }
+        if (department == null) {
+            out.sort(Comparator.comparingLong(Upcoming::getWaitSeconds).thenComparingInt(Upcoming::getTokenNumber));
+            if (out.size() > n) out = new ArrayList<>(out.subList(0, n));
+        }
+        return out;
+    }
+
+    /** Every waiting token of a department in calling order. */
+    public synchronized List<Integer> waitingTokens(String department) {
+        List<Integer> out = new ArrayList<>();
+        for (int dep = 0; dep < departments.length; dep++) {
+            if (!departments[dep].equalsIgnoreCase(department)) continue;
+            for (Waiting w : lines.get(dep)) out.add(w.token);
+        }
+        return out;
+    }
+
+    public synchronized int getWaitingCount() {
+        return byToken.size();
+    }
+
+    // Seconds the department's busy desks (or only those not kept for emergencies) still need,
+    // as PatientQueue.baseWait computes it
+    private long baseWait(int department, boolean generalOnly, long now) {
+        long totalMillis = 0;
+        for (int d = 1; d < deskDeadline.length; d++) {
+            if (deskDepartment[d] != department || (generalOnly && deskEmergencyOnly[d])) continue;
+            if (deskDeadline[d] > now) totalMillis += deskDeadline[d] - now;
+        }
+        return (totalMillis + 999) / 1000;
+    }
+
+    private long engineNow() {
+        return engineMillisAtTick + (long) ((System.nanoTime() - localNanosAtTick) / 1e6 * engineRate);
+    }
+
+    // -------------------- STREAM --------------------
+    private void readLoop() {
+        while (open) {
+            try (SocketChannel c = SocketChannel.open(address)) {
+                channel = c;
+                DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(c), 64 * 1024));
+                while (open) apply(in);
+            } catch (IOException e) {
+                synchronized (this) {
+                    synced = false;
+                }
+                if (!open) return;
+                try {
+                    Thread.sleep(2000);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void apply(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        if (type == BoardFeed.HELLO) {
+            hello(in);
+            return;
+        }
+        synchronized (this) {
+            switch (type) {
+                case BoardFeed.ENQUEUE, BoardFeed.UPDATE -> {
+                    Waiting w = new Waiting(in);
+                    remove(w.token);
+                    lines.get(w.department).add(w);
+                    byToken.put(w.token, w);
+                    bytes.addAndGet(1 + BoardFeed.ENTRY_BYTES);
+                }
+                case BoardFeed.REMOVE -> {
+                    remove(in.readInt());
+                    bytes.addAndGet(5);
+                }
+                case BoardFeed.SERVE_START -> {
+                    int desk = in.readUnsignedShort();
+                    deskToken[desk] = in.readInt();
+                    deskDeadline[desk] = in.readLong();
+                    remove(deskToken[desk]);
+                    bytes.addAndGet(15);
+                }
+                case BoardFeed.SERVED -> {
+                    int desk = in.readUnsignedShort();
+                    deskToken[desk] = 0;
+                    deskDeadline[desk] = 0;
+                    bytes.addAndGet(3);
+                }
+                case BoardFeed.SHIFT -> {
+                    int desk = in.readUnsignedShort();
+                    deskDeadline[desk] = in.readLong();
+                    bytes.addAndGet(11);
+                }
+                case BoardFeed.TICK -> {
+                    long engineMillis = in.readLong();
+                    double localMillis = (System.nanoTime() - localNanosAtTick) / 1e6;
+                    if (localMillis > 100) engineRate = (engineMillis - engineMillisAtTick) / localMillis;
+                    tick(engineMillis);
+                    bytes.addAndGet(9);
+                }
+                default -> throw new IOException("Unknown board frame " + type);
+            }
+        }
+        frames.incrementAndGet();
+    }
+
+    private void remove(int token) {
+        Waiting old = byToken.remove(token);
+        if (old != null) lines.get(old.department).remove(old);
+    }
+
+    private void tick(long engineMillis) {
+        engineMillisAtTick = engineMillis;
+        localNanosAtTick = System.nanoTime();
+    }
+
+    // Replaces the whole replica state
+    private void hello(DataInputStream in) throws IOException {
+        int protocol = in.readUnsignedByte();
+        if (protocol != BoardFeed.PROTOCOL) throw new IOException("Unsupported board protocol " + protocol);
+        long engineMillis = in.readLong();
+        long size = 1 + 1 + 8 + 1 + 2 + 4;
+        String[] names = new String[in.readUnsignedByte()];
+        int[] desksPer = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            byte[] name = new byte[in.readUnsignedShort()];
+            in.readFully(name);
+            names[i] = new String(name, StandardCharsets.UTF_8);
+            desksPer[i] = Math.max(1, in.readUnsignedShort());
+            size += 2 + name.length + 2;
+        }
+        int desks = in.readUnsignedShort();
+        int[] department = new int[desks + 1];
+        boolean[] emergencyOnly = new boolean[desks + 1];
+        int[] token = new int[desks + 1];
+        long[] deadline = new long[desks + 1];
+        int[] generalPer = desksPer.clone();
+        for (int d = 1; d <= desks; d++) {
+            department[d] = in.readUnsignedByte();
+            emergencyOnly[d] = in.readUnsignedByte() != 0;
+            token[d] = in.readInt();
+            deadline[d] = in.readLong();
+            if (emergencyOnly[d]) generalPer[department[d]]--;
+        }
+        for (int i = 0; i < generalPer.length; i++) generalPer[i] = Math.max(1, generalPer[i]);
+        int count = in.readInt();
+        List<TreeSet<Waiting>> newLines = new ArrayList<>();
+        for (int i = 0; i < names.length; i++) newLines.add(new TreeSet<>(ORDER));
+        Map<Integer, Waiting> tokens = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            Waiting w = new Waiting(in);
+            newLines.get(w.department).add(w);
+            tokens.put(w.token, w);
+        }
+        synchronized (this) {
+            departments = names;
+            departmentDesks = desksPer;
+            deskDepartment = department;
+            deskEmergencyOnly = emergencyOnly;
+            departmentGeneralDesks = generalPer;
+            deskToken = token;
+            deskDeadline = deadline;
+            lines = newLines;
+            byToken.clear();
+            byToken.putAll(tokens);
+            tick(engineMillis);
+            engineRate = 1;
+            synced = true;
+        }
+        connects.incrementAndGet();
+        frames.incrementAndGet();
+        bytes.addAndGet(size + desks * 14L + count * (long) BoardFeed.ENTRY_BYTES);
+    }
+
+    // -------------------- DISPLAY MODE --------------------
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length == 0) {
+            System.out.println("Usage: BoardReplica host:port|socketPath [department|all] [rows]");
+            return;
+        }
+        String department = args.length > 1 && !args[1].equalsIgnoreCase("all") ? args[1] : null;
+        int rows = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        BoardReplica board = new BoardReplica(parseAddress(args[0])).start();
+        while (true) {
+            StringBuilder screen = new StringBuilder("\033[H\033[2J");
+            screen.append("🏥 ").append(department != null ? department : "All departments").append('\n');
+            if (!board.isSynced()) {
+                screen.append("⏳ Connecting to ").append(args[0]).append(" ...\n");
+            } else {
+                screen.append("\n🔔 NOW SERVING\n");
+                for (Serving s : board.nowServing()) {
+                    if (department != null && !s.getDepartment().equalsIgnoreCase(department)) continue;
+                    screen.append(String.format("   Token %-6d → Desk %d%n", s.getTokenNumber(), s.getDesk()));
+                }
+                screen.append("\n⏭ NEXT\n");
+                for (Upcoming u : board.next(department, rows)) {
+                    screen.append(String.format("   %3d. Token %-6d %-9s ~%02dm %02ds%n", u.getQueueNumber(),
+                            u.getTokenNumber(), u.getCategory(), u.getWaitSeconds() / 60, u.getWaitSeconds() % 60));
+                }
+            }
+            System.out.print(screen);
+            System.out.flush();
+            Thread.sleep(1000);
+        }
+    }
+}
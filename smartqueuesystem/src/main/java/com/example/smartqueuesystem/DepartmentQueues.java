@@ -0,0 +1,161 @@
+package com.example.smartqueuesystem;
+
+import java.util.*;
+
+/**
+ * One independent PatientQueue per department (OPD, pediatrics, cardiology, lab, ...).
+ * Every shard has its own lock, heap, scheduling policy, wait-time index and desk deadlines,
+ * so registrations and desk polls in different departments never contend with each other.
+ *
+ * Views across departments never hold more than one shard lock at a time: totals and the
+ * work-stealing choice read each queue's lock-free size, and snapshots lock the shards one
+ * after another (so they are per-department consistent, not one global instant).
+ *
+ * Configured with -Dsmartqueue.departments=OPD:3,Pediatrics:2,Cardiology:1,Lab:1 (name:desks);
+ * unset, there is a single OPD department with every desk.
+ */
+public class DepartmentQueues implements Iterable<DepartmentQueues.Shard> {
+
+    public static final String DEFAULT_DEPARTMENT = "OPD";
+
+    /** One department: its queue and how many desks call from it first. */
+    public static final class Shard {
+        private final String name;
+        private final int index;
+        private final PatientQueue queue;
+        private final int desks;
+
+        Shard(String name, int index, PatientQueue queue, int desks) {
+            this.name = name;
+            this.index = index;
+            this.queue = queue;
+            this.desks = desks;
+            queue.setServers(desks);
+        }
+
+        public String getName() { return name; }
+        public int getIndex() { return index; }
+        public PatientQueue getQueue() { return queue; }
+        public int getDesks() { return desks; }
+
+        // Waiting patients per home desk, read without the shard's lock
+        double pressure() {
+            return queue.approximateSize() / (double) desks;
+        }
+
+        @Override
+        public String toString() { return name; }
+    }
+
+    private final Shard[] shards;
+    private final Map<String, Shard> byName = new HashMap<>();
+
+    /** Departments in the given order, each with its own PatientQueue from the factory. */
+    public DepartmentQueues(LinkedHashMap<String, Integer> desksByDepartment, QueueFactory factory) {
+        if (desksByDepartment.isEmpty()) throw new IllegalArgumentException("No departments");
+        shards = new Shard[desksByDepartment.size()];
+        int i = 0;
+        for (Map.Entry<String, Integer> e : desksByDepartment.entrySet()) {
+            shards[i] = new Shard(e.getKey(), i, factory.create(e.getKey()), Math.max(1, e.getValue()));
+            byName.put(e.getKey().toLowerCase(Locale.ROOT), shards[i]);
+            i++;
+        }
+    }
+
+    /** Supplies each department's queue, e.g. with its own SchedulingPolicy instance. */
+    public interface QueueFactory {
+        PatientQueue create(String department);
+    }
+
+    /** A single department around an existing queue: the layout before sharding. */
+    public static DepartmentQueues single(PatientQueue queue, int desks) {
+        LinkedHashMap<String, Integer> one = new LinkedHashMap<>();
+        one.put(DEFAULT_DEPARTMENT, desks);
+        return new DepartmentQueues(one, name -> queue);
+    }
+
+    /** Departments from smartqueue.departments, or one OPD with smartqueue.desks desks. */
+    public static DepartmentQueues configured(QueueClock clock) {
+        return new DepartmentQueues(parse(System.getProperty("smartqueue.departments"),
+                Integer.getInteger("smartqueue.desks", 1)),
+                name -> new PatientQueue(16, Patient.PRIORITY_ORDER, clock));
+    }
+
+    // "OPD:3,Lab:1" -> {OPD=3, Lab=1}; a name without ":n" gets one desk
+    static LinkedHashMap<String, Integer> parse(String spec, int defaultDesks) {
+        LinkedHashMap<String, Integer> out = new LinkedHashMap<>();
+        if (spec == null || spec.isBlank()) {
+            out.put(DEFAULT_DEPARTMENT, defaultDesks);
+            return out;
+        }
+        for (String part : spec.split(",")) {
+            String[] kv = part.trim().split(":");
+            if (kv[0].isBlank()) continue;
+            out.put(kv[0].trim(), kv.length > 1 ? Integer.parseInt(kv[1].trim()) : 1);
+        }
+        return out;
+    }
+
+    // -------------------- ROUTING --------------------
+    /** The department's shard; unknown or missing departments go to the first one. */
+    public Shard shardOf(String department) {
+        Shard s = department == null ? null : byName.get(department.toLowerCase(Locale.ROOT));
+        return s != null ? s : shards[0];
+    }
+
+    public Shard shardOf(Patient p) {
+        return shardOf(p.getDepartment());
+    }
+
+    public Shard get(int index) {
+        return shards[index];
+    }
+
+    public int size() {
+        return shards.length;
+    }
+
+    public int totalDesks() {
+        int n = 0;
+        for (Shard s : shards) n += s.desks;
+        return n;
+    }
+
+    @Override
+    public Iterator<Shard> iterator() {
+        return Arrays.asList(shards).iterator();
+    }
+
+    // -------------------- AGGREGATE VIEWS --------------------
+    /** Patients waiting in every department; lock-free, so possibly a moment stale. */
+    public int totalWaiting() {
+        int n = 0;
+        for (Shard s : shards) n += s.queue.approximateSize();
+        return n;
+    }
+
+    /**
+     * Where an idle desk of home should help: the other department with the most waiting
+     * patients per home desk, or null when nobody else has anyone waiting. Lock-free.
+     */
+    Shard stealTarget(Shard home) {
+        Shard best = null;
+        double bestPressure = 0;
+        for (Shard s : shards) {
+            if (s == home) continue;
+            double p = s.pressure();
+            if (p > bestPressure) {
+                best = s;
+                bestPressure = p;
+            }
+        }
+        return best;
+    }
+
+    /** Each department's patients in serving order, taking one shard lock at a time. */
+    public Map<String, List<Patient>> orderedSnapshots() {
+        Map<String, List<Patient>> out = new LinkedHashMap<>();
+        for (Shard s : shards) out.put(s.name, s.queue.orderedSnapshot());
+        return out;
+    }
+}
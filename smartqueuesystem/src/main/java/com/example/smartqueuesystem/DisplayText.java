@@ -0,0 +1,118 @@
+package com.example.smartqueuesystem;
+
+import java.time.LocalTime;
+
+/**
+ * Text for list rows, the desk panel and details without formatting garbage on every redraw.
+ *
+ * Wait times ("04m 05s") under 100 minutes and clock times ("09:41:07") are shared strings from
+ * tables filled on first use, so a ticking row costs a table lookup instead of a String.format
+ * or a DateTimeFormatter run. Whole rows are appended into a StringBuilder the caller keeps and
+ * reuses; same() lets a cell skip setText when the row reads as it already does.
+ * Tables are filled racily on purpose: two threads may build the same string, either copy is fine.
+ */
+public final class DisplayText {
+
+    private static final int CACHED_WAITS = 100 * 60;
+    private static final String[] WAITS = new String[CACHED_WAITS];
+    private static final String[][] CLOCKS = new String[24][]; // per hour, 3600 seconds each
+
+    private DisplayText() {
+    }
+
+    // -------------------- TIMES --------------------
+
+    /** "mm'm' ss's'", e.g. 04m 05s; minutes keep growing past 99 like String.format did. */
+    public static String waitTime(long seconds) {
+        if (seconds < 0 || seconds >= CACHED_WAITS) return appendWait(new StringBuilder(12), seconds).toString();
+        String s = WAITS[(int) seconds];
+        if (s == null) {
+            s = appendWait(new StringBuilder(8), seconds).toString();
+            WAITS[(int) seconds] = s;
+        }
+        return s;
+    }
+
+    public static StringBuilder appendWait(StringBuilder sb, long seconds) {
+        if (seconds < 0) {
+            sb.append('-');
+            seconds = -seconds;
+        }
+        return twoDigits(twoDigits(sb, seconds / 60).append("m "), seconds % 60).append('s');
+    }
+
+    /** HH:mm:ss of a time of day, or "Pending" for null (not served yet). */
+    public static String clock(LocalTime time) {
+        return time == null ? "Pending" : clockOfSecond(time.toSecondOfDay());
+    }
+
+    /** HH:mm:ss of a nano-of-day, without building a LocalTime. */
+    public static String clockOfNanos(long nanoOfDay) {
+        return clockOfSecond((int) (nanoOfDay / 1_000_000_000L));
+    }
+
+    private static String clockOfSecond(int secondOfDay) {
+        int hour = secondOfDay / 3600;
+        String[] table = CLOCKS[hour];
+        if (table == null) {
+            table = new String[3600];
+            CLOCKS[hour] = table;
+        }
+        int rest = secondOfDay % 3600;
+        String s = table[rest];
+        if (s == null) {
+            StringBuilder sb = new StringBuilder(8);
+            twoDigits(twoDigits(twoDigits(sb, hour).append(':'), rest / 60).append(':'), rest % 60);
+            s = sb.toString();
+            table[rest] = s;
+        }
+        return s;
+    }
+
+    // Zero-padded to two digits, more if the value needs them
+    private static StringBuilder twoDigits(StringBuilder sb, long value) {
+        if (value < 10) sb.append('0');
+        return sb.append(value);
+    }
+
+    // -------------------- ROWS --------------------
+
+    /** Waiting list row: "[Dept ]Q3 | Token 12 | Name | Senior | ⏱ 04m 05s", "…" while not in the snapshot yet. */
+    public static StringBuilder waitingRow(StringBuilder sb, Patient p, QueueSnapshot.Row row, boolean showDepartment) {
+        sb.setLength(0);
+        if (showDepartment) sb.append(p.getDepartment()).append(' ');
+        sb.append('Q');
+        if (row != null) sb.append(row.getQueueNumber()); else sb.append('…');
+        sb.append(" | ").append(p.getLabel()).append(" | ⏱ ");
+        return sb.append(row != null ? row.getFormattedWaitTime() : "…");
+    }
+
+    /** Served list row: "Token 12 | Name | Served ✅ at 09:41:07". */
+    public static StringBuilder servedRow(StringBuilder sb, PatientView p) {
+        sb.setLength(0);
+        return sb.append("Token ").append(p.getTokenNumber()).append(" | ").append(p.getName())
+                .append(" | Served ✅ at ").append(p.getServedTimeString());
+    }
+
+    /** One busy desk of the serving panel; the header only when there are several desks. */
+    public static StringBuilder deskPanel(StringBuilder sb, QueueSnapshot.Desk d, boolean several, boolean departments) {
+        QueueSnapshot.Row p = d.getServing();
+        if (several) {
+            sb.append("🏥 Desk ").append(d.getNumber());
+            if (departments) sb.append(' ').append(d.getDepartment());
+            if (d.isEmergencyOnly()) sb.append(" (Emergency)");
+            sb.append('\n');
+        }
+        return sb.append("👤 ").append(p.getName()).append(" (").append(p.getCategory()).append(")\n")
+                .append("Token: ").append(p.getTokenNumber()).append('\n')
+                .append("Expected Duration: ").append(d.getExpected()).append("s\n")
+                .append("Elapsed: ").append(d.getElapsed()).append("s\n")
+                .append("Remaining: ").append(Math.max(0, d.getExpected() - d.getElapsed())).append("s\n")
+                .append("Status: Serving...");
+    }
+
+    /** True when a control already shows exactly this text, so setText (and its String) can be skipped. */
+    public static boolean same(String shown, CharSequence text) {
+        return shown != null && shown.contentEquals(text);
+    }
+}
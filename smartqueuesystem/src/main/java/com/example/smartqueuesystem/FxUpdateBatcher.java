@@ -0,0 +1,213 @@
+package com.example.smartqueuesystem;
+
+import javafx.animation.AnimationTimer;
+import javafx.collections.ObservableList;
+import javafx.scene.control.ListView;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToIntFunction;
+
+/**
+ * Coalesces engine state changes into at most one UI update per JavaFX pulse.
+ * Engine threads only record what changed; an AnimationTimer applies it on the FX thread:
+ *  - keyed updates (status text, one desk's panel, details) keep only the latest value per key,
+ *  - waiting-list changes are netted per patient and applied as single inserts, removes or moves
+ *    at their sorted position instead of setAll,
+ *  - a policy change, which re-keys everyone, re-sorts the list once,
+ *  - any number of wait-time changes cost one refresh of the visible rows.
+ * getMergedCount() reports how many submitted updates never needed their own pass.
+ *
+ * The list is kept in snapshot order: by department, then by sort key and token within it (keys
+ * of different departments' policies are not comparable). Keys change on the engine's threads, so
+ * each listed patient's key is recorded when it is placed and the list is searched by those; a
+ * move is found at its old key and placed at its new one.
+ * Kiosk and import threads add patients off the FX thread, so a desk can call one and its remove
+ * reach a frame before its add; that add is dropped when it arrives.
+ */
+public class FxUpdateBatcher {
+
+    private enum Kind { ADD, REMOVE, MOVE }
+
+    private static final class ListOp {
+        final Kind kind;
+        final Patient patient;
+
+        ListOp(Kind kind, Patient patient) {
+            this.kind = kind;
+            this.patient = patient;
+        }
+    }
+
+    private final ObservableList<Patient> waitingPatients;
+    private final ListView<Patient> waitingList;
+    private final ToIntFunction<Patient> department;
+    private final Map<Patient, Long> placedKeys = new HashMap<>(); // FX thread only
+    private final Set<Patient> goneBeforePlaced = new HashSet<>();  // FX thread only
+    private final Comparator<Patient> order;
+
+    private final Map<Object, Runnable> latest = new ConcurrentHashMap<>();
+    private final Queue<ListOp> waitingOps = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean waitTimesDirty = new AtomicBoolean();
+    private final AtomicBoolean reordered = new AtomicBoolean();
+    private final AtomicBoolean pending = new AtomicBoolean();
+    private volatile long pendingSince;           // nanoTime of the first update since the last frame
+    private final LatencyHistogram lag = new LatencyHistogram();
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong merged = new AtomicLong();
+    private final AtomicLong frames = new AtomicLong();
+
+    private final AnimationTimer pulse = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            if (pending.getAndSet(false)) {
+                lag.record(System.nanoTime() - pendingSince);
+                applyFrame();
+            }
+        }
+    };
+
+    public FxUpdateBatcher(ObservableList<Patient> waitingPatients, ListView<Patient> waitingList,
+                           ToIntFunction<Patient> department) {
+        this.waitingPatients = waitingPatients;
+        this.waitingList = waitingList;
+        this.department = department;
+        this.order = Comparator.comparingInt(department)
+                .thenComparingLong(p -> placedKeys.get(p))
+                .thenComparingInt(Patient::getTokenNumber);
+    }
+
+    public void start() {
+        pulse.start();
+    }
+
+    public void stop() {
+        pulse.stop();
+    }
+
+    // -------------------- PRODUCER SIDE (any thread) --------------------
+
+    /** Runs update on the next pulse; an older update still pending under the same key is dropped. */
+    public void post(Object key, Runnable update) {
+        submitted.incrementAndGet();
+        if (latest.put(key, update) != null) merged.incrementAndGet();
+        markPending();
+    }
+
+    public void waitingAdded(Patient p) {
+        queueOp(new ListOp(Kind.ADD, p));
+    }
+
+    public void waitingRemoved(Patient p) {
+        queueOp(new ListOp(Kind.REMOVE, p));
+    }
+
+    /** The patient's sort position may have changed (e.g. category or expected time edited). */
+    public void waitingMoved(Patient p) {
+        queueOp(new ListOp(Kind.MOVE, p));
+    }
+
+    /** Every waiting patient may have a new sort key (the scheduling policy changed). */
+    public void waitingReordered() {
+        submitted.incrementAndGet();
+        if (reordered.getAndSet(true)) merged.incrementAndGet();
+        markPending();
+    }
+
+    public void waitTimesChanged() {
+        submitted.incrementAndGet();
+        if (waitTimesDirty.getAndSet(true)) merged.incrementAndGet();
+        markPending();
+    }
+
+    private void queueOp(ListOp op) {
+        submitted.incrementAndGet();
+        waitingOps.add(op);
+        markPending();
+    }
+
+    private void markPending() {
+        if (!pending.getAndSet(true)) pendingSince = System.nanoTime();
+    }
+
+    // -------------------- STATISTICS --------------------
+    public long getSubmittedCount() { return submitted.get(); }
+    public long getMergedCount() { return merged.get(); }
+    public long getFrameCount() { return frames.get(); }
+
+    /** Nanoseconds from the first engine update after a frame to the pulse that applied it. */
+    public LatencyHistogram getLag() { return lag; }
+
+    // -------------------- FX THREAD --------------------
+    private void applyFrame() {
+        frames.incrementAndGet();
+        applyWaitingOps();
+
+        for (Object key : latest.keySet()) {
+            Runnable r = latest.remove(key);
+            if (r != null) r.run();
+        }
+
+        if (waitTimesDirty.getAndSet(false)) waitingList.refresh();
+    }
+
+    // Net each patient's adds/removes in this frame so an add+remove pair never touches the list
+    private void applyWaitingOps() {
+        Map<Patient, Integer> net = new LinkedHashMap<>();
+        Set<Patient> moved = new HashSet<>();
+        int ops = 0;
+        for (ListOp op; (op = waitingOps.poll()) != null; ops++) {
+            switch (op.kind) {
+                case ADD -> net.merge(op.patient, 1, Integer::sum);
+                case REMOVE -> net.merge(op.patient, -1, Integer::sum);
+                case MOVE -> moved.add(op.patient);
+            }
+        }
+        int applied = 0;
+        for (Map.Entry<Patient, Integer> e : net.entrySet()) {
+            int n = e.getValue();
+            if (n > 0) {
+                if (!goneBeforePlaced.remove(e.getKey())) insertSorted(e.getKey()); // else already called or cancelled
+                applied++;
+            } else if (n < 0) {
+                if (!removeSorted(e.getKey())) goneBeforePlaced.add(e.getKey());
+                applied++;
+            }
+        }
+        for (Patient p : moved) {
+            if (net.getOrDefault(p, 0) != 0) continue; // already placed by this frame's add/remove
+            if (removeSorted(p)) insertSorted(p);
+            applied++;
+        }
+        merged.addAndGet(ops - applied);
+        if (reordered.getAndSet(false)) resort();
+    }
+
+    private void insertSorted(Patient p) {
+        placedKeys.put(p, p.getSortKey());
+        int index = Collections.binarySearch(waitingPatients, p, order);
+        waitingPatients.add(index < 0 ? -index - 1 : index, p);
+    }
+
+    // Searches at the key p was placed with, so it is found even if it has been re-keyed since
+    private boolean removeSorted(Patient p) {
+        if (!placedKeys.containsKey(p)) return false;
+        int index = Collections.binarySearch(waitingPatients, p, order);
+        placedKeys.remove(p);
+        if (index < 0) return false;
+        waitingPatients.remove(index);
+        return true;
+    }
+
+    // Takes everyone's current key and sorts once: one list change instead of a move per patient
+    private void resort() {
+        List<Patient> all = new ArrayList<>(waitingPatients);
+        for (Patient p : all) placedKeys.put(p, p.getSortKey());
+        all.sort(order);
+        waitingPatients.setAll(all);
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.smartqueuesystem;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Runs the queue engine without JavaFX, for kiosk back-end boxes.
+ * Reads commands from standard input, one per line:
+ *   name,age,sex,category[,department]   register a patient
+ *   cancel TOKEN [reason]   take a waiting patient off the queue (default reason: no-show)
+ *   escalate TOKEN          move a waiting patient to Emergency
+ *   expected TOKEN SECONDS  change a waiting patient's expected serve time
+ *   start                   start serving
+ *   status                  desks and the first waiting patients per department, from the latest snapshot
+ *   import [FILE]           bulk-load a CSV or .bin patient list (default data/patients_log.txt)
+ *   export [FILE]           write the waiting queue in serving order (default data/patients_log.txt)
+ *   export-served [FILE]    write the served history as CSV (default data/served_log.txt)
+ *   quit                    stop and exit
+ * At end of input the server keeps serving until the queue is empty.
+ * With -Dsmartqueue.kiosk.port=8080 kiosks can also register over HTTP (see KioskServer), and
+ * -Dsmartqueue.import=FILE loads a pre-booked list at startup (see PatientTransfer).
+ *
+ * Run with: java -cp target/classes com.example.smartqueuesystem.HeadlessServer
+ */
+public class HeadlessServer {
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        // Kiosk replies need TCP_NODELAY; the JDK reads this once, before the first HttpServer (metrics or kiosk)
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) System.setProperty("sun.net.httpserver.nodelay", "true");
+        QueueManager manager = QueueManager.configured();
+        ServedHistory history = ServedHistory.open();
+        manager.addListener(history);
+        manager.addListener(new ConsoleListener());
+        QueueMetrics metrics = new QueueMetrics(manager);
+        manager.addListener(metrics);
+        metrics.startEndpointIfConfigured();
+        QueueJournal.attach(manager);
+        KioskServer.startIfConfigured(manager);
+        BoardFeed.startIfConfigured(manager);
+        PatientTransfer.importIfConfigured(manager);
+
+        System.out.println("🏥 Smart Queue headless server (" + manager.getDeskCount() + " desk(s), "
+                + manager.getDepartments().size() + " department(s))");
+
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        Thread serving = null;
+        boolean quit = false;
+        String line;
+        while ((line = in.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty()) continue;
+            if (line.equalsIgnoreCase("quit")) {
+                quit = true;
+                break;
+            }
+            if (line.equalsIgnoreCase("start")) {
+                if (manager.isRunning() || manager.getDepartments().totalWaiting() == 0) {
+                    System.out.println("⚠ Queue already running or empty");
+                } else {
+                    serving = new Thread(manager, "queue-manager");
+                    serving.setDaemon(true);
+                    serving.start();
+                }
+                continue;
+            }
+            if (line.equalsIgnoreCase("status")) {
+                printStatus(manager.snapshot());
+                continue;
+            }
+            String command = line.split("\\s+", 2)[0].toLowerCase();
+            if (command.equals("import") || command.equals("export") || command.equals("export-served")) {
+                transfer(manager, history, line);
+                continue;
+            }
+            if (Character.isLetter(line.charAt(0)) && !line.contains(",")) {
+                edit(manager, line);
+                continue;
+            }
+
+            String[] parts = line.split(",");
+            if (parts.length != 4 && parts.length != 5) {
+                System.out.println("⚠ Expected name,age,sex,category[,department]");
+                continue;
+            }
+            try {
+                Patient p = new Patient(parts[0].trim(), Integer.parseInt(parts[1].trim()),
+                        parts[2].trim(), parts[3].trim());
+                if (parts.length == 5) p.setDepartment(parts[4].trim());
+                manager.addPatient(p);
+            } catch (NumberFormatException e) {
+                System.out.println("⚠ Invalid age input");
+            }
+        }
+
+        if (quit) manager.stop();
+        else if (serving != null) serving.join();
+        history.close();
+        LogWriter.getDefault().close();
+    }
+
+    // cancel / escalate / expected commands on a waiting patient's handle
+    private static void edit(QueueManager manager, String line) {
+        String[] words = line.split("\\s+", 3);
+        if (words.length < 2) {
+            System.out.println("⚠ Unknown command: " + line);
+            return;
+        }
+        try {
+            QueueHandle handle = manager.handle(Integer.parseInt(words[1]));
+            if (handle == null) {
+                System.out.println("⚠ Token " + words[1] + " is not waiting");
+                return;
+            }
+            boolean done = switch (words[0].toLowerCase()) {
+                case "cancel" -> handle.cancel(words.length > 2 ? words[2] : "no-show");
+                case "escalate" -> handle.escalate();
+                case "expected" -> words.length > 2 && handle.updateExpectedServeTime(Long.parseLong(words[2].trim()));
+                default -> {
+                    System.out.println("⚠ Unknown command: " + line);
+                    yield true;
+                }
+            };
+            if (!done) System.out.println("⚠ Token " + words[1] + " was not changed");
+        } catch (NumberFormatException e) {
+            System.out.println("⚠ Expected a token number and seconds");
+        }
+    }
+
+    // import / export / export-served, each with an optional file in place of the data directory default
+    private static void transfer(QueueManager manager, ServedHistory history, String line) {
+        String[] words = line.split("\\s+", 2);
+        String command = words[0].toLowerCase();
+        Path file = words.length > 1 ? Path.of(words[1].trim())
+                : PatientTransfer.defaultFile(command.equals("export-served") ? PatientTransfer.SERVED_FILE : PatientTransfer.PATIENTS_FILE);
+        try {
+            switch (command) {
+                case "import" -> {
+                    PatientTransfer.Result r = PatientTransfer.importFile(manager, file);
+                    System.out.println("📥 " + file + ": " + r);
+                    for (String e : r.getErrors()) System.out.println("   ⚠ " + e);
+                }
+                case "export" -> System.out.println("📤 " + PatientTransfer.exportWaiting(manager, file) + " waiting written to " + file);
+                default -> System.out.println("📤 " + PatientTransfer.exportServed(history, file) + " served written to " + file);
+            }
+        } catch (IOException e) {
+            System.out.println("⚠ " + command + " failed: " + e);
+        }
+    }
+
+    // Reads only the immutable snapshot, so it never holds up the desks
+    private static void printStatus(QueueSnapshot s) {
+        System.out.println("📋 Snapshot v" + s.getVersion() + " | " + (s.isRunning() ? "running" : "stopped")
+                + " | served " + s.getServed() + " | waiting " + s.getWaitingCount());
+        for (QueueSnapshot.Desk d : s.getDesks()) {
+            System.out.println("   Desk " + d.getNumber() + " (" + d.getDepartment() + "): " + (d.isIdle() ? "idle"
+                    : d.getServing() + " " + d.getElapsed() + "s / " + d.getExpected() + "s"));
+        }
+        for (QueueSnapshot.Department dep : s.getDepartments()) {
+            List<QueueSnapshot.Row> waiting = dep.getWaiting();
+            System.out.println("   " + dep.getName() + ": " + waiting.size() + " waiting");
+            for (QueueSnapshot.Row r : waiting.subList(0, Math.min(10, waiting.size()))) {
+                System.out.println("     Q" + r.getQueueNumber() + " | Token " + r.getTokenNumber() + " | " + r
+                        + " | ⏱ " + r.getFormattedWaitTime());
+            }
+        }
+    }
+
+    // Prints engine events to standard output
+    private static class ConsoleListener implements QueueListener {
+        @Override
+        public void onPatientAdded(Patient p) {
+            System.out.println("✅ Added " + p + " | Token " + p.getTokenNumber());
+        }
+
+        @Override
+        public void onPatientCancelled(Patient p, String reason) {
+            System.out.println("❌ Cancelled " + p + " | Token " + p.getTokenNumber() + " (" + reason + ")");
+        }
+
+        @Override
+        public void onPatientUpdated(Patient p, Patient.Category previousCategory, long previousExpected) {
+            System.out.println("✏ Updated " + p + " | Token " + p.getTokenNumber() + " | " + p.getCategory()
+                    + ", expected " + p.getExpectedServeTime() + "s");
+        }
+
+        @Override
+        public void onServingStarted(int desk, Patient p, long expected) {
+            System.out.println("🩺 Desk " + desk + " serving " + p + " (expected " + expected + "s)");
+        }
+
+        @Override
+        public void onServed(int desk, Patient p) {
+            System.out.println("✅ Desk " + desk + " served " + p + " at " + p.getServedTimeString());
+        }
+
+        @Override
+        public void onQueueCompleted(long totalServed, long totalServeTime) {
+            System.out.println("🎉 Queue complete! Served " + totalServed + " in " + totalServeTime + "s");
+        }
+    }
+}
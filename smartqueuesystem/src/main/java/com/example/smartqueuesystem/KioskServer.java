@@ -0,0 +1,175 @@
+package com.example.smartqueuesystem;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Local HTTP API for registration kiosks and the triage desk, on the JDK's built-in
+ * HttpServer with one virtual thread per request.
+ *
+ *   POST /patients   one registration per line: name,age,sex,category[,expectedSeconds[,department]]
+ *                    A single line or a whole batch; all lines are validated before any is queued,
+ *                    and an unknown department is a 400 like any other bad field.
+ *                    202 with the token numbers, one per line, in request order.
+ *   GET  /stats      submitted / ingested / rejected counts, waiting size and request latency percentiles
+ *
+ * Requests only parse and hand patients to a RegistrationIngestor, so handlers never
+ * contend on the priority queue. Started by the UI and the headless server when
+ * -Dsmartqueue.kiosk.port is set (bind address: smartqueue.kiosk.host, default 127.0.0.1).
+ *
+ * Needs -Dsun.net.httpserver.nodelay=true: without TCP_NODELAY small replies sit behind delayed
+ * ACKs, ~45 ms per request instead of ~3 ms. The JDK reads it once, when the process's first
+ * HttpServer starts (the metrics endpoint may be that one), so it belongs on the command line or
+ * at the top of main, not here; HeadlessServer and the javafx:run configuration set it.
+ * Single-line posts reach about 4k registrations/s on one core; 10k/s takes batched posts.
+ */
+public class KioskServer implements AutoCloseable {
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final RegistrationIngestor ingestor;
+    private final QueueManager manager;
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    public KioskServer(QueueManager manager, String host, int port) throws IOException {
+        this.manager = manager;
+        this.ingestor = new RegistrationIngestor(manager);
+        this.server = HttpServer.create(new InetSocketAddress(host, port), 1024);
+        server.createContext("/patients", this::register);
+        server.createContext("/stats", this::stats);
+        server.setExecutor(executor);
+    }
+
+    /** Starts a kiosk server for manager when smartqueue.kiosk.port is set, otherwise returns null. */
+    public static KioskServer startIfConfigured(QueueManager manager) {
+        Integer port = Integer.getInteger("smartqueue.kiosk.port");
+        if (port == null) return null;
+        if (!Boolean.getBoolean("sun.net.httpserver.nodelay")) {
+            System.err.println("⚠ Kiosk API without -Dsun.net.httpserver.nodelay=true: replies will wait on delayed ACKs");
+        }
+        try {
+            KioskServer kiosk = new KioskServer(manager, System.getProperty("smartqueue.kiosk.host", "127.0.0.1"), port);
+            kiosk.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(kiosk::close, "kiosk-shutdown"));
+            System.out.println("🖥 Kiosk API listening on port " + kiosk.getPort());
+            return kiosk;
+        } catch (IOException e) {
+            System.err.println("⚠ Kiosk API not started: " + e.getMessage());
+            return null;
+        }
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public RegistrationIngestor getIngestor() {
+        return ingestor;
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    // -------------------- HANDLERS --------------------
+    private void register(HttpExchange exchange) throws IOException {
+        long start = System.nanoTime();
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                reply(exchange, 405, "Use POST\n");
+                return;
+            }
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            List<Patient> batch = new ArrayList<>();
+            StringBuilder errors = new StringBuilder();
+            int lineNo = 0;
+            for (String line : body.split("\n")) {
+                lineNo++;
+                line = line.trim();
+                if (line.isEmpty()) continue;
+                String error = validate(line, manager.getDepartments());
+                if (error != null) errors.append("line ").append(lineNo).append(": ").append(error).append('\n');
+                else if (errors.length() == 0) batch.add(parse(line));
+            }
+            if (errors.length() > 0 || batch.isEmpty()) {
+                reply(exchange, 400, errors.length() > 0 ? errors.toString() : "No registrations\n");
+                return;
+            }
+
+            ingestor.submitAll(batch);
+            StringBuilder tokens = new StringBuilder(batch.size() * 6);
+            for (Patient p : batch) tokens.append(p.getTokenNumber()).append('\n');
+            reply(exchange, 202, tokens.toString());
+        } finally {
+            latency.record(System.nanoTime() - start);
+        }
+    }
+
+    private void stats(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            reply(exchange, 200, String.format(
+                    "submitted %d%ningested %d%nrejected %d%nbatches %d%nwaiting %d%nlatency_p50_us %.1f%nlatency_p99_us %.1f%n",
+                    ingestor.getSubmittedCount(), ingestor.getIngestedCount(), ingestor.getRejectedCount(), ingestor.getBatchCount(),
+                    manager.getDepartments().totalWaiting(), latency.percentile(50) / 1e3, latency.percentile(99) / 1e3));
+        }
+    }
+
+    private static void reply(HttpExchange exchange, int status, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    // -------------------- PARSING --------------------
+    // Same fields and checks as the registration form; departments must exist, as on import
+    private static String validate(String line, DepartmentQueues departments) {
+        String[] parts = line.split(",");
+        if (parts.length < 4 || parts.length > 6) return "expected name,age,sex,category[,expectedSeconds[,department]]";
+        if (parts[0].trim().isEmpty() || parts[2].trim().isEmpty() || parts[3].trim().isEmpty()) return "empty field";
+        try {
+            int age = Integer.parseInt(parts[1].trim());
+            if (age < 0 || age > 130) return "invalid age";
+            if (parts.length >= 5 && Long.parseLong(parts[4].trim()) <= 0) return "invalid expected time";
+        } catch (NumberFormatException e) {
+            return "invalid number";
+        }
+        if (parts.length == 6) {
+            String department = parts[5].trim();
+            if (!department.isEmpty() && !departments.shardOf(department).getName().equalsIgnoreCase(department)) {
+                return "unknown department " + department;
+            }
+        }
+        return null;
+    }
+
+    private static Patient parse(String line) {
+        String[] parts = line.split(",");
+        Patient p = new Patient(parts[0].trim(), Integer.parseInt(parts[1].trim()), parts[2].trim(), parts[3].trim());
+        if (parts.length >= 5) p.setExpectedServeTime(Long.parseLong(parts[4].trim()));
+        if (parts.length == 6) p.setDepartment(parts[5].trim());
+        return p;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        ingestor.close();
+        executor.close();
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.smartqueuesystem;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free, allocation-free histogram of non-negative values (typically nanoseconds).
+ * Log-linear buckets: exact below 16, then 16 sub-buckets per power of two, so every
+ * reported percentile is within about 6% of the true value across the whole long range.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BITS = 4;
+    private static final int SUB = 1 << SUB_BITS;
+    private static final int BUCKETS = SUB + (63 - SUB_BITS) * SUB;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+
+    public void record(long value) {
+        long v = Math.max(0, value);
+        counts.incrementAndGet(bucket(v));
+        total.incrementAndGet();
+        sum.addAndGet(v);
+    }
+
+    public long count() {
+        return total.get();
+    }
+
+    public long sum() {
+        return sum.get();
+    }
+
+    public double mean() {
+        long n = total.get();
+        return n > 0 ? (double) sum.get() / n : 0;
+    }
+
+    /** Upper bound of the bucket holding the pct-th percentile (0-100), or 0 when empty. */
+    public long percentile(double pct) {
+        long n = 0;
+        for (int i = 0; i < BUCKETS; i++) n += counts.get(i); // buckets, not total: consistent with the walk
+        if (n == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(pct / 100.0 * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) return upperBound(i);
+        }
+        return upperBound(BUCKETS - 1);
+    }
+
+    /** Adds every value recorded in other to this histogram. */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            long c = other.counts.get(i);
+            if (c != 0) counts.addAndGet(i, c);
+        }
+        total.addAndGet(other.total.get());
+        sum.addAndGet(other.sum.get());
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) counts.set(i, 0);
+        total.set(0);
+        sum.set(0);
+    }
+
+    static int bucket(long v) {
+        if (v < SUB) return (int) v;
+        int msb = 63 - Long.numberOfLeadingZeros(v);
+        int sub = (int) (v >>> (msb - SUB_BITS)) & (SUB - 1);
+        return SUB + (msb - SUB_BITS) * SUB + sub;
+    }
+
+    static long upperBound(int bucket) {
+        if (bucket < SUB) return bucket;
+        int shift = (bucket - SUB) / SUB;
+        int sub = (bucket - SUB) % SUB;
+        return ((long) (SUB + sub + 1) << shift) - 1;
+    }
+}
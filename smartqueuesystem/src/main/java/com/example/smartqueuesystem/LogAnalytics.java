@@ -0,0 +1,682 @@
+package com.example.smartqueuesystem;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Report engine over the queue_log*.txt history (the active file and every rolled one).
+ *
+ * Files are memory-mapped and cut into chunks aligned to record starts (a record is an
+ * event line plus its indented "Token:" line). A fork/join pass parses the chunks in
+ * parallel straight from the mapped bytes, without building Strings, into per-segment
+ * tallies: a segment is a run of one calendar day inside a chunk, begun by a date header
+ * or by the clock wrapping past midnight. Arrivals are paired with serving starts, and
+ * starts with completions, by token inside each chunk; the few pairs that straddle a
+ * chunk boundary or a date header are handed to a short sequential merge that also pins
+ * each segment to its date. A cancellation closes its arrival, and events more than a day
+ * apart are never paired. Only the tallies are kept, so a multi-GB history never sits on the heap.
+ *
+ * Aggregates per day, per category and per hour of day, optionally for a date range:
+ *   java -cp target/classes com.example.smartqueuesystem.LogAnalytics [dataDir] [--from 2025-10-01] [--to 2025-10-31]
+ */
+public class LogAnalytics {
+
+    private static final Patient.Category[] CATEGORIES = Patient.Category.values();
+    private static final int C = CATEGORIES.length;
+    private static final int UNKNOWN_DAY = Integer.MIN_VALUE;
+    private static final int DAY_SECONDS = 86_400;
+    private static final long CHUNK_BYTES = Long.getLong("smartqueue.analytics.chunkBytes", 32L << 20);
+    private static final int RECORD_SLACK = 64 * 1024;   // mapped past a chunk's end to finish its last record
+
+    // Event kinds kept for the cross-chunk merge
+    private static final byte ADDED = 1, STARTED = 2, SERVED = 3, CANCELLED = 4;
+    // Flags on those events
+    private static final byte NEEDS_PARTNER = 1, OPEN = 2;
+
+    // UTF-8 keywords searched in event lines
+    private static final byte[] KW_ADDED = ascii("Patient Added: ");
+    private static final byte[] KW_STARTED = ascii("Serving started: ");
+    private static final byte[] KW_SERVED = ascii("Served completed: ");
+    private static final byte[] KW_DELAY = ascii("delay added");
+    private static final byte[] KW_CORRECTION = ascii("deducted");
+    private static final byte[] KW_CANCELLED = ascii("Patient Cancelled");
+    private static final byte[] KW_TOKEN = ascii("Token: ");
+    private static final byte[] KW_DATE = { (byte) 0xF0, (byte) 0x9F, (byte) 0x93, (byte) 0x85, ' ' }; // "📅 "
+
+    // -------------------- TALLIES --------------------
+    /** Counts and sums for one day (or one segment of a chunk before its day is known). */
+    public static final class Tally {
+        final long[] arrivals = new long[C * 24];   // by category and hour of arrival
+        final long[] starts = new long[C * 24];     // by category and hour serving started
+        final long[] waitSum = new long[C * 24];    // seconds, for starts whose arrival was seen
+        final long[] waitCount = new long[C * 24];
+        final long[] serveSum = new long[C];
+        final long[] serveCount = new long[C];
+        final LatencyHistogram[] waits = new LatencyHistogram[C];
+        long overruns;
+        long corrections;
+        long cancellations;
+
+        // Segment bookkeeping (unused once merged into a day)
+        int headerDay = UNKNOWN_DAY;
+        boolean wrapped;      // began because the clock went back past midnight
+        int run;              // segments of a chunk between date headers, i.e. joined only by wraps
+        int dayOffset;        // midnight wraps since the run began
+        int firstSecond = -1;
+        int lastSecond = -1;
+        int day;
+
+        void wait(int cat, int hour, long seconds) {
+            waitSum[cat * 24 + hour] += seconds;
+            waitCount[cat * 24 + hour]++;
+            if (waits[cat] == null) waits[cat] = new LatencyHistogram();
+            waits[cat].record(seconds);
+        }
+
+        void serve(int cat, long seconds) {
+            serveSum[cat] += seconds;
+            serveCount[cat]++;
+        }
+
+        void addTo(Tally t) {
+            for (int i = 0; i < arrivals.length; i++) {
+                t.arrivals[i] += arrivals[i];
+                t.starts[i] += starts[i];
+                t.waitSum[i] += waitSum[i];
+                t.waitCount[i] += waitCount[i];
+            }
+            for (int c = 0; c < C; c++) {
+                t.serveSum[c] += serveSum[c];
+                t.serveCount[c] += serveCount[c];
+                if (waits[c] != null) {
+                    if (t.waits[c] == null) t.waits[c] = new LatencyHistogram();
+                    t.waits[c].add(waits[c]);
+                }
+            }
+            t.overruns += overruns;
+            t.corrections += corrections;
+            t.cancellations += cancellations;
+        }
+
+        public long arrivals(int cat, int hour) { return arrivals[cat * 24 + hour]; }
+        public long starts(int cat, int hour) { return starts[cat * 24 + hour]; }
+
+        public long served(int cat) {
+            long n = 0;
+            for (int h = 0; h < 24; h++) n += starts[cat * 24 + h];
+            return n;
+        }
+
+        public double meanWait(int cat) {
+            long sum = 0, n = 0;
+            for (int h = 0; h < 24; h++) {
+                sum += waitSum[cat * 24 + h];
+                n += waitCount[cat * 24 + h];
+            }
+            return n > 0 ? (double) sum / n : 0;
+        }
+    }
+
+    // -------------------- CHUNK PARSING --------------------
+    /** What one chunk leaves behind: its segments and the events still waiting for a partner. */
+    private static final class Chunk {
+        final List<Tally> segments = new ArrayList<>();
+        Events open;
+    }
+
+    /** Growable columns of boundary events, in log order. */
+    private static final class Events {
+        byte[] kind = new byte[256];
+        byte[] flags = new byte[256];
+        int[] token = new int[256];
+        int[] second = new int[256];
+        byte[] cat = new byte[256];
+        short[] segment = new short[256];
+        int size;
+
+        int add(byte k, int tok, int sec, int c, int seg) {
+            if (size == kind.length) {
+                int n = size * 2;
+                kind = Arrays.copyOf(kind, n);
+                flags = Arrays.copyOf(flags, n);
+                token = Arrays.copyOf(token, n);
+                second = Arrays.copyOf(second, n);
+                cat = Arrays.copyOf(cat, n);
+                segment = Arrays.copyOf(segment, n);
+            }
+            kind[size] = k;
+            flags[size] = 0;
+            token[size] = tok;
+            second[size] = sec;
+            cat[size] = (byte) c;
+            segment[size] = (short) seg;
+            return size++;
+        }
+
+        // Keep only events that still matter to the merge
+        Events compact() {
+            Events out = new Events();
+            for (int i = 0; i < size; i++) {
+                if (flags[i] == 0) continue;
+                int e = out.add(kind[i], token[i], second[i], cat[i], segment[i]);
+                out.flags[e] = flags[i];
+            }
+            return out;
+        }
+    }
+
+    private static final class ChunkTask extends RecursiveTask<List<Chunk>> {
+        private final FileChannel channel;
+        private final long fileSize;
+        private final long from, to;
+
+        ChunkTask(FileChannel channel, long fileSize, long from, long to) {
+            this.channel = channel;
+            this.fileSize = fileSize;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<Chunk> compute() {
+            if (to - from > CHUNK_BYTES) {
+                long mid = from + (to - from) / 2;
+                ChunkTask left = new ChunkTask(channel, fileSize, from, mid);
+                ChunkTask right = new ChunkTask(channel, fileSize, mid, to);
+                right.fork();
+                List<Chunk> out = new ArrayList<>(left.compute());
+                out.addAll(right.join());
+                return out;
+            }
+            try {
+                // Later chunks map one byte early so a record starting exactly at `from` is seen as one
+                long mapFrom = from == 0 ? 0 : from - 1;
+                long end = Math.min(fileSize, to + RECORD_SLACK);
+                MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, mapFrom, end - mapFrom);
+                return List.of(parse(buf, (int) (to - mapFrom), from == 0));
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot map log chunk at " + from, e);
+            }
+        }
+    }
+
+    /**
+     * Parses the records that start in [0, limit) of buf. Unless this is the file's first chunk,
+     * buf begins with the byte before the chunk and whatever record is cut there belongs to the
+     * previous chunk, so parsing starts at the first record after the first newline.
+     */
+    static Chunk parse(MappedByteBuffer buf, int limit, boolean fileStart) {
+        Chunk chunk = new Chunk();
+        Events events = new Events();
+        Map<Integer, Integer> added = new HashMap<>();    // token -> event index, arrival not yet paired
+        Map<Integer, Integer> started = new HashMap<>();  // token -> event index, serve not yet finished
+        Tally seg = new Tally();
+        chunk.segments.add(seg);
+
+        int n = buf.limit();
+        int pos = fileStart ? 0 : nextRecordStart(buf, 0, n);
+        while (pos < limit && pos < n) {
+            int eol = lineEnd(buf, pos, n);
+
+            if (isTime(buf, pos, eol)) {
+                int sec = secondOfDay(buf, pos);
+                if (seg.lastSecond >= 0 && sec < seg.lastSecond - DAY_SECONDS / 2) {
+                    Tally before = seg;
+                    seg = new Tally();                    // clock wrapped past midnight
+                    seg.wrapped = true;
+                    seg.run = before.run;
+                    seg.dayOffset = before.dayOffset + 1;
+                    chunk.segments.add(seg);
+                }
+                if (seg.firstSecond < 0) seg.firstSecond = sec;
+                seg.lastSecond = sec;
+                int hour = sec / 3600;
+                int segIdx = chunk.segments.size() - 1;
+
+                // "HH:mm:ss - <emoji> <text>": the event word follows the emoji's space
+                int text = pos + 11;
+                while (text < eol && buf.get(text) != ' ') text++;
+                text++;
+                byte kind = startsWith(buf, text, eol, KW_ADDED) ? ADDED
+                        : startsWith(buf, text, eol, KW_STARTED) ? STARTED
+                        : startsWith(buf, text, eol, KW_SERVED) ? SERVED : 0;
+                if (kind != 0) {
+                    int cat = category(buf, pos, eol);
+                    int next = eol + 1;
+                    int nextEol = next < n ? lineEnd(buf, next, n) : next;
+                    int tok = next < n ? token(buf, next, nextEol) : -1;
+                    if (tok > 0) eol = nextEol;           // the Token line belongs to this record
+                    if (cat >= 0 && tok > 0) {
+                        switch (kind) {
+                            case ADDED -> {
+                                seg.arrivals[cat * 24 + hour]++;
+                                int e = events.add(ADDED, tok, sec, cat, segIdx);
+                                events.flags[e] = OPEN;
+                                Integer prev = added.put(tok, e);
+                                if (prev != null) events.flags[prev] = 0;
+                            }
+                            case STARTED -> {
+                                seg.starts[cat * 24 + hour]++;
+                                int e = events.add(STARTED, tok, sec, cat, segIdx);
+                                Integer a = added.remove(tok);
+                                if (a != null && chunk.segments.get(events.segment[a]).run == seg.run) {
+                                    events.flags[a] = 0;
+                                    long wait = elapsed(chunk.segments.get(events.segment[a]).dayOffset,
+                                            events.second[a], seg.dayOffset, sec);
+                                    if (wait >= 0) seg.wait(cat, hour, wait);
+                                    events.flags[e] = OPEN;
+                                } else {
+                                    // arrival in an earlier chunk or before a date header: the merge pairs it
+                                    events.flags[e] = (byte) (OPEN | NEEDS_PARTNER);
+                                }
+                                started.put(tok, e);
+                            }
+                            case SERVED -> {
+                                Integer s = started.remove(tok);
+                                if (s != null && chunk.segments.get(events.segment[s]).run == seg.run) {
+                                    events.flags[s] &= ~OPEN;
+                                    long serve = elapsed(chunk.segments.get(events.segment[s]).dayOffset,
+                                            events.second[s], seg.dayOffset, sec);
+                                    if (serve >= 0) seg.serve(cat, serve);
+                                } else {
+                                    int e = events.add(SERVED, tok, sec, cat, segIdx);
+                                    events.flags[e] = NEEDS_PARTNER;
+                                }
+                            }
+                            default -> { }
+                        }
+                    }
+                } else if (startsWith(buf, text, eol, KW_CANCELLED)) {
+                    seg.cancellations++;
+                    int next = eol + 1;
+                    int nextEol = next < n ? lineEnd(buf, next, n) : next;
+                    int tok = next < n ? token(buf, next, nextEol) : -1;
+                    if (tok > 0) {
+                        eol = nextEol;
+                        Integer a = added.remove(tok);
+                        if (a != null) {
+                            events.flags[a] = 0;                  // never served, so never paired
+                        } else {
+                            int e = events.add(CANCELLED, tok, sec, 0, chunk.segments.size() - 1);
+                            events.flags[e] = NEEDS_PARTNER;
+                        }
+                    }
+                } else if (indexOf(buf, pos, eol, KW_DELAY) >= 0) {
+                    seg.overruns++;
+                } else if (indexOf(buf, pos, eol, KW_CORRECTION) >= 0) {
+                    seg.corrections++;
+                }
+            } else {
+                int d = indexOf(buf, pos, eol, KW_DATE);
+                if (d >= 0 && d + KW_DATE.length + 10 <= eol) {
+                    int day = epochDay(buf, d + KW_DATE.length);
+                    if (day != UNKNOWN_DAY) {
+                        if (seg.firstSecond >= 0 || seg.headerDay != UNKNOWN_DAY) {
+                            int run = seg.run + 1;
+                            seg = new Tally();
+                            seg.run = run;
+                            chunk.segments.add(seg);
+                        }
+                        seg.headerDay = day;
+                    }
+                }
+            }
+            pos = eol + 1;
+        }
+        chunk.open = events.compact();
+        return chunk;
+    }
+
+    // -------------------- MERGE --------------------
+    /** Result: one Tally per calendar day (epoch day keys). */
+    public static final class Report {
+        private final TreeMap<Integer, Tally> days = new TreeMap<>();
+        long bytes;
+        int files;
+        int chunks;
+        long nanos;
+
+        public NavigableMap<Integer, Tally> days() { return days; }
+
+        /** Sum of every day in [from, to], either bound may be null. */
+        public Tally total(LocalDate from, LocalDate to) {
+            Tally t = new Tally();
+            for (Map.Entry<Integer, Tally> e : days.entrySet()) {
+                if (from != null && e.getKey() < from.toEpochDay()) continue;
+                if (to != null && e.getKey() > to.toEpochDay()) continue;
+                e.getValue().addTo(t);
+            }
+            return t;
+        }
+    }
+
+    /** Analyses every queue_log*.txt in dir. */
+    public static Report analyse(Path dir) throws IOException {
+        return analyse(logFiles(dir));
+    }
+
+    public static Report analyse(List<Path> files) throws IOException {
+        long start = System.nanoTime();
+        Report report = new Report();
+        Map<Integer, int[]> openAdds = new HashMap<>();    // token -> {second, day}
+        Map<Integer, int[]> openStarts = new HashMap<>();
+        int lastDay = UNKNOWN_DAY;
+        int lastSecond = -1;
+
+        for (Path file : files) {
+            int fallbackDay = fileDay(file);
+            List<Chunk> chunks;
+            try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+                long size = ch.size();
+                report.bytes += size;
+                report.files++;
+                if (size == 0) continue;
+                chunks = ForkJoinPool.commonPool().invoke(new ChunkTask(ch, size, 0, size));
+            }
+            report.chunks += chunks.size();
+
+            lastDay = resolveDays(chunks, fallbackDay, lastDay, lastSecond);
+            for (Chunk chunk : chunks) {
+                settle(chunk, openAdds, openStarts);
+                for (Tally seg : chunk.segments) {
+                    if (seg.lastSecond >= 0) lastSecond = seg.lastSecond;
+                    seg.addTo(report.days.computeIfAbsent(seg.day, d -> new Tally()));
+                }
+            }
+        }
+        report.nanos = System.nanoTime() - start;
+        return report;
+    }
+
+    /**
+     * Pins every segment of one file to a date: a date header wins, otherwise a segment carries
+     * on from the one before it (next day after a midnight wrap). Segments at the top of a file
+     * that the previous file can't vouch for (a rolled file of a later date, or no previous file)
+     * count back from the file's first header, or else from its date, since files roll at the
+     * date change. Returns the day of the file's last segment.
+     */
+    private static int resolveDays(List<Chunk> chunks, int fileDay, int lastDay, int lastSecond) {
+        List<Tally> pending = new ArrayList<>();
+        boolean anchored = lastDay != UNKNOWN_DAY && (fileDay == UNKNOWN_DAY || fileDay <= lastDay);
+        for (Chunk chunk : chunks) {
+            for (Tally seg : chunk.segments) {
+                if (seg.headerDay != UNKNOWN_DAY) {
+                    countBack(pending, seg.headerDay);
+                    seg.day = seg.headerDay;
+                    anchored = true;
+                } else if (anchored) {
+                    boolean wrapped = seg.wrapped || (seg.firstSecond >= 0 && seg.firstSecond < lastSecond - DAY_SECONDS / 2);
+                    seg.day = wrapped ? lastDay + 1 : lastDay;
+                } else {
+                    pending.add(seg);
+                    continue;
+                }
+                lastDay = seg.day;
+                if (seg.lastSecond >= 0) lastSecond = seg.lastSecond;
+            }
+        }
+        if (!pending.isEmpty()) {
+            lastDay = fileDay != UNKNOWN_DAY ? fileDay : (int) LocalDate.now().toEpochDay();
+            countBack(pending, lastDay);
+        }
+        return lastDay;
+    }
+
+    // Assigns anchorDay to the last pending segment and one day less per midnight wrap before it
+    private static void countBack(List<Tally> pending, int anchorDay) {
+        int day = anchorDay;
+        for (int i = pending.size() - 1; i >= 0; i--) {
+            Tally seg = pending.get(i);
+            seg.day = day;
+            if (seg.wrapped) day--;
+        }
+        pending.clear();
+    }
+
+    // Pairs the chunk's boundary events with those left open by earlier chunks, in log order
+    private static void settle(Chunk chunk, Map<Integer, int[]> openAdds, Map<Integer, int[]> openStarts) {
+        Events e = chunk.open;
+        for (int i = 0; i < e.size; i++) {
+            int tok = e.token[i];
+            int sec = e.second[i];
+            int cat = e.cat[i];
+            Tally seg = chunk.segments.get(e.segment[i]);
+            switch (e.kind[i]) {
+                case ADDED -> openAdds.put(tok, new int[] { sec, seg.day });
+                case STARTED -> {
+                    if ((e.flags[i] & NEEDS_PARTNER) != 0) {
+                        int[] a = openAdds.remove(tok);
+                        long wait = a == null ? -1 : elapsed(a[1], a[0], seg.day, sec);
+                        if (wait >= 0) seg.wait(cat, sec / 3600, wait);
+                    }
+                    if ((e.flags[i] & OPEN) != 0) openStarts.put(tok, new int[] { sec, seg.day });
+                }
+                case SERVED -> {
+                    int[] s = openStarts.remove(tok);
+                    long serve = s == null ? -1 : elapsed(s[1], s[0], seg.day, sec);
+                    if (serve >= 0) seg.serve(cat, serve);
+                }
+                case CANCELLED -> openAdds.remove(tok);
+                default -> { }
+            }
+        }
+    }
+
+    // -------------------- BYTE HELPERS --------------------
+    // Seconds from one event to a later one, or -1 when they are out of order or more than a day apart
+    private static long elapsed(int fromDay, int fromSecond, int toDay, int toSecond) {
+        long d = (long) (toDay - fromDay) * DAY_SECONDS + toSecond - fromSecond;
+        return d >= 0 && d <= DAY_SECONDS ? d : -1;
+    }
+
+    private static int lineEnd(MappedByteBuffer b, int pos, int n) {
+        while (pos < n && b.get(pos) != '\n') pos++;
+        return pos;
+    }
+
+    // A record starts at a line that isn't an indented continuation
+    private static int nextRecordStart(MappedByteBuffer b, int pos, int n) {
+        while (pos < n) {
+            int eol = lineEnd(b, pos, n);
+            int next = eol + 1;
+            if (next >= n) return n;
+            if (b.get(next) != ' ') return next;
+            pos = next;
+        }
+        return n;
+    }
+
+    private static boolean isTime(MappedByteBuffer b, int pos, int eol) {
+        return eol - pos >= 8 && digit(b.get(pos)) && digit(b.get(pos + 1)) && b.get(pos + 2) == ':'
+                && digit(b.get(pos + 3)) && b.get(pos + 5) == ':' && digit(b.get(pos + 7));
+    }
+
+    private static int secondOfDay(MappedByteBuffer b, int pos) {
+        return two(b, pos) * 3600 + two(b, pos + 3) * 60 + two(b, pos + 6);
+    }
+
+    private static int two(MappedByteBuffer b, int pos) {
+        return (b.get(pos) - '0') * 10 + (b.get(pos + 1) - '0');
+    }
+
+    private static boolean digit(byte c) {
+        return c >= '0' && c <= '9';
+    }
+
+    // "(Senior)" at the end of the line
+    private static int category(MappedByteBuffer b, int pos, int eol) {
+        int close = eol - 1;
+        while (close > pos && (b.get(close) == '\r' || b.get(close) == ' ')) close--;
+        if (b.get(close) != ')') return -1;
+        int open = close - 1;
+        while (open > pos && b.get(open) != '(') open--;
+        if (open <= pos) return -1;
+        return switch (b.get(open + 1)) {
+            case 'E' -> Patient.Category.EMERGENCY.ordinal();
+            case 'S' -> Patient.Category.SENIOR.ordinal();
+            case 'C' -> Patient.Category.CHILD.ordinal();
+            case 'G' -> Patient.Category.GENERAL.ordinal();
+            default -> -1;
+        };
+    }
+
+    // "   Token: 12 | Queue: 3 | Expected: 66s" -> 12, or -1 when the line is something else
+    private static int token(MappedByteBuffer b, int pos, int eol) {
+        if (pos >= eol || b.get(pos) != ' ') return -1;
+        int at = indexOf(b, pos, eol, KW_TOKEN);
+        if (at < 0) return -1;
+        int value = 0, i = at + KW_TOKEN.length;
+        if (i >= eol || !digit(b.get(i))) return -1;
+        while (i < eol && digit(b.get(i))) value = value * 10 + (b.get(i++) - '0');
+        return value;
+    }
+
+    private static boolean startsWith(MappedByteBuffer b, int pos, int eol, byte[] prefix) {
+        if (eol - pos < prefix.length) return false;
+        for (int k = 0; k < prefix.length; k++) if (b.get(pos + k) != prefix[k]) return false;
+        return true;
+    }
+
+    private static int indexOf(MappedByteBuffer b, int from, int to, byte[] needle) {
+        byte first = needle[0];
+        for (int i = from, last = to - needle.length; i <= last; i++) {
+            if (b.get(i) != first) continue;
+            int k = 1;
+            while (k < needle.length && b.get(i + k) == needle[k]) k++;
+            if (k == needle.length) return i;
+        }
+        return -1;
+    }
+
+    // yyyy-MM-dd
+    private static int epochDay(MappedByteBuffer b, int pos) {
+        for (int i : new int[] { 0, 1, 2, 3, 5, 6, 8, 9 }) if (!digit(b.get(pos + i))) return UNKNOWN_DAY;
+        if (b.get(pos + 4) != '-' || b.get(pos + 7) != '-') return UNKNOWN_DAY;
+        int year = two(b, pos) * 100 + two(b, pos + 2);
+        try {
+            return (int) LocalDate.of(year, two(b, pos + 5), two(b, pos + 8)).toEpochDay();
+        } catch (RuntimeException e) {
+            return UNKNOWN_DAY;
+        }
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(java.nio.charset.StandardCharsets.US_ASCII);
+    }
+
+    // -------------------- FILES --------------------
+    // Rolled files (queue_log.<date>.<n>.txt) oldest first, then the active queue_log.txt
+    static List<Path> logFiles(Path dir) throws IOException {
+        List<Path> rolled = new ArrayList<>();
+        Path active = null;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "queue_log*.txt")) {
+            for (Path f : files) {
+                if (f.getFileName().toString().equals("queue_log.txt")) active = f;
+                else rolled.add(f);
+            }
+        }
+        rolled.sort(Comparator.comparing((Path f) -> fileDay(f)).thenComparing(LogAnalytics::rollIndex));
+        if (active != null) rolled.add(active);
+        return rolled;
+    }
+
+    private static int fileDay(Path f) {
+        String[] parts = f.getFileName().toString().split("\\.");
+        if (parts.length == 4) {
+            try {
+                return (int) LocalDate.parse(parts[1]).toEpochDay();
+            } catch (RuntimeException ignored) {
+                // not a rolled file name
+            }
+        }
+        try {
+            return (int) LocalDate.ofInstant(Files.getLastModifiedTime(f).toInstant(), ZoneId.systemDefault()).toEpochDay();
+        } catch (IOException e) {
+            return UNKNOWN_DAY;
+        }
+    }
+
+    private static int rollIndex(Path f) {
+        String[] parts = f.getFileName().toString().split("\\.");
+        try {
+            return parts.length == 4 ? Integer.parseInt(parts[2]) : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    // -------------------- REPORT --------------------
+    public static void main(String[] args) throws IOException {
+        Path dir = LogWriter.dataDirectory();
+        LocalDate from = null, to = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--from" -> from = LocalDate.parse(args[++i]);
+                case "--to" -> to = LocalDate.parse(args[++i]);
+                default -> dir = Paths.get(args[i]);
+            }
+        }
+
+        Report report = analyse(dir);
+        double seconds = report.nanos / 1e9;
+        System.out.printf("📊 %d file(s), %.1f MB in %d chunk(s), %.2f s (%.0f MB/s)%n", report.files,
+                report.bytes / 1e6, report.chunks, seconds, report.bytes / 1e6 / Math.max(seconds, 1e-9));
+
+        System.out.println("\ndate       | arrivals | served | avg wait | p95 wait | avg serve | overruns | corr. | cancelled");
+        System.out.println("           |          |        |  (min)   |  (min)   |    (s)    |          |       |");
+        for (Map.Entry<Integer, Tally> e : report.days().entrySet()) {
+            if (from != null && e.getKey() < from.toEpochDay()) continue;
+            if (to != null && e.getKey() > to.toEpochDay()) continue;
+            Tally t = e.getValue();
+            LatencyHistogram all = new LatencyHistogram();
+            long arrivals = 0, served = 0, waitSum = 0, waitN = 0, serveSum = 0, serveN = 0;
+            for (int c = 0; c < C; c++) {
+                for (int h = 0; h < 24; h++) {
+                    arrivals += t.arrivals(c, h);
+                    waitSum += t.waitSum[c * 24 + h];
+                    waitN += t.waitCount[c * 24 + h];
+                }
+                served += t.served(c);
+                serveSum += t.serveSum[c];
+                serveN += t.serveCount[c];
+                if (t.waits[c] != null) all.add(t.waits[c]);
+            }
+            System.out.printf("%s | %8d | %6d | %8.1f | %8.1f | %9.1f | %8d | %5d | %9d%n", LocalDate.ofEpochDay(e.getKey()),
+                    arrivals, served, waitN > 0 ? waitSum / 60.0 / waitN : 0, all.percentile(95) / 60.0,
+                    serveN > 0 ? (double) serveSum / serveN : 0, t.overruns, t.corrections, t.cancellations);
+        }
+
+        Tally total = report.total(from, to);
+        System.out.println("\ncategory   | served | avg wait | p50 wait | p95 wait | avg serve");
+        for (int c = 0; c < C; c++) {
+            LatencyHistogram w = total.waits[c] != null ? total.waits[c] : new LatencyHistogram();
+            System.out.printf("%-10s | %6d | %8.1f | %8.1f | %8.1f | %9.1f%n", CATEGORIES[c], total.served(c),
+                    total.meanWait(c) / 60, w.percentile(50) / 60.0, w.percentile(95) / 60.0,
+                    total.serveCount[c] > 0 ? (double) total.serveSum[c] / total.serveCount[c] : 0);
+        }
+
+        System.out.println("\nhour | arrivals | served | avg wait (min)");
+        for (int h = 0; h < 24; h++) {
+            long arrivals = 0, served = 0, waitSum = 0, waitN = 0;
+            for (int c = 0; c < C; c++) {
+                arrivals += total.arrivals(c, h);
+                served += total.starts(c, h);
+                waitSum += total.waitSum[c * 24 + h];
+                waitN += total.waitCount[c * 24 + h];
+            }
+            if (arrivals == 0 && served == 0) continue;
+            System.out.printf("  %02d | %8d | %6d | %8.1f%n", h, arrivals, served, waitN > 0 ? waitSum / 60.0 / waitN : 0);
+        }
+    }
+}
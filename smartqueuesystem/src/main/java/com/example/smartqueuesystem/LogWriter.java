@@ -0,0 +1,307 @@
+package com.example.smartqueuesystem;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous queue log.
+ * Callers drop records into a bounded lock-free ring buffer and return immediately;
+ * a single background thread drains it into one open FileChannel.
+ * Records are written in groups (every batchSize records or flushIntervalMs, whichever
+ * comes first), and the active file is rolled when it grows past maxFileBytes or the date changes.
+ * An idle writer spins briefly, then parks until the producer that makes the ring non-empty unparks it.
+ *
+ * Configuration comes from system properties:
+ *   smartqueue.dataDir          directory for queue_log.txt (default "data")
+ *   smartqueue.log.batchSize    records per group commit (default 64)
+ *   smartqueue.log.flushMs      max delay before a partial group is written (default 200)
+ *   smartqueue.log.maxBytes     roll size for the active file (default 16 MB)
+ *   smartqueue.log.sync         fsync after every group commit (default false)
+ */
+public class LogWriter implements AutoCloseable {
+
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm:ss");
+    private static final String FILE_NAME = "queue_log.txt";
+    private static final int SPINS = 100; // empty polls before the writer parks
+
+    private static volatile LogWriter defaultWriter;
+
+    /** Shared writer used by QueueManager and UIController, created on first use. */
+    public static LogWriter getDefault() {
+        LogWriter w = defaultWriter;
+        if (w == null) {
+            synchronized (LogWriter.class) {
+                w = defaultWriter;
+                if (w == null) {
+                    w = new LogWriter(dataDirectory(),
+                            Integer.getInteger("smartqueue.log.batchSize", 64),
+                            Long.getLong("smartqueue.log.flushMs", 200),
+                            Long.getLong("smartqueue.log.maxBytes", 16L << 20),
+                            Boolean.getBoolean("smartqueue.log.sync"),
+                            4096);
+                    Runtime.getRuntime().addShutdownHook(new Thread(w::close, "log-writer-shutdown"));
+                    defaultWriter = w;
+                }
+            }
+        }
+        return w;
+    }
+
+    public static Path dataDirectory() {
+        return Paths.get(System.getProperty("smartqueue.dataDir", "data"));
+    }
+
+    // -------------------- RING BUFFER --------------------
+    // Bounded multi-producer ring: producers claim a sequence with getAndIncrement on tail, wait until
+    // the writer has moved past the previous lap, and publish by setting the slot; the writer consumes in order.
+    private static final class Record {
+        final long timeMillis;
+        final String text;
+        final boolean stamped;
+
+        Record(long timeMillis, String text, boolean stamped) {
+            this.timeMillis = timeMillis;
+            this.text = text;
+            this.stamped = stamped;
+        }
+    }
+
+    private final AtomicReferenceArray<Record> slots;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head = 0;
+    // Set by the writer before it parks on an empty ring; the producer that fills the slot it waits on unparks it
+    private volatile boolean sleeping;
+
+    // -------------------- WRITER STATE --------------------
+    private final Path directory;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final long maxFileBytes;
+    private final boolean syncOnCommit;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+    private final Thread writerThread;
+
+    private FileChannel channel;
+    private LocalDate fileDate;
+    private long fileBytes;
+
+    // The "HH:mm:ss - " prefix and the date only change once a second, so they are cached
+    private long stampSecond = Long.MIN_VALUE;
+    private byte[] stampPrefix;
+    private LocalDate stampDate;
+    private volatile boolean closed = false;
+
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong commits = new AtomicLong();
+
+    public LogWriter(Path directory, int batchSize, long flushIntervalMs, long maxFileBytes,
+                     boolean syncOnCommit, int capacity) {
+        int cap = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.slots = new AtomicReferenceArray<>(cap);
+        this.mask = cap - 1;
+        this.directory = directory;
+        this.batchSize = Math.max(1, batchSize);
+        this.flushIntervalNanos = Math.max(1, flushIntervalMs) * 1_000_000L;
+        this.maxFileBytes = maxFileBytes;
+        this.syncOnCommit = syncOnCommit;
+
+        this.writerThread = new Thread(this::drainLoop, "log-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    // -------------------- PRODUCER API --------------------
+
+    /** Appends "HH:mm:ss - text" using the time of this call. */
+    public void log(String text) {
+        offer(new Record(System.currentTimeMillis(), text, true));
+    }
+
+    /** Appends text as-is (headers, summaries). */
+    public void raw(String text) {
+        offer(new Record(System.currentTimeMillis(), text, false));
+    }
+
+    private void offer(Record r) {
+        if (closed) return;
+        long seq = tail.getAndIncrement();
+        // Full: wait for the writer to free the slot rather than dropping the record
+        while (seq - head >= slots.length()) {
+            LockSupport.parkNanos(50_000);
+        }
+        slots.set((int) (seq & mask), r);
+        if (sleeping && seq == head) LockSupport.unpark(writerThread); // the ring just went from empty to non-empty
+    }
+
+    public long getWrittenCount() { return written.get(); }
+    public long getCommitCount() { return commits.get(); }
+
+    // -------------------- WRITER THREAD --------------------
+    private void drainLoop() {
+        long lastCommit = System.nanoTime();
+        int pending = 0;
+        int idle = 0;
+        while (true) {
+            long h = head;
+            int i = (int) (h & mask);
+            Record r = slots.get(i);
+            if (r != null) {
+                slots.set(i, null);
+                head = h + 1;
+                append(r);
+                pending++;
+                idle = 0;
+            } else {
+                if (closed && h >= tail.get()) break;
+                if (++idle < SPINS) {
+                    Thread.onSpinWait();
+                } else {
+                    idle = 0;
+                    awaitRecord(i, pending > 0 ? Math.max(1, lastCommit + flushIntervalNanos - System.nanoTime()) : 0);
+                }
+            }
+            long now = System.nanoTime();
+            if (pending > 0 && (pending >= batchSize || now - lastCommit >= flushIntervalNanos)) {
+                commit();
+                pending = 0;
+                lastCommit = now;
+            } else if (pending == 0) {
+                lastCommit = now;
+            }
+        }
+        commit();
+        closeChannel();
+    }
+
+    /**
+     * Parks until a producer fills slot i, or for at most timeoutNanos when a partial group is
+     * waiting to be committed (0: no limit). After close() it only naps, since a producer that
+     * claimed a sequence before close may still publish it.
+     */
+    private void awaitRecord(int i, long timeoutNanos) {
+        sleeping = true;
+        // Re-check after announcing, so a record published just before is not slept through
+        if (slots.get(i) == null) {
+            if (closed) LockSupport.parkNanos(1_000_000);
+            else if (timeoutNanos == 0) LockSupport.park(this);
+            else if (timeoutNanos > 0) LockSupport.parkNanos(this, timeoutNanos);
+        }
+        sleeping = false;
+    }
+
+    private void append(Record r) {
+        long second = Math.floorDiv(r.timeMillis, 1000);
+        if (second != stampSecond) {
+            Instant instant = Instant.ofEpochSecond(second);
+            stampSecond = second;
+            stampDate = LocalDate.ofInstant(instant, ZoneId.systemDefault());
+            stampPrefix = (LocalTime.ofInstant(instant, ZoneId.systemDefault()).format(TIME) + " - ")
+                    .getBytes(StandardCharsets.UTF_8);
+        }
+        byte[] bytes = (r.stamped ? r.text + "\n" : r.text).getBytes(StandardCharsets.UTF_8);
+        int length = bytes.length + (r.stamped ? stampPrefix.length : 0);
+        try {
+            ensureChannel(stampDate, length);
+            if (length > buffer.remaining()) flushBuffer();
+            if (r.stamped) buffer.put(stampPrefix);
+            if (bytes.length > buffer.remaining()) {
+                flushBuffer();
+                channel.write(ByteBuffer.wrap(bytes));
+            } else {
+                buffer.put(bytes);
+            }
+            fileBytes += length;
+            written.incrementAndGet();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void commit() {
+        try {
+            flushBuffer();
+            if (channel != null && syncOnCommit) channel.force(false);
+            commits.incrementAndGet();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        if (channel == null || buffer.position() == 0) return;
+        buffer.flip();
+        while (buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
+    }
+
+    // -------------------- FILE ROLLING --------------------
+    private void ensureChannel(LocalDate date, int incoming) throws IOException {
+        if (channel != null) {
+            boolean newDay = !date.equals(fileDate);
+            boolean tooBig = fileBytes + incoming > maxFileBytes;
+            if (!newDay && !tooBig) return;
+            flushBuffer();
+            closeChannel();
+            roll();
+        }
+        Files.createDirectories(directory);
+        Path active = directory.resolve(FILE_NAME);
+        if (Files.exists(active)) {
+            LocalDate modified = LocalDate.ofInstant(Files.getLastModifiedTime(active).toInstant(), ZoneId.systemDefault());
+            if (!modified.equals(date) || Files.size(active) >= maxFileBytes) {
+                fileDate = modified;
+                roll();
+            }
+        }
+        channel = FileChannel.open(active, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        fileDate = date;
+        fileBytes = channel.size();
+    }
+
+    // queue_log.txt -> queue_log.2025-01-31.1.txt (first free index for that date)
+    private void roll() throws IOException {
+        Path active = directory.resolve(FILE_NAME);
+        if (!Files.exists(active)) return;
+        int n = 1;
+        Path target;
+        do {
+            target = directory.resolve("queue_log." + fileDate + "." + n++ + ".txt");
+        } while (Files.exists(target));
+        Files.move(active, target);
+    }
+
+    private void closeChannel() {
+        if (channel == null) return;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        channel = null;
+    }
+
+    /** Writes everything already queued, then stops the writer thread. */
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
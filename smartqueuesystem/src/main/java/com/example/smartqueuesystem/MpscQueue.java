@@ -0,0 +1,67 @@
+package com.example.smartqueuesystem;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Unbounded lock-free multi-producer / single-consumer queue (Vyukov's intrusive list).
+ * offer() is one getAndSet plus one release store, so producers never block each other;
+ * only the single consumer thread may call drain().
+ */
+final class MpscQueue<T> {
+
+    private static final class Node<T> {
+        T value;
+        volatile Node<T> next;
+
+        Node(T value) {
+            this.value = value;
+        }
+    }
+
+    private static final VarHandle NEXT;
+
+    static {
+        try {
+            NEXT = MethodHandles.lookup().findVarHandle(Node.class, "next", Node.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final AtomicReference<Node<T>> head;  // last node offered; producers swap it
+    private Node<T> tail;                         // consumer-owned stub, its next is the oldest item
+
+    MpscQueue() {
+        Node<T> stub = new Node<>(null);
+        head = new AtomicReference<>(stub);
+        tail = stub;
+    }
+
+    void offer(T value) {
+        Node<T> node = new Node<>(value);
+        Node<T> prev = head.getAndSet(node);
+        NEXT.setRelease(prev, node); // until this lands the consumer just sees the queue as shorter
+    }
+
+    /** Consumer only: hands up to max items, oldest first, to sink and returns how many. */
+    int drain(Consumer<? super T> sink, int max) {
+        int n = 0;
+        Node<T> next;
+        while (n < max && (next = tail.next) != null) {
+            T value = next.value;
+            next.value = null;
+            tail = next;
+            sink.accept(value);
+            n++;
+        }
+        return n;
+    }
+
+    /** True when no offered item is visible to the consumer yet. */
+    boolean isEmpty() {
+        return tail.next == null;
+    }
+}
@@ -1,67 +1,166 @@
 package com.example.smartqueuesystem;
 
 import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
 import java.util.concurrent.atomic.AtomicInteger;
 
-public class Patient {
+public class Patient implements PatientView {
     private static final AtomicInteger tokenCounter = new AtomicInteger(1);
 
+    /** Triage class; priority 1 is served first. */
+    public enum Category {
+        EMERGENCY(1, "Emergency"),
+        SENIOR(2, "Senior"),
+        CHILD(3, "Child"),
+        GENERAL(4, "General");
+
+        private final int priority;
+        private final String label;
+
+        Category(int priority, String label) {
+            this.priority = priority;
+            this.label = label;
+        }
+
+        public int getPriority() { return priority; }
+        public String getLabel() { return label; }
+
+        // Auto-classify by age unless the desk flagged an emergency
+        public static Category classify(String requested, int age) {
+            if (requested != null && requested.equalsIgnoreCase("Emergency")) return EMERGENCY;
+            if (age >= 60) return SENIOR;
+            if (age <= 15) return CHILD;
+            return GENERAL;
+        }
+
+        /** Category for a stored label such as "Senior"; unknown labels fall back to GENERAL. */
+        public static Category fromLabel(String label) {
+            for (Category c : values()) {
+                if (c.label.equalsIgnoreCase(label)) return c;
+            }
+            return GENERAL;
+        }
+
+        @Override
+        public String toString() { return label; }
+    }
+
+    // Sort key layout, most significant first:
+    //   bits 60-62  priority class (1-4)
+    //   bits 53-59  age rank: 127 - age for seniors (older first), age for children (younger first), else 0
+    //   bits 0-52   arrival time, nanos of day (needs 47 bits)
+    private static final int PRIORITY_SHIFT = 60;
+    private static final int AGE_SHIFT = 53;
+    private static final int MAX_AGE_RANK = 127;
+
     private String name;
     private int age;
     private String sex;
-    private String category;
+    // Fields that change after construction are volatile: desks, the queue and edits write them
+    // on their own threads while the UI and other readers look at them
+    private volatile Category category;
+    private volatile String department = DepartmentQueues.DEFAULT_DEPARTMENT;
+    private long sortKey;             // Strict order at construction, re-keyed by the queue's SchedulingPolicy
     private int tokenNumber;
-    private int queueNumber;
+    private volatile int queueNumber;
 
     private LocalTime addedTime;
-    private long approxWaitTime;      // Dynamic, changes with queue updates
-    private long expectedServeTime;   // Static, set once (estimated duration)
-    private boolean beingServed;
-    private boolean served;
+    private volatile long approxWaitTime;      // Dynamic, changes with queue updates
+    private volatile long expectedServeTime;   // Estimated duration; edited through QueueHandle
+    private volatile boolean expectedGiven;    // Set by a person or a file, not by the ServeTimeEstimator
+    private volatile boolean beingServed;
+    private volatile boolean served;
+
+    private volatile LocalTime servedTime;     // Time when serving completed
+    private volatile String label;             // "Token | name | category", rendered once per category
 
-    private LocalTime servedTime;     // Time when serving completed
+    int heapIndex = -1;               // Slot in PatientQueue's heap, -1 when not queued
+    int emergencyIndex = -1;          // Slot in PatientQueue's emergency heap, -1 unless a queued Emergency
+    long queuedAtMillis;              // Clock time the patient joined the queue; policies key from it
 
     // Constructor
     public Patient(String name, int age, String sex, String category) {
+        this(name, age, sex, category, LocalTime.now());
+    }
+
+    // Constructor with an explicit arrival time (simulation, imports)
+    public Patient(String name, int age, String sex, String category, LocalTime arrivalTime) {
         this.name = name;
         this.age = age;
         this.sex = sex;
+        this.category = Category.classify(category, age);
+        this.tokenNumber = tokenCounter.getAndIncrement();
+        this.addedTime = arrivalTime;
+        this.sortKey = packSortKey(this.category, age, arrivalTime);
 
-        // Auto-classify category if not emergency
-        if (category.equalsIgnoreCase("Emergency")) {
-            this.category = "Emergency";
-        } else if (age >= 60) {
-            this.category = "Senior";
-        } else if (age <= 15) {
-            this.category = "Child";
-        } else {
-            this.category = "General";
-        }
+        // Until someone sets it, QueueManager fills it from its ServeTimeEstimator on add
+        this.expectedServeTime = ServeTimeEstimator.PRIOR_SECONDS;
+    }
 
-        this.tokenNumber = tokenCounter.getAndIncrement();
-        this.addedTime = LocalTime.now();
+    // Rebuild a patient recovered from the journal, keeping its original token
+    Patient(int tokenNumber, String name, int age, String sex, String category,
+            LocalTime arrivalTime, long expectedServeTime) {
+        this.name = name;
+        this.age = age;
+        this.sex = sex;
+        this.category = Category.fromLabel(category);
+        this.tokenNumber = tokenNumber;
+        this.addedTime = arrivalTime;
+        this.sortKey = packSortKey(this.category, age, arrivalTime);
+        this.expectedServeTime = expectedServeTime;
+        this.expectedGiven = true;
+    }
 
-        // Default expected serve time (randomized)
-        this.expectedServeTime = 60 + (long) (Math.random() * 40); // 60–100s
+    /** Makes sure new tokens continue after lastIssued, so a restart never reissues a token. */
+    static void resumeTokensAfter(int lastIssued) {
+        tokenCounter.accumulateAndGet(lastIssued + 1, Math::max);
     }
 
     // -------------------- PRIORITY LOGIC --------------------
-    public int getPriority() {
-        if (category == null) return 4;
-        switch (category.toLowerCase()) {
-            case "emergency": return 1;
-            case "senior": return 2;
-            case "child": return 3;
-            default: return 4;
-        }
+    // Priority rule (Emergency → Senior → Child → General), older seniors and younger children
+    // first, then first come first served - all folded into one precomputed long.
+    // Equal keys (same-millisecond batches under some policies) fall back to token order.
+    public static final Comparator<Patient> PRIORITY_ORDER = (p1, p2) -> {
+        int c = Long.compare(p1.sortKey, p2.sortKey);
+        return c != 0 ? c : Integer.compare(p1.tokenNumber, p2.tokenNumber);
+    };
+
+    static long packSortKey(Category category, int age, LocalTime arrivalTime) {
+        int clamped = Math.max(0, Math.min(MAX_AGE_RANK, age));
+        long ageRank = switch (category) {
+            case SENIOR -> MAX_AGE_RANK - clamped;
+            case CHILD -> clamped;
+            default -> 0;
+        };
+        return ((long) category.getPriority() << PRIORITY_SHIFT)
+                | (ageRank << AGE_SHIFT)
+                | arrivalTime.toNanoOfDay();
     }
 
+    public long getSortKey() { return sortKey; }
+
+    // Only while the patient is outside the heap; PatientQueue sets it on enqueue
+    void setSortKey(long sortKey) { this.sortKey = sortKey; }
+
+    public int getPriority() { return category.getPriority(); }
+
     // -------------------- GETTERS & SETTERS --------------------
     public String getName() { return name; }
     public int getAge() { return age; }
     public String getSex() { return sex; }
-    public String getCategory() { return category; }
+    public String getCategory() { return category.getLabel(); }
+    public Category getCategoryType() { return category; }
+
+    // Only through PatientQueue.update, while the patient is outside the heap
+    void setCategory(Category category) {
+        this.category = category;
+        this.label = null;
+    }
+
+    public String getDepartment() { return department; }
+
+    // Set before the patient is added; it picks the department queue
+    public void setDepartment(String department) { this.department = department; }
 
     public int getTokenNumber() { return tokenNumber; }
     public int getQueueNumber() { return queueNumber; }
@@ -71,7 +170,13 @@ public class Patient {
     public void setApproxWaitTime(long seconds) { this.approxWaitTime = seconds; }
 
     public long getExpectedServeTime() { return expectedServeTime; }
-    public void setExpectedServeTime(long seconds) { this.expectedServeTime = seconds; }
+    public void setExpectedServeTime(long seconds) {
+        this.expectedServeTime = seconds;
+        this.expectedGiven = true;
+    }
+    /** False while expectedServeTime is the default or an estimate. */
+    public boolean isExpectedServeTimeGiven() { return expectedGiven; }
+    void estimateServeTime(long seconds) { this.expectedServeTime = seconds; }
 
     public boolean isBeingServed() { return beingServed; }
     public void setBeingServed(boolean beingServed) { this.beingServed = beingServed; }
@@ -82,27 +187,38 @@ public class Patient {
     public LocalTime getArrivalTime() { return addedTime; }
 
     public String getAddedTime() {
-        return addedTime.format(DateTimeFormatter.ofPattern("HH:mm:ss"));
+        return DisplayText.clock(addedTime);
     }
 
     public void markServed() {
+        markServed(LocalTime.now());
+    }
+
+    // servedTime first: whoever sees served == true also sees the time
+    public void markServed(LocalTime time) {
+        this.servedTime = time;
         this.served = true;
-        this.servedTime = LocalTime.now();
     }
 
     public LocalTime getServedTime() { return servedTime; }
 
     public String getServedTimeString() {
-        return servedTime != null
-                ? servedTime.format(DateTimeFormatter.ofPattern("HH:mm:ss"))
-                : "Pending";
+        return DisplayText.clock(servedTime);
     }
 
     // -------------------- DISPLAY HELPERS --------------------
     public String getFormattedWaitTime() {
-        long minutes = approxWaitTime / 60;
-        long seconds = approxWaitTime % 60;
-        return String.format("%02dm %02ds", minutes, seconds);
+        return DisplayText.waitTime(approxWaitTime);
+    }
+
+    /** "Token 12 | Name | Senior": the part of a list row that only an escalation changes. */
+    public String getLabel() {
+        String s = label;
+        if (s == null) {
+            s = "Token " + tokenNumber + " | " + name + " | " + category;
+            label = s;
+        }
+        return s;
     }
 
     public String getDetails() {
@@ -0,0 +1,572 @@
+package com.example.smartqueuesystem;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Indexed binary min-heap of waiting patients.
+ * Each patient remembers its slot in the heap, so removal of an arbitrary
+ * patient is O(log n) instead of the linear scan PriorityBlockingQueue does.
+ * poll() is O(log n), peek() is O(1), and orderedSnapshot() walks the heap
+ * best-first without sorting the whole queue.
+ *
+ * Queue numbers and wait times are kept in a WaitTimeIndex alongside the heap:
+ * a patient's wait is the base wait (time left before the head of the queue
+ * can start) plus the expected serve times of everyone ahead of them,
+ * spread across the number of desks serving in parallel.
+ *
+ * Each patient is stamped with its queue number and wait as it joins, is edited and is called,
+ * so logs and the served history record where they stood; live values come from the index.
+ *
+ * The base wait is not stored as a countdown. Each busy desk records the instant it
+ * expects to be free, and the base wait is derived from those deadlines and the clock
+ * when a wait time is read. Time passing costs nothing, and an overrun or early-finish
+ * correction is one O(1) deadline shift no matter how many patients are waiting.
+ *
+ * The SchedulingPolicy assigns each patient's sort key as it joins; the comparator (normally
+ * Patient.PRIORITY_ORDER) orders by that key. A key only changes with the patient out of the
+ * heap and the index: update() re-keys an edited patient (under wfq that charges a fresh
+ * virtual finish tag) and setPolicy() re-keys everyone before both are rebuilt.
+ *
+ * Emergency patients are also kept in a second indexed heap in the same order, so an
+ * emergency-only desk takes the best waiting Emergency in O(log n) even when the policy
+ * (wfq, aging) puts someone else at the head.
+ */
+public class PatientQueue implements Iterable<Patient> {
+
+    private static final int BULK_MIN = 64; // smaller batches are cheaper sifted in one at a time
+
+    private final Comparator<Patient> comparator;
+    private SchedulingPolicy policy;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final WaitTimeIndex etaIndex;
+
+    private Patient[] heap;
+    private int size;
+    private Patient[] emergencies = new Patient[4];
+    private int emergencyCount;
+    private volatile int publishedSize;  // size as of the last change, for lock-free readers
+    private final QueueClock clock;
+    private int servers = 1;
+    private int emergencyServers;            // the first desks, which only take Emergency patients
+    private long[] deskFreeAt = new long[1]; // per desk (1-based), epoch millis; 0 when idle
+
+    public PatientQueue(Comparator<Patient> comparator) {
+        this(16, comparator);
+    }
+
+    public PatientQueue(int initialCapacity, Comparator<Patient> comparator) {
+        this(initialCapacity, comparator, QueueClock.SYSTEM);
+    }
+
+    public PatientQueue(int initialCapacity, Comparator<Patient> comparator, QueueClock clock) {
+        this(initialCapacity, comparator, clock, SchedulingPolicy.configured());
+    }
+
+    public PatientQueue(int initialCapacity, Comparator<Patient> comparator, QueueClock clock, SchedulingPolicy policy) {
+        this.comparator = comparator;
+        this.policy = policy;
+        this.clock = clock;
+        this.heap = new Patient[Math.max(1, initialCapacity)];
+        this.etaIndex = new WaitTimeIndex(comparator);
+    }
+
+    // -------------------- QUEUE OPERATIONS --------------------
+    public void add(Patient p) {
+        lock.lock();
+        try {
+            if (p.heapIndex >= 0) throw new IllegalStateException("Patient already queued: " + p);
+            if (size == heap.length) heap = Arrays.copyOf(heap, size * 2);
+            p.queuedAtMillis = clock.nowMillis();
+            p.setSortKey(policy.keyFor(p, p.queuedAtMillis));
+            heap[size] = p;
+            p.heapIndex = size;
+            siftUp(size++);
+            etaIndex.insert(p);
+            addEmergency(p, true);
+            stamp(p);
+            publishedSize = size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds a batch under one lock acquisition; fails before adding anything if one is already queued.
+     * A batch at least as large as the queue (an imported appointment list) is appended and
+     * heapified once in O(n) and goes into the wait-time index as one sorted bulk build;
+     * smaller ones are sifted in one by one.
+     */
+    public void addAll(Collection<Patient> batch) {
+        lock.lock();
+        try {
+            for (Patient p : batch) {
+                if (p.heapIndex >= 0) throw new IllegalStateException("Patient already queued: " + p);
+            }
+            if (size + batch.size() > heap.length) {
+                heap = Arrays.copyOf(heap, Math.max(heap.length * 2, size + batch.size()));
+            }
+            long now = clock.nowMillis();
+            boolean bulk = batch.size() >= BULK_MIN && batch.size() >= size;
+            for (Patient p : batch) {
+                p.queuedAtMillis = now;
+                p.setSortKey(policy.keyFor(p, now));
+                heap[size] = p;
+                p.heapIndex = size;
+                if (bulk) {
+                    size++;
+                } else {
+                    siftUp(size++);
+                    etaIndex.insert(p);
+                }
+                addEmergency(p, !bulk);
+            }
+            if (bulk) {
+                heapify();
+                etaIndex.insertAll(batch.toArray(new Patient[0]));
+            }
+            for (Patient p : batch) stamp(p);
+            publishedSize = size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Patient peek() {
+        lock.lock();
+        try {
+            return size == 0 ? null : heap[0];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Patient poll() {
+        lock.lock();
+        try {
+            return size == 0 ? null : dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Polls the first Emergency in serving order wherever the policy put them, for an emergency-only desk. */
+    public Patient pollEmergency() {
+        lock.lock();
+        try {
+            return emergencyCount == 0 ? null : dequeue(emergencies[0]);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean remove(Patient p) {
+        lock.lock();
+        try {
+            if (!isQueued(p)) return false;
+            removeAt(p.heapIndex);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Edits a waiting patient (category, expected time) in O(log n): the patient leaves the heap
+     * and the wait-time index, is changed and re-keyed while outside them, and goes back in, so
+     * everyone else's queue number and wait follow from the index. Returns false without calling
+     * change when the patient is no longer waiting.
+     */
+    public boolean update(Patient p, Consumer<Patient> change) {
+        lock.lock();
+        try {
+            if (!isQueued(p)) return false;
+            removeAt(p.heapIndex);
+            change.accept(p);
+            p.setSortKey(policy.keyFor(p, p.queuedAtMillis));
+            heap[size] = p;
+            p.heapIndex = size;
+            siftUp(size++);
+            etaIndex.insert(p);
+            addEmergency(p, true);
+            stamp(p);
+            publishedSize = size;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean contains(Patient p) {
+        lock.lock();
+        try {
+            return isQueued(p);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /** Size without taking the lock, as of the last completed change; for heuristics and totals. */
+    public int approximateSize() {
+        return publishedSize;
+    }
+
+    public Comparator<Patient> comparator() {
+        return comparator;
+    }
+
+    public SchedulingPolicy getPolicy() {
+        lock.lock();
+        try {
+            return policy;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Switches policy, re-keying everyone waiting in their current order and rebuilding the heap in O(n log n). */
+    public void setPolicy(SchedulingPolicy policy) {
+        lock.lock();
+        try {
+            List<Patient> waiting = orderedSnapshot();
+            this.policy = policy;
+            etaIndex.clear();
+            for (Patient p : waiting) {
+                p.setSortKey(policy.keyFor(p, p.queuedAtMillis));
+                etaIndex.insert(p);
+            }
+            heapify();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // -------------------- QUEUE NUMBERS & WAIT TIMES --------------------
+
+    /** 1-based position in serving order, or 0 if the patient is not waiting. */
+    public int positionOf(Patient p) {
+        lock.lock();
+        try {
+            return isQueued(p) ? etaIndex.countBefore(p) + 1 : 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Approximate seconds until the patient is called, or -1 if not waiting. */
+    public long waitTimeOf(Patient p) {
+        lock.lock();
+        try {
+            return isQueued(p) ? waitFor(p) : -1;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Copies the patient's current queue number and wait time into the Patient fields. */
+    public Patient refreshEta(Patient p) {
+        lock.lock();
+        try {
+            if (isQueued(p)) stamp(p);
+            return p;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Number of desks serving the queue in parallel; wait times are divided between them. */
+    public void setServers(int servers) {
+        lock.lock();
+        try {
+            this.servers = Math.max(1, servers);
+            this.deskFreeAt = Arrays.copyOf(deskFreeAt, this.servers);
+            this.emergencyServers = Math.min(emergencyServers, this.servers);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * How many of the desks (the first ones) only take Emergency patients. Everyone else's wait
+     * is divided between the remaining desks and counts only their deadlines.
+     */
+    public void setEmergencyServers(int emergencyServers) {
+        lock.lock();
+        try {
+            this.emergencyServers = Math.max(0, Math.min(emergencyServers, servers));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Seconds the busy desks still need in total, derived from their deadlines at the current time. */
+    public long getBaseWait() {
+        lock.lock();
+        try {
+            return baseWait(deskFreeAt, 0, clock.nowMillis());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Desk started a patient it expects to finish at freeAtMillis (clock time). */
+    public void setDeskDeadline(int desk, long freeAtMillis) {
+        lock.lock();
+        try {
+            deskFreeAt[desk - 1] = freeAtMillis;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Moves a busy desk's deadline, e.g. +10s on overrun or back on an early-finish correction. */
+    public void shiftDeskDeadline(int desk, long deltaMillis) {
+        lock.lock();
+        try {
+            if (deskFreeAt[desk - 1] != 0) deskFreeAt[desk - 1] += deltaMillis;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void clearDeskDeadline(int desk) {
+        setDeskDeadline(desk, 0);
+    }
+
+    // -------------------- ORDERED VIEWS --------------------
+
+    /**
+     * This queue's waiting line for a QueueSnapshot in O(desks): the wait-time index is frozen
+     * as it is and the desk deadlines are copied, under the lock; rows and their waits are
+     * worked out from those when someone reads them, so a busy queue never holds a desk up.
+     */
+    QueueSnapshot.Department snapshot(String department) {
+        lock.lock();
+        try {
+            return new QueueSnapshot.Department(department, etaIndex.freeze(), deskFreeAt.clone(), emergencyServers, clock);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Patients in serving order, produced by a best-first walk of a copy of the heap. */
+    public List<Patient> orderedSnapshot() {
+        List<Patient> result = new ArrayList<>();
+        for (Patient p : this) result.add(p);
+        return result;
+    }
+
+    /** Iterates a snapshot of the queue in serving order; later changes to the queue are not seen. */
+    @Override
+    public Iterator<Patient> iterator() {
+        Patient[] copy;
+        int n;
+        lock.lock();
+        try {
+            copy = Arrays.copyOf(heap, size);
+            n = size;
+        } finally {
+            lock.unlock();
+        }
+        return new OrderedIterator(copy, n);
+    }
+
+    private class OrderedIterator implements Iterator<Patient> {
+        private final Patient[] nodes;
+        private final int n;
+        // Frontier of heap slots whose parents were already returned; ordered by the patient in that slot
+        private final PriorityQueue<Integer> frontier;
+
+        OrderedIterator(Patient[] nodes, int n) {
+            this.nodes = nodes;
+            this.n = n;
+            this.frontier = new PriorityQueue<>(Math.max(1, n / 4),
+                    (a, b) -> comparator.compare(nodes[a], nodes[b]));
+            if (n > 0) frontier.add(0);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !frontier.isEmpty();
+        }
+
+        @Override
+        public Patient next() {
+            Integer slot = frontier.poll();
+            if (slot == null) throw new NoSuchElementException();
+            int left = 2 * slot + 1;
+            if (left < n) frontier.add(left);
+            if (left + 1 < n) frontier.add(left + 1);
+            return nodes[slot];
+        }
+    }
+
+    // -------------------- HEAP INTERNALS --------------------
+    private boolean isQueued(Patient p) {
+        int i = p.heapIndex;
+        return i >= 0 && i < size && heap[i] == p;
+    }
+
+    private void stamp(Patient p) {
+        p.setQueueNumber(etaIndex.countBefore(p) + 1);
+        p.setApproxWaitTime(waitFor(p));
+    }
+
+    // Emergency patients can go to any desk; the rest only to those after the emergency-only ones
+    private long waitFor(Patient p) {
+        int from = p.getCategoryType() == Patient.Category.EMERGENCY ? 0 : emergencyServers;
+        return (baseWait(deskFreeAt, from, clock.nowMillis()) + etaIndex.expectedBefore(p)) / callingDesks(servers, from);
+    }
+
+    // Whole seconds the busy desks from index from on still need at now, rounded up
+    static long baseWait(long[] deskFreeAt, int from, long now) {
+        long totalMillis = 0;
+        for (int d = from; d < deskFreeAt.length; d++) {
+            if (deskFreeAt[d] > now) totalMillis += deskFreeAt[d] - now;
+        }
+        return (totalMillis + 999) / 1000;
+    }
+
+    // Desks from index from on; at least one, as stolen desks still call a department with none
+    static int callingDesks(int servers, int from) {
+        return Math.max(1, servers - from);
+    }
+
+    private Patient dequeue() {
+        return dequeue(heap[0]);
+    }
+
+    private Patient dequeue(Patient p) {
+        stamp(p); // where the patient stood when called, for the log and the served history
+        removeAt(p.heapIndex);
+        policy.onDequeued(p);
+        return p;
+    }
+
+    // Floyd's bottom-up build over both heaps after keys changed wholesale
+    private void heapify() {
+        for (int i = (size >>> 1) - 1; i >= 0; i--) siftDown(i);
+        for (int i = (emergencyCount >>> 1) - 1; i >= 0; i--) siftDownEmergency(i);
+    }
+
+    private Patient removeAt(int i) {
+        Patient removed = heap[i];
+        etaIndex.remove(removed);
+        int last = --size;
+        if (i != last) {
+            Patient moved = heap[last];
+            heap[i] = moved;
+            moved.heapIndex = i;
+            heap[last] = null;
+            siftDown(i);
+            if (heap[i] == moved) siftUp(i);
+        } else {
+            heap[last] = null;
+        }
+        removed.heapIndex = -1;
+        if (removed.emergencyIndex >= 0) removeEmergency(removed.emergencyIndex);
+        publishedSize = size;
+        return removed;
+    }
+
+    private void siftUp(int i) {
+        Patient p = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            Patient up = heap[parent];
+            if (comparator.compare(p, up) >= 0) break;
+            heap[i] = up;
+            up.heapIndex = i;
+            i = parent;
+        }
+        heap[i] = p;
+        p.heapIndex = i;
+    }
+
+    private void siftDown(int i) {
+        Patient p = heap[i];
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            int right = child + 1;
+            if (right < size && comparator.compare(heap[right], heap[child]) < 0) child = right;
+            if (comparator.compare(p, heap[child]) <= 0) break;
+            heap[i] = heap[child];
+            heap[i].heapIndex = i;
+            i = child;
+        }
+        heap[i] = p;
+        p.heapIndex = i;
+    }
+
+    // -------------------- EMERGENCY HEAP --------------------
+    // Same order as the main heap, Emergency patients only; sift leaves the caller to heapify in bulk
+    private void addEmergency(Patient p, boolean sift) {
+        if (p.getCategoryType() != Patient.Category.EMERGENCY) return;
+        if (emergencyCount == emergencies.length) emergencies = Arrays.copyOf(emergencies, emergencyCount * 2);
+        emergencies[emergencyCount] = p;
+        p.emergencyIndex = emergencyCount;
+        if (sift) siftUpEmergency(emergencyCount);
+        emergencyCount++;
+    }
+
+    private void removeEmergency(int i) {
+        Patient removed = emergencies[i];
+        int last = --emergencyCount;
+        if (i != last) {
+            Patient moved = emergencies[last];
+            emergencies[i] = moved;
+            moved.emergencyIndex = i;
+            emergencies[last] = null;
+            siftDownEmergency(i);
+            if (emergencies[i] == moved) siftUpEmergency(i);
+        } else {
+            emergencies[last] = null;
+        }
+        removed.emergencyIndex = -1;
+    }
+
+    private void siftUpEmergency(int i) {
+        Patient p = emergencies[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            Patient up = emergencies[parent];
+            if (comparator.compare(p, up) >= 0) break;
+            emergencies[i] = up;
+            up.emergencyIndex = i;
+            i = parent;
+        }
+        emergencies[i] = p;
+        p.emergencyIndex = i;
+    }
+
+    private void siftDownEmergency(int i) {
+        Patient p = emergencies[i];
+        int half = emergencyCount >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            int right = child + 1;
+            if (right < emergencyCount && comparator.compare(emergencies[right], emergencies[child]) < 0) child = right;
+            if (comparator.compare(p, emergencies[child]) <= 0) break;
+            emergencies[i] = emergencies[child];
+            emergencies[i].emergencyIndex = i;
+            i = child;
+        }
+        emergencies[i] = p;
+        p.emergencyIndex = i;
+    }
+}
@@ -0,0 +1,225 @@
+package com.example.smartqueuesystem;
+
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Append-only, column-oriented patient records for very large histories.
+ * Each field lives in its own primitive column (token, age, category, times, ETA) and
+ * names and sexes are interned into one string table, so a row costs about 40 bytes and
+ * no objects, against several hundred bytes and five objects for a Patient.
+ *
+ * Columns are split into fixed chunks that never move once allocated: appends are
+ * serialised, while readers can view every row below size() without locking (size is the
+ * volatile publication point, so hand views to other threads after calling view()).
+ * view(row) returns a flyweight PatientView over one row.
+ */
+public class PatientStore {
+
+    private final int chunkBits;
+    private final int chunkRows;
+    private final int mask;
+    private static final long NOT_SERVED = -1;
+    private static final Patient.Category[] CATEGORIES = Patient.Category.values();
+
+    // -------------------- COLUMNS --------------------
+    private int[][] tokens = new int[0][];
+    private int[][] nameIds = new int[0][];
+    private int[][] sexIds = new int[0][];
+    private short[][] ages = new short[0][];
+    private byte[][] categories = new byte[0][];
+    private long[][] arrivals = new long[0][];     // nanos of day
+    private long[][] servedAt = new long[0][];     // nanos of day, NOT_SERVED while pending
+    private int[][] expected = new int[0][];       // seconds
+    private int[][] approxWait = new int[0][];     // seconds, as last shown
+    private int[][] queueNumbers = new int[0][];
+
+    // -------------------- INTERNED STRINGS --------------------
+    private final Map<String, Integer> stringIds = new HashMap<>();
+    private volatile String[] strings = new String[64];
+    private int stringCount;
+
+    private volatile int size;
+
+    public PatientStore() {
+        this(1 << 16);
+    }
+
+    /** chunkRows is rounded up to a power of two; small stores (e.g. one page of rows) use small chunks. */
+    public PatientStore(int chunkRows) {
+        int bits = 32 - Integer.numberOfLeadingZeros(Math.max(1, chunkRows) - 1);
+        this.chunkBits = bits;
+        this.chunkRows = 1 << bits;
+        this.mask = this.chunkRows - 1;
+    }
+
+    /** Copies the patient's current state into a new row and returns the row number. */
+    public int add(PatientView p) {
+        return add(p.getTokenNumber(), p.getName(), p.getSex(), p.getAge(), p.getCategoryType(),
+                p.getArrivalTime().toNanoOfDay(),
+                p.getServedTime() != null ? p.getServedTime().toNanoOfDay() : NOT_SERVED,
+                (int) p.getExpectedServeTime(), (int) p.getApproxWaitTime(), p.getQueueNumber());
+    }
+
+    // Field-by-field append, for rows decoded from disk; servedNanoOfDay is -1 while pending
+    synchronized int add(int token, String name, String sex, int age, Patient.Category category,
+                         long arrivalNanoOfDay, long servedNanoOfDay, int expectedSeconds,
+                         int approxWaitSeconds, int queueNumber) {
+        int row = size;
+        int c = row >>> chunkBits;
+        if (c == tokens.length) grow();
+        int i = row & mask;
+        tokens[c][i] = token;
+        nameIds[c][i] = intern(name);
+        sexIds[c][i] = intern(sex);
+        ages[c][i] = (short) age;
+        categories[c][i] = (byte) category.ordinal();
+        arrivals[c][i] = arrivalNanoOfDay;
+        servedAt[c][i] = servedNanoOfDay;
+        expected[c][i] = expectedSeconds;
+        approxWait[c][i] = approxWaitSeconds;
+        queueNumbers[c][i] = queueNumber;
+        size = row + 1; // volatile write publishes the row
+        return row;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** A flyweight over one row; cheap enough to create per list cell. */
+    public View view(int row) {
+        check(row);
+        return new View(row);
+    }
+
+    /** Approximate heap bytes held by the columns and string table. */
+    public long estimatedBytes() {
+        long perRow = 4 + 4 + 4 + 2 + 1 + 8 + 8 + 4 + 4 + 4;
+        long strings = 0;
+        String[] table = this.strings;
+        for (int s = 0; s < stringCount; s++) strings += 40 + 2L * table[s].length();
+        return (long) tokens.length * chunkRows * perRow + strings;
+    }
+
+    private void check(int row) {
+        if (row < 0 || row >= size) throw new IndexOutOfBoundsException("row " + row + " of " + size);
+    }
+
+    private void grow() {
+        tokens = appendChunk(tokens, new int[chunkRows]);
+        nameIds = appendChunk(nameIds, new int[chunkRows]);
+        sexIds = appendChunk(sexIds, new int[chunkRows]);
+        ages = appendChunk(ages, new short[chunkRows]);
+        categories = appendChunk(categories, new byte[chunkRows]);
+        arrivals = appendChunk(arrivals, new long[chunkRows]);
+        servedAt = appendChunk(servedAt, new long[chunkRows]);
+        expected = appendChunk(expected, new int[chunkRows]);
+        approxWait = appendChunk(approxWait, new int[chunkRows]);
+        queueNumbers = appendChunk(queueNumbers, new int[chunkRows]);
+    }
+
+    private static <T> T[] appendChunk(T[] chunks, T chunk) {
+        T[] out = Arrays.copyOf(chunks, chunks.length + 1);
+        out[chunks.length] = chunk;
+        return out;
+    }
+
+    private int intern(String s) {
+        if (s == null) s = "";
+        Integer id = stringIds.get(s);
+        if (id != null) return id;
+        String[] table = strings;
+        if (stringCount == table.length) table = Arrays.copyOf(table, table.length * 2);
+        table[stringCount] = s;
+        strings = table;
+        stringIds.put(s, stringCount);
+        return stringCount++;
+    }
+
+    // -------------------- FLYWEIGHT --------------------
+    /** Read-only view of one stored row. */
+    public final class View implements PatientView {
+        private final int chunk;
+        private final int index;
+
+        private View(int row) {
+            this.chunk = row >>> chunkBits;
+            this.index = row & mask;
+        }
+
+        public int getRow() { return (chunk << chunkBits) | index; }
+
+        @Override public String getName() { return strings[nameIds[chunk][index]]; }
+        @Override public int getAge() { return ages[chunk][index]; }
+        @Override public String getSex() { return strings[sexIds[chunk][index]]; }
+        @Override public String getCategory() { return getCategoryType().getLabel(); }
+        @Override public Patient.Category getCategoryType() { return CATEGORIES[categories[chunk][index]]; }
+        @Override public int getPriority() { return getCategoryType().getPriority(); }
+
+        @Override public int getTokenNumber() { return tokens[chunk][index]; }
+        @Override public int getQueueNumber() { return queueNumbers[chunk][index]; }
+        @Override public long getApproxWaitTime() { return approxWait[chunk][index]; }
+        @Override public long getExpectedServeTime() { return expected[chunk][index]; }
+
+        @Override public boolean isBeingServed() { return false; }
+        @Override public boolean isServed() { return servedAt[chunk][index] != NOT_SERVED; }
+
+        @Override public LocalTime getArrivalTime() { return LocalTime.ofNanoOfDay(arrivals[chunk][index]); }
+        @Override public String getAddedTime() { return DisplayText.clockOfNanos(arrivals[chunk][index]); }
+
+        @Override
+        public LocalTime getServedTime() {
+            long t = servedAt[chunk][index];
+            return t == NOT_SERVED ? null : LocalTime.ofNanoOfDay(t);
+        }
+
+        @Override
+        public String getServedTimeString() {
+            long t = servedAt[chunk][index];
+            return t == NOT_SERVED ? "Pending" : DisplayText.clockOfNanos(t);
+        }
+
+        @Override
+        public String getFormattedWaitTime() {
+            return DisplayText.waitTime(getApproxWaitTime());
+        }
+
+        @Override
+        public String getDetails() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("Name: ").append(getName())
+                    .append("\nAge: ").append(getAge())
+                    .append("\nSex: ").append(getSex())
+                    .append("\nCategory: ").append(getCategory())
+                    .append("\nToken No: ").append(getTokenNumber())
+                    .append("\nQueue No: ").append(getQueueNumber())
+                    .append("\nAdded At: ").append(getAddedTime())
+                    .append("\nApprox Wait Time: ").append(getFormattedWaitTime())
+                    .append("\nExpected Serve Time: ").append(getExpectedServeTime()).append("s");
+            if (isServed()) sb.append("\nServed At: ").append(getServedTimeString());
+            return sb.toString();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof View v && v.store() == PatientStore.this && v.chunk == chunk && v.index == index;
+        }
+
+        @Override
+        public int hashCode() {
+            return getRow();
+        }
+
+        private PatientStore store() {
+            return PatientStore.this;
+        }
+
+        @Override
+        public String toString() {
+            return getName() + " (" + getCategory() + ")";
+        }
+    }
+}
@@ -0,0 +1,427 @@
+package com.example.smartqueuesystem;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Bulk import and export of patients, streamed so a day's appointment list or a long served
+ * history is never read or written as one string.
+ *
+ * Formats, by file extension (.bin binary, anything else CSV):
+ *   CSV     name,age,sex,category[,expectedSeconds[,department[,arrival]]] per line: the kiosk line plus
+ *           an optional appointment time (HH:mm or HH:mm:ss). Blank lines and # comments are skipped.
+ *           The format has no quoting, so commas in exported names are written as spaces.
+ *   binary  "SQPT", version, then one length-prefixed record per patient (name, age, sex, category,
+ *           expected seconds, department, arrival nano-of-day)
+ *
+ * Import reads the file on the calling thread in chunks of smartqueue.import.chunk lines or records
+ * and parses and validates the chunks in parallel on the common pool into compact columns. Patients
+ * are then created in file order, so tokens follow the file, and added with one
+ * QueueManager.addPatients call: one lock, one heapify and one bulk index build per department.
+ * Invalid lines are skipped and reported by line number.
+ *
+ * Waiting patients are exported from the published QueueSnapshot in serving order (department by
+ * department) in either format, without holding any queue lock; the served history is streamed
+ * row by row from ServedHistory as CSV. Exports go to a temporary file that replaces the target at the end.
+ */
+public final class PatientTransfer {
+
+    /** Default file for import and export of the waiting queue, in the data directory. */
+    public static final String PATIENTS_FILE = "patients_log.txt";
+    /** Default file for the served history export, in the data directory. */
+    public static final String SERVED_FILE = "served_log.txt";
+    /** Registrations that were accepted but could not be queued, in the import format. */
+    public static final String REJECTED_FILE = "registrations_rejected.txt";
+
+    private static final int MAGIC = 0x53515054; // "SQPT"
+    private static final int VERSION = 1;
+    private static final int MAX_ERRORS = 20;
+    private static final Patient.Category[] CATEGORIES = Patient.Category.values();
+
+    /** What an import did. */
+    public static final class Result {
+        private final int imported;
+        private final int rejected;
+        private final List<String> errors;
+        private final double millis;
+
+        Result(int imported, int rejected, List<String> errors, double millis) {
+            this.imported = imported;
+            this.rejected = rejected;
+            this.errors = errors;
+            this.millis = millis;
+        }
+
+        public int getImported() { return imported; }
+        public int getRejected() { return rejected; }
+        /** The first few problems, as "line N: reason". */
+        public List<String> getErrors() { return errors; }
+        public double getMillis() { return millis; }
+
+        @Override
+        public String toString() {
+            return String.format("%d imported, %d rejected in %.0f ms", imported, rejected, millis);
+        }
+    }
+
+    private PatientTransfer() {
+    }
+
+    /** Imports the file named by -Dsmartqueue.import into manager, if set; returns null otherwise. */
+    public static Result importIfConfigured(QueueManager manager) {
+        String file = System.getProperty("smartqueue.import");
+        if (file == null) return null;
+        try {
+            Result r = importFile(manager, Path.of(file));
+            System.out.println("📥 " + file + ": " + r);
+            for (String e : r.getErrors()) System.out.println("   ⚠ " + e);
+            return r;
+        } catch (IOException e) {
+            System.err.println("⚠ Import of " + file + " failed: " + e.getMessage());
+            return null;
+        }
+    }
+
+    public static Path defaultFile(String name) {
+        return LogWriter.dataDirectory().resolve(name);
+    }
+
+    // -------------------- IMPORT --------------------
+    public static Result importFile(QueueManager manager, Path file) throws IOException {
+        long start = System.nanoTime();
+        int chunkSize = Math.max(1, Integer.getInteger("smartqueue.import.chunk", 4096));
+        DepartmentQueues departments = manager.getDepartments();
+        List<CompletableFuture<Parsed>> chunks = new ArrayList<>();
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file), 1 << 16)) {
+            if (isBinary(file)) readBinary(in, chunkSize, departments, chunks);
+            else readCsv(in, chunkSize, departments, chunks);
+        }
+
+        // Chunks were parsed out of order; patients are created in file order
+        List<Patient> batch = new ArrayList<>();
+        List<String> errors = new ArrayList<>();
+        int rejected = 0;
+        for (CompletableFuture<Parsed> f : chunks) {
+            Parsed p = f.join();
+            for (int i = 0; i < p.count; i++) batch.add(p.toPatient(i));
+            rejected += p.rejected;
+            for (String e : p.errors) if (errors.size() < MAX_ERRORS) errors.add(e);
+        }
+        manager.addPatients(batch);
+        return new Result(batch.size(), rejected, errors, (System.nanoTime() - start) / 1e6);
+    }
+
+    private static void readCsv(InputStream in, int chunkSize, DepartmentQueues departments,
+                                List<CompletableFuture<Parsed>> chunks) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        List<String> lines = new ArrayList<>(chunkSize);
+        int firstLine = 1;
+        int lineNo = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNo++;
+            lines.add(line);
+            if (lines.size() == chunkSize) {
+                chunks.add(parseAsync(lines, firstLine, departments));
+                lines = new ArrayList<>(chunkSize);
+                firstLine = lineNo + 1;
+            }
+        }
+        if (!lines.isEmpty()) chunks.add(parseAsync(lines, firstLine, departments));
+    }
+
+    private static CompletableFuture<Parsed> parseAsync(List<String> lines, int firstLine, DepartmentQueues departments) {
+        return CompletableFuture.supplyAsync(() -> {
+            Parsed out = new Parsed(lines.size(), departments);
+            for (int i = 0; i < lines.size(); i++) out.csv(lines.get(i), firstLine + i);
+            return out;
+        });
+    }
+
+    // Splits the stream into records by their length prefix only; decoding happens on the pool
+    private static void readBinary(InputStream in, int chunkSize, DepartmentQueues departments,
+                                   List<CompletableFuture<Parsed>> chunks) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC) throw new IOException("Not a patient export (bad magic)");
+        int version = data.readInt();
+        if (version != VERSION) throw new IOException("Unsupported patient export version " + version);
+        List<byte[]> records = new ArrayList<>(chunkSize);
+        int firstRecord = 1;
+        int recordNo = 0;
+        while (true) {
+            int length;
+            try {
+                length = data.readUnsignedShort();
+            } catch (EOFException end) {
+                break;
+            }
+            byte[] record = new byte[length];
+            data.readFully(record);
+            recordNo++;
+            records.add(record);
+            if (records.size() == chunkSize) {
+                chunks.add(decodeAsync(records, firstRecord, departments));
+                records = new ArrayList<>(chunkSize);
+                firstRecord = recordNo + 1;
+            }
+        }
+        if (!records.isEmpty()) chunks.add(decodeAsync(records, firstRecord, departments));
+    }
+
+    private static CompletableFuture<Parsed> decodeAsync(List<byte[]> records, int firstRecord, DepartmentQueues departments) {
+        return CompletableFuture.supplyAsync(() -> {
+            Parsed out = new Parsed(records.size(), departments);
+            for (int i = 0; i < records.size(); i++) out.binary(records.get(i), firstRecord + i);
+            return out;
+        });
+    }
+
+    /** One chunk's valid patients as columns, plus what was wrong with the rest. */
+    private static final class Parsed {
+        final DepartmentQueues departments;
+        final String[] names, sexes, categories, departmentNames;
+        final int[] ages;
+        final long[] expected;  // 0: keep Patient's default
+        final long[] arrivals;  // nano of day, -1: now
+        final List<String> errors = new ArrayList<>();
+        int count;
+        int rejected;
+
+        Parsed(int capacity, DepartmentQueues departments) {
+            this.departments = departments;
+            names = new String[capacity];
+            sexes = new String[capacity];
+            categories = new String[capacity];
+            departmentNames = new String[capacity];
+            ages = new int[capacity];
+            expected = new long[capacity];
+            arrivals = new long[capacity];
+        }
+
+        // Same fields and checks as a kiosk line, plus the appointment time
+        void csv(String line, int lineNo) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) return;
+            String[] parts = line.split(",", -1);
+            if (parts.length < 4 || parts.length > 7) {
+                reject(lineNo, "expected name,age,sex,category[,expectedSeconds[,department[,arrival]]]");
+                return;
+            }
+            try {
+                long seconds = parts.length >= 5 && !parts[4].isBlank() ? Long.parseLong(parts[4].trim()) : 0;
+                if (parts.length >= 5 && !parts[4].isBlank() && seconds <= 0) {
+                    reject(lineNo, "invalid expected time");
+                    return;
+                }
+                long arrival = parts.length == 7 && !parts[6].isBlank() ? LocalTime.parse(parts[6].trim()).toNanoOfDay() : -1;
+                accept(lineNo, parts[0].trim(), Integer.parseInt(parts[1].trim()), parts[2].trim(), parts[3].trim(),
+                        seconds, parts.length >= 6 ? parts[5].trim() : "", arrival);
+            } catch (NumberFormatException e) {
+                reject(lineNo, "invalid number");
+            } catch (DateTimeParseException e) {
+                reject(lineNo, "invalid arrival time");
+            }
+        }
+
+        void binary(byte[] record, int recordNo) {
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(record))) {
+                String name = in.readUTF();
+                int age = in.readUnsignedByte();
+                String sex = in.readUTF();
+                int category = in.readUnsignedByte();
+                long seconds = in.readInt();
+                String department = in.readUTF();
+                long arrival = in.readLong();
+                if (category >= CATEGORIES.length || seconds < 0) {
+                    reject(recordNo, "invalid category or expected time");
+                    return;
+                }
+                accept(recordNo, name, age, sex, CATEGORIES[category].getLabel(), seconds, department, arrival);
+            } catch (IOException e) {
+                reject(recordNo, "truncated record");
+            }
+        }
+
+        private void accept(int lineNo, String name, int age, String sex, String category,
+                            long seconds, String department, long arrival) {
+            if (name.isEmpty() || sex.isEmpty() || category.isEmpty()) {
+                reject(lineNo, "empty field");
+                return;
+            }
+            if (age < 0 || age > 130) {
+                reject(lineNo, "invalid age");
+                return;
+            }
+            if (!isCategory(category)) {
+                reject(lineNo, "unknown category " + category);
+                return;
+            }
+            String shard = null;
+            if (!department.isEmpty()) {
+                shard = departments.shardOf(department).getName();
+                if (!shard.equalsIgnoreCase(department)) {
+                    reject(lineNo, "unknown department " + department);
+                    return;
+                }
+            }
+            names[count] = name;
+            ages[count] = age;
+            sexes[count] = sex;
+            categories[count] = category;
+            expected[count] = seconds;
+            departmentNames[count] = shard;
+            arrivals[count] = arrival;
+            count++;
+        }
+
+        private void reject(int lineNo, String reason) {
+            rejected++;
+            if (errors.size() < MAX_ERRORS) errors.add("line " + lineNo + ": " + reason);
+        }
+
+        Patient toPatient(int i) {
+            Patient p = arrivals[i] >= 0
+                    ? new Patient(names[i], ages[i], sexes[i], categories[i], LocalTime.ofNanoOfDay(arrivals[i]))
+                    : new Patient(names[i], ages[i], sexes[i], categories[i]);
+            if (expected[i] > 0) p.setExpectedServeTime(expected[i]);
+            if (departmentNames[i] != null) p.setDepartment(departmentNames[i]);
+            return p;
+        }
+    }
+
+    private static boolean isCategory(String label) {
+        for (Patient.Category c : CATEGORIES) {
+            if (c.getLabel().equalsIgnoreCase(label)) return true;
+        }
+        return false;
+    }
+
+    // -------------------- EXPORT --------------------
+
+    /** Writes everyone waiting as of the latest snapshot, in serving order; returns the count. */
+    public static int exportWaiting(QueueManager manager, Path file) throws IOException {
+        QueueSnapshot snapshot = manager.snapshot();
+        boolean binary = isBinary(file);
+        int count = 0;
+        Path tmp = temporary(file);
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16)) {
+            if (binary) {
+                DataOutputStream data = new DataOutputStream(out);
+                data.writeInt(MAGIC);
+                data.writeInt(VERSION);
+                ByteArrayOutputStream record = new ByteArrayOutputStream(128);
+                DataOutputStream fields = new DataOutputStream(record);
+                for (QueueSnapshot.Department d : snapshot.getDepartments()) {
+                    for (QueueSnapshot.Row r : d.getWaiting()) {
+                        record.reset();
+                        fields.writeUTF(r.getName());
+                        fields.writeByte(Math.min(255, r.getAge()));
+                        fields.writeUTF(r.getSex());
+                        fields.writeByte(r.getCategoryType().ordinal());
+                        fields.writeInt((int) Math.min(Integer.MAX_VALUE, r.getExpectedServeTime()));
+                        fields.writeUTF(r.getDepartment());
+                        fields.writeLong(r.getArrivalTime().toNanoOfDay());
+                        if (record.size() > 0xFFFF) throw new IOException("Patient record too long: token " + r.getTokenNumber());
+                        data.writeShort(record.size());
+                        record.writeTo(data);
+                        count++;
+                    }
+                }
+                data.flush();
+            } else {
+                Writer w = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+                w.write("# name,age,sex,category,expectedSeconds,department,arrival\n");
+                StringBuilder line = new StringBuilder(96);
+                for (QueueSnapshot.Department d : snapshot.getDepartments()) {
+                    for (QueueSnapshot.Row r : d.getWaiting()) {
+                        w.append(csvLine(line, r.getName(), r.getAge(), r.getSex(), r.getCategory(),
+                                r.getExpectedServeTime(), r.getDepartment(), r.getArrivalTime()));
+                        count++;
+                    }
+                }
+                w.flush();
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return count;
+    }
+
+    /**
+     * Appends patients to a CSV file in the import format, keeping their arrival times, so a later
+     * import of that file queues them again; used to dead-letter registrations that could not be queued.
+     */
+    public static void appendPatients(Path file, Collection<Patient> patients) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        StringBuilder text = new StringBuilder(patients.size() * 64);
+        StringBuilder line = new StringBuilder(96);
+        for (Patient p : patients) {
+            text.append(csvLine(line, p.getName(), p.getAge(), p.getSex(), p.getCategory(),
+                    p.getExpectedServeTime(), p.getDepartment(), p.getArrivalTime()));
+        }
+        Files.writeString(file, text, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /** Writes the whole served history, oldest first, as CSV; returns the count. */
+    public static int exportServed(ServedHistory history, Path file) throws IOException {
+        int count = 0;
+        Path tmp = temporary(file);
+        try (Writer w = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(tmp), StandardCharsets.UTF_8), 1 << 16)) {
+            w.write("# token,name,age,sex,category,expectedSeconds,arrival,servedAt,waitSeconds,queueNumber\n");
+            StringBuilder line = new StringBuilder(112);
+            int rows = history.size(); // rows served after this point are left for the next export
+            for (int row = 0; row < rows; row++) {
+                PatientView p = history.get(row);
+                line.setLength(0);
+                line.append(p.getTokenNumber()).append(',');
+                field(line, p.getName()).append(',').append(p.getAge()).append(',');
+                field(line, p.getSex()).append(',').append(p.getCategory()).append(',')
+                        .append(p.getExpectedServeTime()).append(',')
+                        .append(p.getAddedTime()).append(',').append(p.getServedTimeString()).append(',')
+                        .append(p.getApproxWaitTime()).append(',').append(p.getQueueNumber()).append('\n');
+                w.append(line);
+                count++;
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return count;
+    }
+
+    // -------------------- HELPERS --------------------
+    private static boolean isBinary(Path file) {
+        return file.getFileName().toString().toLowerCase().endsWith(".bin");
+    }
+
+    private static Path temporary(Path file) throws IOException {
+        Path dir = file.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        return Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+    }
+
+    // name,age,sex,category,expectedSeconds,department,arrival and a newline, into a reused builder
+    private static StringBuilder csvLine(StringBuilder line, String name, int age, String sex, String category,
+                                         long expected, String department, LocalTime arrival) {
+        line.setLength(0);
+        field(line, name).append(',').append(age).append(',');
+        field(line, sex).append(',').append(category).append(',').append(expected).append(',');
+        return field(line, department).append(',').append(DisplayText.clock(arrival)).append('\n');
+    }
+
+    // The line format has no quoting: separators inside a value become spaces
+    private static StringBuilder field(StringBuilder sb, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            sb.append(c == ',' || c == '\n' || c == '\r' ? ' ' : c);
+        }
+        return sb;
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.smartqueuesystem;
+
+import java.time.LocalTime;
+
+/**
+ * Read-only patient getters shared by the live Patient object and the flyweight rows
+ * of a PatientStore, so lists, cells and logging work with either.
+ */
+public interface PatientView {
+
+    String getName();
+    int getAge();
+    String getSex();
+    String getCategory();
+    Patient.Category getCategoryType();
+    int getPriority();
+
+    int getTokenNumber();
+    int getQueueNumber();
+    long getApproxWaitTime();
+    long getExpectedServeTime();
+
+    boolean isBeingServed();
+    boolean isServed();
+
+    LocalTime getArrivalTime();
+    String getAddedTime();
+    LocalTime getServedTime();
+    String getServedTimeString();
+    String getFormattedWaitTime();
+    String getDetails();
+}
@@ -0,0 +1,44 @@
+package com.example.smartqueuesystem;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * Time source for the queue engine.
+ * The live engine uses SYSTEM; QueueSimulation drives a VirtualClock so a whole
+ * day can be replayed without waiting for it.
+ */
+public interface QueueClock {
+
+    QueueClock SYSTEM = new QueueClock() {
+        @Override
+        public long nowMillis() {
+            return System.currentTimeMillis();
+        }
+
+        @Override
+        public LocalTime localTime() {
+            return LocalTime.now();
+        }
+
+        @Override
+        public LocalDateTime localDateTime() {
+            return LocalDateTime.now();
+        }
+
+        @Override
+        public void sleep(long millis) throws InterruptedException {
+            Thread.sleep(millis);
+        }
+    };
+
+    long nowMillis();
+
+    /** Wall-clock time of day, used for arrival and served timestamps. */
+    LocalTime localTime();
+
+    /** localTime() with its date, read at once; a clock's day starts on the date it was created. */
+    LocalDateTime localDateTime();
+
+    void sleep(long millis) throws InterruptedException;
+}
@@ -0,0 +1,60 @@
+package com.example.smartqueuesystem;
+
+/**
+ * Stable reference to one registered patient, returned by QueueManager.addPatient
+ * (or looked up by token with QueueManager.handle). Every operation works on the patient's
+ * own slot in the queue in O(log n), adjusts the queue numbers and waits of everyone else
+ * through the wait-time index, and is logged and broadcast to listeners. Once the patient
+ * has been called to a desk, served or cancelled, the operations return false.
+ */
+public final class QueueHandle {
+
+    private final QueueManager manager;
+    private final Patient patient;
+
+    QueueHandle(QueueManager manager, Patient patient) {
+        this.manager = manager;
+        this.patient = patient;
+    }
+
+    public Patient getPatient() {
+        return patient;
+    }
+
+    public boolean isWaiting() {
+        return manager.queueOf(patient).contains(patient);
+    }
+
+    /** 1-based position in serving order, or 0 when no longer waiting. */
+    public int getQueueNumber() {
+        return manager.queueOf(patient).positionOf(patient);
+    }
+
+    /** Approximate seconds until called, or -1 when no longer waiting. */
+    public long getWaitTime() {
+        return manager.queueOf(patient).waitTimeOf(patient);
+    }
+
+    /** Takes the patient off the queue, e.g. "no-show" or "walked out". */
+    public boolean cancel(String reason) {
+        return manager.cancel(patient, reason);
+    }
+
+    /** Moves the patient to another triage class, e.g. after reassessment. */
+    public boolean changeCategory(Patient.Category category) {
+        return manager.changeCategory(patient, category);
+    }
+
+    public boolean escalate() {
+        return changeCategory(Patient.Category.EMERGENCY);
+    }
+
+    public boolean updateExpectedServeTime(long seconds) {
+        return manager.updateExpectedServeTime(patient, seconds);
+    }
+
+    @Override
+    public String toString() {
+        return "QueueHandle[token " + patient.getTokenNumber() + "]";
+    }
+}
@@ -0,0 +1,432 @@
+package com.example.smartqueuesystem;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Crash-recoverable write-behind journal of queue state.
+ * Registered as a QueueListener, it appends one compact binary record per add, cancel, edit,
+ * serve-start, serve-complete and delay event to an append-only file. Every
+ * smartqueue.journal.snapshotEvery records the journal rolls to a new generation and a background
+ * thread writes the state the sealed one leads to (waiting and in-service patients, last token)
+ * as a snapshot, so recovery loads the snapshot and replays only the short tail after it.
+ *
+ * Write-behind, not write-ahead: listeners hear of a change after the engine has made it, and a
+ * record reaches the disk when the OS writes its cached page back. A crash of the process loses
+ * nothing already appended, but a power loss can lose the last events, including registrations a
+ * kiosk has already acknowledged. -Dsmartqueue.journal.sync=true forces every record to disk
+ * before the engine carries on, at the cost of one flush per event.
+ *
+ * Files live in LogWriter.dataDirectory():
+ *   queue.snapshot         state covering every journal generation up to the one it names
+ *   journal-&lt;gen&gt;.bin      records after that, each [length][crc32][body]
+ *
+ * A record torn by a crash fails its length or CRC check and ends the replay there. Nothing is
+ * memory-mapped: records go out as positional channel writes and are replayed from the heap, so
+ * sealed generations can be deleted on Windows, where a mapped file can be neither truncated nor
+ * deleted until the mapping is garbage-collected.
+ */
+public class QueueJournal implements QueueListener, AutoCloseable {
+
+    private static final byte ADD = 1, SERVE_START = 2, SERVED = 3, DELAY = 4, CANCELLED = 5, UPDATED = 6;
+    private static final int SNAPSHOT_MAGIC = 0x53514A53; // "SQJS"
+    private static final int SNAPSHOT_VERSION = 2;        // 2 added the department; 1 still reads
+    private static final int MAX_RECORD = 4096;
+    private static final int MAX_STRING = 1000;           // UTF-8 bytes kept per string; four of them fit a record
+
+    /** Latest journaled facts about one unserved patient. */
+    private static final class Entry {
+        final int token;
+        final String name;
+        final int age;
+        final String sex;
+        final String category;
+        final long arrivalNanoOfDay;
+        final long expected;
+        final String department;
+        final int desk;  // 0 while waiting
+
+        // Immutable, so a snapshot can take the entries as they are and write them on another thread
+        Entry(int token, String name, int age, String sex, String category, long arrivalNanoOfDay, long expected,
+              String department, int desk) {
+            this.token = token;
+            this.department = department;
+            this.desk = desk;
+            this.name = name;
+            this.age = age;
+            this.sex = sex;
+            this.category = category;
+            this.arrivalNanoOfDay = arrivalNanoOfDay;
+            this.expected = expected;
+        }
+
+        Entry(Patient p) {
+            this(p.getTokenNumber(), p.getName(), p.getAge(), p.getSex(), p.getCategory(),
+                    p.getArrivalTime().toNanoOfDay(), p.getExpectedServeTime(), p.getDepartment(), 0);
+        }
+
+        Entry with(String category, long expected, String department, int desk) {
+            return new Entry(token, name, age, sex, category, arrivalNanoOfDay, expected, department, desk);
+        }
+
+        Patient toPatient() {
+            Patient p = new Patient(token, name, age, sex, category, LocalTime.ofNanoOfDay(arrivalNanoOfDay), expected);
+            p.setDepartment(department);
+            return p;
+        }
+    }
+
+    private final Path dir;
+    private final int snapshotEvery;
+    private final boolean syncOnAppend;
+
+    // Shadow of the engine state, rebuilt from snapshot + tail and kept current on every append
+    private final Map<Integer, Entry> unserved = new LinkedHashMap<>();
+    private int lastToken;
+
+    private final ByteBuffer scratch = ByteBuffer.allocateDirect(8 + MAX_RECORD); // [length][crc32][body]
+    private final CRC32 crc = new CRC32();
+    private long generation;
+    private FileChannel channel;
+    private long position;
+    private int sinceSnapshot;
+
+    // Snapshots are written here, in roll order, so append never waits on the file system
+    private final ExecutorService snapshots = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "journal-snapshot");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private long replayedRecords;
+    private long recoveryNanos;
+
+    /** Opens the journal in the data directory, recovering whatever an earlier run left behind. */
+    public static QueueJournal open() throws IOException {
+        return new QueueJournal(LogWriter.dataDirectory(),
+                Integer.getInteger("smartqueue.journal.snapshotEvery", 10_000),
+                Boolean.getBoolean("smartqueue.journal.sync"));
+    }
+
+    /**
+     * Restores recovered patients into manager and starts journaling its events.
+     * Returns null when disabled with -Dsmartqueue.journal=false or when the journal can't be opened.
+     */
+    public static QueueJournal attach(QueueManager manager) {
+        if (!Boolean.parseBoolean(System.getProperty("smartqueue.journal", "true"))) return null;
+        QueueJournal journal;
+        try {
+            journal = open();
+        } catch (IOException e) {
+            System.err.println("⚠ Journal unavailable, running without crash recovery: " + e.getMessage());
+            return null;
+        }
+        List<Patient> recovered = journal.recoveredPatients();
+        for (Patient p : recovered) manager.restorePatient(p); // before attaching, so nothing is journaled twice
+        manager.addListener(journal);
+        Runtime.getRuntime().addShutdownHook(new Thread(journal::close, "journal-shutdown"));
+        if (!recovered.isEmpty() || journal.getReplayedRecords() > 0) {
+            System.out.printf("♻ Recovered %d patient(s) from %d journal record(s) in %.1f ms%n",
+                    recovered.size(), journal.getReplayedRecords(), journal.getRecoveryMillis());
+        }
+        return journal;
+    }
+
+    public QueueJournal(Path dir, int snapshotEvery, boolean syncOnAppend) throws IOException {
+        this.dir = dir;
+        this.snapshotEvery = Math.max(1, snapshotEvery);
+        this.syncOnAppend = syncOnAppend;
+        Files.createDirectories(dir);
+
+        long start = System.nanoTime();
+        long covered = readSnapshot();
+        long newest = covered;
+        for (long gen : generations()) {
+            if (gen <= covered) continue;
+            replay(journalFile(gen));
+            newest = gen;
+        }
+        recoveryNanos = System.nanoTime() - start;
+
+        Patient.resumeTokensAfter(lastToken);
+        generation = newest;
+        // Fold the replayed tail into a fresh snapshot so the next restart starts from here
+        if (newest > covered || replayedRecords > 0) writeSnapshot(newest, lastToken, unserved.values());
+        startGeneration(generation + 1);
+    }
+
+    // -------------------- RECOVERY --------------------
+
+    /** Patients that were waiting or mid-service when the last run stopped, in arrival order. */
+    public synchronized List<Patient> recoveredPatients() {
+        List<Patient> out = new ArrayList<>(unserved.size());
+        for (Entry e : unserved.values()) out.add(e.toPatient());
+        return out;
+    }
+
+    public long getReplayedRecords() { return replayedRecords; }
+    public double getRecoveryMillis() { return recoveryNanos / 1e6; }
+
+    private long readSnapshot() throws IOException {
+        Path file = dir.resolve("queue.snapshot");
+        if (!Files.exists(file)) return 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            int version = in.readInt() == SNAPSHOT_MAGIC ? in.readInt() : -1;
+            if (version < 1 || version > SNAPSHOT_VERSION) throw new IOException("Unrecognised snapshot " + file);
+            long covered = in.readLong();
+            lastToken = in.readInt();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                Entry e = new Entry(in.readInt(), in.readUTF(), in.readInt(), in.readUTF(), in.readUTF(),
+                        in.readLong(), in.readLong(), DepartmentQueues.DEFAULT_DEPARTMENT, 0);
+                int desk = in.readInt();
+                e = e.with(e.category, e.expected, version >= 2 ? in.readUTF() : e.department, desk);
+                unserved.put(e.token, e);
+            }
+            return covered;
+        }
+    }
+
+    private void replay(Path file) throws IOException {
+        // Read onto the heap rather than mapped: a mapped file can't be truncated or deleted on Windows
+        ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(file));
+        while (buf.remaining() >= 8) {
+            int length = buf.getInt();
+            int checksum = buf.getInt();
+            if (length <= 0 || length > MAX_RECORD || length > buf.remaining()) break; // end or torn tail
+            ByteBuffer body = buf.slice(buf.position(), length);
+            crc.reset();
+            crc.update(body.duplicate());
+            if ((int) crc.getValue() != checksum) break;
+            apply(body);
+            buf.position(buf.position() + length);
+            replayedRecords++;
+        }
+    }
+
+    // Same state transition for live appends and replay, so the shadow can never disagree with the file
+    private void apply(ByteBuffer body) {
+        byte type = body.get();
+        int token = body.getInt();
+        switch (type) {
+            case ADD -> {
+                Entry e = new Entry(token, getString(body), body.getInt(), getString(body), getString(body),
+                        body.getLong(), body.getLong(),
+                        body.hasRemaining() ? getString(body) : DepartmentQueues.DEFAULT_DEPARTMENT, 0);
+                unserved.put(token, e);
+                lastToken = Math.max(lastToken, token);
+            }
+            case SERVE_START -> {
+                Entry e = unserved.get(token);
+                if (e != null) unserved.put(token, e.with(e.category, e.expected, e.department, body.getInt()));
+            }
+            case SERVED -> unserved.remove(token);
+            case DELAY -> { } // desk deadlines restart with the queue; kept for the audit trail
+            case CANCELLED -> unserved.remove(token);
+            case UPDATED -> {
+                Entry e = unserved.get(token);
+                String category = getString(body);
+                long expected = body.getLong();
+                if (e != null) unserved.put(token, e.with(category, expected, e.department, e.desk));
+            }
+            default -> throw new IllegalStateException("Unknown journal record " + type);
+        }
+    }
+
+    // -------------------- LISTENER (engine threads) --------------------
+    @Override
+    public void onPatientAdded(Patient p) {
+        Entry e = new Entry(p);
+        append(ADD, e.token, b -> {
+            putString(b, e.name);
+            b.putInt(e.age);
+            putString(b, e.sex);
+            putString(b, e.category);
+            b.putLong(e.arrivalNanoOfDay);
+            b.putLong(e.expected);
+            putString(b, e.department);
+        });
+    }
+
+    @Override
+    public void onPatientCancelled(Patient p, String reason) {
+        append(CANCELLED, p.getTokenNumber(), b -> putString(b, reason));
+    }
+
+    @Override
+    public void onPatientUpdated(Patient p, Patient.Category previousCategory, long previousExpected) {
+        String category = p.getCategory();
+        long expected = p.getExpectedServeTime();
+        append(UPDATED, p.getTokenNumber(), b -> {
+            putString(b, category);
+            b.putLong(expected);
+        });
+    }
+
+    @Override
+    public void onServingStarted(int desk, Patient p, long expected) {
+        append(SERVE_START, p.getTokenNumber(), b -> b.putInt(desk));
+    }
+
+    @Override
+    public void onServed(int desk, Patient p) {
+        append(SERVED, p.getTokenNumber(), b -> b.putInt(desk));
+    }
+
+    @Override
+    public void onDelayChanged(int desk, long seconds) {
+        append(DELAY, 0, b -> {
+            b.putInt(desk);
+            b.putLong(seconds);
+        });
+    }
+
+    private interface Payload {
+        void write(ByteBuffer b);
+    }
+
+    private synchronized void append(byte type, int token, Payload payload) {
+        if (channel == null) return; // closed
+        scratch.clear().position(8);
+        scratch.put(type).putInt(token);
+        payload.write(scratch);
+        scratch.flip();
+        int length = scratch.limit() - 8;
+        ByteBuffer body = scratch.slice(8, length);
+        apply(body.duplicate());
+
+        crc.reset();
+        crc.update(body);
+        scratch.putInt(0, length).putInt(4, (int) crc.getValue());
+        try {
+            // One positional write per record: in the OS cache when append returns, so a process crash loses nothing
+            while (scratch.hasRemaining()) position += channel.write(scratch, position);
+            if (syncOnAppend) channel.force(false);
+            if (++sinceSnapshot >= snapshotEvery) roll();
+        } catch (IOException e) {
+            System.err.println("⚠ Journal write failed: " + e.getMessage());
+        }
+    }
+
+    // -------------------- FILES --------------------
+    private void startGeneration(long gen) throws IOException {
+        generation = gen;
+        channel = FileChannel.open(journalFile(gen), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        position = 0;
+        sinceSnapshot = 0;
+    }
+
+    /**
+     * Seals the current generation and continues in a new file. What the snapshot needs is taken
+     * here, under the append lock, as an O(n) copy of references to immutable entries; flushing the
+     * sealed file and writing the snapshot happen on the snapshot thread.
+     */
+    private void roll() throws IOException {
+        Runnable seal = seal();
+        startGeneration(generation + 1);
+        snapshots.execute(seal);
+    }
+
+    private Runnable seal() {
+        long sealed = generation;
+        FileChannel ch = channel;
+        int token = lastToken;
+        List<Entry> state = new ArrayList<>(unserved.values());
+        channel = null;
+        return () -> {
+            try {
+                // Nothing is mapped, so the sealed file can be closed here and deleted once a snapshot covers it
+                ch.force(false);
+                ch.close();
+                writeSnapshot(sealed, token, state);
+            } catch (IOException e) {
+                // Recovery still works from the older snapshot and the journal files it doesn't cover
+                System.err.println("⚠ Journal snapshot failed: " + e.getMessage());
+            }
+        };
+    }
+
+    private void writeSnapshot(long covered, int token, Collection<Entry> entries) throws IOException {
+        Path tmp = dir.resolve("queue.snapshot.tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeLong(covered);
+            out.writeInt(token);
+            out.writeInt(entries.size());
+            for (Entry e : entries) {
+                out.writeInt(e.token);
+                out.writeUTF(e.name);
+                out.writeInt(e.age);
+                out.writeUTF(e.sex);
+                out.writeUTF(e.category);
+                out.writeLong(e.arrivalNanoOfDay);
+                out.writeLong(e.expected);
+                out.writeInt(e.desk);
+                out.writeUTF(e.department);
+            }
+        }
+        Files.move(tmp, dir.resolve("queue.snapshot"),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        for (long gen : generations()) {
+            if (gen <= covered) Files.deleteIfExists(journalFile(gen));
+        }
+    }
+
+    private Path journalFile(long gen) {
+        return dir.resolve("journal-" + gen + ".bin");
+    }
+
+    private List<Long> generations() throws IOException {
+        List<Long> gens = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "journal-*.bin")) {
+            for (Path f : files) {
+                String n = f.getFileName().toString();
+                try {
+                    gens.add(Long.parseLong(n.substring("journal-".length(), n.length() - ".bin".length())));
+                } catch (NumberFormatException ignored) {
+                    // not one of ours
+                }
+            }
+        }
+        Collections.sort(gens);
+        return gens;
+    }
+
+    private static void putString(ByteBuffer b, String s) {
+        byte[] bytes = (s == null ? "" : s).getBytes(StandardCharsets.UTF_8);
+        int n = Math.min(bytes.length, MAX_STRING);
+        // Cut before a character, never inside one: back off continuation bytes (10xxxxxx)
+        while (n < bytes.length && n > 0 && (bytes[n] & 0xC0) == 0x80) n--;
+        b.putShort((short) n).put(bytes, 0, n);
+    }
+
+    private static String getString(ByteBuffer b) {
+        byte[] bytes = new byte[b.getShort() & 0xFFFF];
+        b.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** Seals the journal into a snapshot, so a clean shutdown restarts without any replay. */
+    @Override
+    public synchronized void close() {
+        if (channel == null) return;
+        snapshots.execute(seal());
+        snapshots.shutdown();
+        try {
+            if (!snapshots.awaitTermination(30, TimeUnit.SECONDS)) System.err.println("⚠ Journal close timed out");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
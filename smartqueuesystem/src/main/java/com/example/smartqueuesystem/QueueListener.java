@@ -0,0 +1,42 @@
+package com.example.smartqueuesystem;
+
+/**
+ * Receives events from a QueueManager.
+ * Callbacks run on the engine's own threads (desk threads, or the caller of addPatient),
+ * so UI subscribers must hop to their toolkit thread themselves.
+ * Every method has an empty default; implement only what you need.
+ */
+public interface QueueListener {
+
+    default void onQueueStarted() {}
+
+    default void onPatientAdded(Patient p) {}
+
+    /** The patient left the waiting queue without being served (walked out, no-show). */
+    default void onPatientCancelled(Patient p, String reason) {}
+
+    /** A waiting patient's category or expected serve time was edited; p already holds the new values. */
+    default void onPatientUpdated(Patient p, Patient.Category previousCategory, long previousExpected) {}
+
+    /** A desk called the patient; it has already left the waiting queue. */
+    default void onServingStarted(int desk, Patient p, long expected) {}
+
+    /** Fired once per elapsed second while a desk is serving. */
+    default void onServingProgress(int desk, Patient p, long elapsed, long expected) {}
+
+    default void onServed(int desk, Patient p) {}
+
+    /** A desk's expected finish moved: positive for an overrun, negative for an early-finish correction. */
+    default void onDelayChanged(int desk, long seconds) {}
+
+    /** The scheduling policy changed: every waiting patient may have a new sort key and place. */
+    default void onOrderChanged() {}
+
+    /** Queue numbers or wait times of waiting patients may have changed. */
+    default void onWaitTimesChanged() {}
+
+    default void onQueueCompleted(long totalServed, long totalServeTime) {}
+
+    /** A new QueueSnapshot replaced the previous one; called on the snapshot publisher's thread. */
+    default void onSnapshotPublished(QueueSnapshot snapshot) {}
+}
@@ -1,269 +1,523 @@
 package com.example.smartqueuesystem;
 
-import javafx.application.Platform;
-import javafx.collections.ObservableList;
-import javafx.scene.control.*;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.io.File;
-import java.time.LocalTime;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.concurrent.PriorityBlockingQueue;
-
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Headless queue engine: scheduling, wait-time bookkeeping and logging.
+ * It has no JavaFX dependency; UIs, servers and tests observe it through QueueListener.
+ *
+ * Patients wait in per-department queues (DepartmentQueues). Every desk belongs to a home
+ * department and calls from it first; a desk whose department has nobody waiting steals the
+ * head of the department under the most pressure, so idle desks help overloaded ones.
+ */
 public class QueueManager implements Runnable {
 
-    private final PriorityBlockingQueue<Patient> queue;
-    private final Comparator<Patient> priorityComparator;
-    private final ObservableList<Patient> waitingPatients;
-    private final ObservableList<Patient> servedPatients;
-    private final ListView<Patient> waitingList;
-    private final ListView<Patient> servedList;
-    private final TextArea detailsArea;
-    private final TextArea currentServingArea;
-    private final Label statusLabel;
-
-    private boolean running = false;
-    private Patient currentServing = null;
-    private long currentRemainingTime = 0;
-
-    private long totalServed = 0;
-    private long totalServeTime = 0;
-
-    private static final String LOG_PATH = "E:\\downloads\\smartqueuesystem\\data\\queue_log.txt";
-
-    public QueueManager(
-            PriorityBlockingQueue<Patient> queue,
-            Comparator<Patient> priorityComparator,
-            ObservableList<Patient> waitingPatients,
-            ObservableList<Patient> servedPatients,
-            ListView<Patient> waitingList,
-            ListView<Patient> servedList,
-            TextArea detailsArea,
-            TextArea currentServingArea,
-            Label statusLabel
-    ) {
-        this.queue = queue;
-        this.priorityComparator = priorityComparator;
-        this.waitingPatients = waitingPatients;
-        this.servedPatients = servedPatients;
-        this.waitingList = waitingList;
-        this.servedList = servedList;
-        this.detailsArea = detailsArea;
-        this.currentServingArea = currentServingArea;
-        this.statusLabel = statusLabel;
-        ensureDirectoryExists();
+    private final DepartmentQueues departments;
+    private final PatientQueue queue;  // the first department's, for single-department callers
+    private final QueueClock clock;
+    private final List<QueueListener> listeners = new CopyOnWriteArrayList<>();
+    private final Map<Integer, Patient> waitingByToken = new ConcurrentHashMap<>();
+
+    private final int deskCount;
+    private final ServiceDesk[] desks;
+
+    private volatile boolean running = false;
+    private volatile boolean stopped = false;   // stop() was called or run() returned; the publisher winds down
+    private volatile boolean keepOpen = false;
+    private volatile VisitDuration visitDuration = ServiceTiming::actualDuration;
+
+    private final ServeTimeEstimator estimator = ServeTimeEstimator.configured();
+    private final AtomicLong totalServed = new AtomicLong();
+    private final AtomicLong totalServeTime = new AtomicLong();
+    private final AtomicLong stolen = new AtomicLong();
+
+    private final AtomicReference<QueueSnapshot> snapshot = new AtomicReference<>();
+    private final AtomicBoolean snapshotStale = new AtomicBoolean(true);
+    private final AtomicBoolean publisherStarted = new AtomicBoolean();
+    private final Object snapshotLock = new Object(); // one builder at a time, so versions stay in order
+    private long snapshotVersion;        // guarded by snapshotLock
+
+    public QueueManager(PatientQueue queue) {
+        this(queue,
+                Integer.getInteger("smartqueue.desks", 1),
+                Integer.getInteger("smartqueue.emergencyDesks", 0));
+    }
+
+    /**
+     * @param deskCount      number of service counters pulling from the shared queue
+     * @param emergencyDesks how many of those counters only take Emergency patients
+     */
+    public QueueManager(PatientQueue queue, int deskCount, int emergencyDesks) {
+        this(queue, deskCount, emergencyDesks, QueueClock.SYSTEM);
+    }
+
+    public QueueManager(PatientQueue queue, int deskCount, int emergencyDesks, QueueClock clock) {
+        this(DepartmentQueues.single(queue, Math.max(1, deskCount)), emergencyDesks, clock);
+    }
+
+    /**
+     * @param departments    per-department queues and their desk counts
+     * @param emergencyDesks how many desks (the first department's first) only take Emergency patients
+     */
+    public QueueManager(DepartmentQueues departments, int emergencyDesks, QueueClock clock) {
+        this.departments = departments;
+        this.queue = departments.get(0).getQueue();
+        this.clock = clock;
+        this.deskCount = departments.totalDesks();
+        int emergencyOnly = Math.max(0, Math.min(emergencyDesks, this.deskCount - 1));
+        this.desks = new ServiceDesk[this.deskCount];
+        int d = 0;
+        for (DepartmentQueues.Shard shard : departments) {
+            for (int local = 1; local <= shard.getDesks(); local++, d++) {
+                desks[d] = new ServiceDesk(d + 1, shard, local, d < emergencyOnly);
+            }
+            // Its emergency-only desks are its first ones, so they are left out of everyone else's ETA
+            shard.getQueue().setEmergencyServers(Math.max(0, Math.min(emergencyOnly - (d - shard.getDesks()), shard.getDesks())));
+        }
+    }
+
+    /** Departments from smartqueue.departments (or one OPD with smartqueue.desks), on the system clock. */
+    public static QueueManager configured() {
+        return new QueueManager(DepartmentQueues.configured(QueueClock.SYSTEM),
+                Integer.getInteger("smartqueue.emergencyDesks", 0), QueueClock.SYSTEM);
+    }
+
+    public void addListener(QueueListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(QueueListener listener) {
+        listeners.remove(listener);
+    }
+
+    // Register a patient (before or after the queue starts); the handle cancels or edits it later
+    public QueueHandle addPatient(Patient patient) {
+        estimateServeTime(patient);
+        queueOf(patient).add(patient);
+        waitingByToken.put(patient.getTokenNumber(), patient);
+        logPatientEvent("🟢 Patient Added", patient);
+        for (QueueListener l : listeners) l.onPatientAdded(patient);
+        fireWaitTimesChanged();
+        return new QueueHandle(this, patient);
+    }
+
+    /** Adds a batch (e.g. drained from kiosk registrations) with one lock per department and one wait-time update. */
+    public void addPatients(Collection<Patient> batch) {
+        if (batch.isEmpty()) return;
+        for (Patient p : batch) estimateServeTime(p);
+        if (departments.size() == 1) {
+            queue.addAll(batch);
+        } else {
+            Map<DepartmentQueues.Shard, List<Patient>> byShard = new LinkedHashMap<>();
+            for (Patient p : batch) byShard.computeIfAbsent(departments.shardOf(p), s -> new ArrayList<>()).add(p);
+            for (Map.Entry<DepartmentQueues.Shard, List<Patient>> e : byShard.entrySet()) e.getKey().getQueue().addAll(e.getValue());
+        }
+        for (Patient patient : batch) {
+            waitingByToken.put(patient.getTokenNumber(), patient);
+            logPatientEvent("🟢 Patient Added", patient);
+            for (QueueListener l : listeners) l.onPatientAdded(patient);
+        }
+        fireWaitTimesChanged();
+    }
+
+    // Put back a patient recovered from the journal after a restart; listeners see a normal add
+    public void restorePatient(Patient patient) {
+        queueOf(patient).add(patient);
+        waitingByToken.put(patient.getTokenNumber(), patient);
+        logPatientEvent("♻ Patient Restored", patient);
+        for (QueueListener l : listeners) l.onPatientAdded(patient);
+        fireWaitTimesChanged();
+    }
+
+    // Patients nobody gave a duration get the estimator's current guess for their category and age
+    private void estimateServeTime(Patient patient) {
+        if (!patient.isExpectedServeTimeGiven()) patient.estimateServeTime(estimator.estimate(patient));
+    }
+
+    // -------------------- EDITS TO WAITING PATIENTS --------------------
+    // Each one is an O(log n) operation on the patient's heap slot and wait-time index node;
+    // all return false once the patient has been called, served or cancelled.
+
+    /** Handle of a waiting patient by token, or null if no such patient is waiting. */
+    public QueueHandle handle(int token) {
+        Patient p = waitingByToken.get(token);
+        return p == null ? null : new QueueHandle(this, p);
     }
 
+    public boolean cancel(Patient patient, String reason) {
+        if (!queueOf(patient).remove(patient)) return false;
+        waitingByToken.remove(patient.getTokenNumber(), patient);
+        logPatientEvent("❌ Patient Cancelled (" + reason + ")", patient);
+        for (QueueListener l : listeners) l.onPatientCancelled(patient, reason);
+        fireWaitTimesChanged();
+        return true;
+    }
+
+    public boolean changeCategory(Patient patient, Patient.Category category) {
+        Patient.Category previous = patient.getCategoryType();
+        PatientQueue q = queueOf(patient);
+        if (previous == category) return q.contains(patient);
+        if (!q.update(patient, p -> p.setCategory(category))) return false;
+        logPatientEvent("🔺 Category Changed from " + previous, patient);
+        for (QueueListener l : listeners) l.onPatientUpdated(patient, previous, patient.getExpectedServeTime());
+        fireWaitTimesChanged();
+        return true;
+    }
+
+    public boolean updateExpectedServeTime(Patient patient, long seconds) {
+        long previous = patient.getExpectedServeTime();
+        if (!queueOf(patient).update(patient, p -> p.setExpectedServeTime(seconds))) return false;
+        logPatientEvent("✏ Expected Time Changed from " + previous + "s", patient);
+        for (QueueListener l : listeners) l.onPatientUpdated(patient, patient.getCategoryType(), previous);
+        fireWaitTimesChanged();
+        return true;
+    }
+
+    // Runs every desk on its own thread and returns once they have all drained the queue
     @Override
     public void run() {
         running = true;
+        stopped = false;
+        snapshotStale.set(true);
         logHeader("Queue Started");
+        log("🔀 Scheduling policy: " + queue.getPolicy().name());
+        for (QueueListener l : listeners) l.onQueueStarted();
+
+        Thread[] threads = new Thread[deskCount];
+        for (int d = 0; d < deskCount; d++) {
+            threads[d] = new Thread(desks[d], "desk-" + desks[d].number);
+            threads[d].setDaemon(true);
+            threads[d].start();
+        }
+        for (Thread t : threads) {
+            try {
+                t.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+        }
 
-        while (!queue.isEmpty() && running) {
-            List<Patient> sorted = new ArrayList<>(queue);
-            sorted.sort(priorityComparator);
-            currentServing = sorted.get(0);
-            queue.remove(currentServing);
+        logSummary();
+        logHeader("Queue Completed");
 
-            logPatientEvent("🟠 Serving started", currentServing);
+        running = false;
+        stopped = true;
+        snapshotStale.set(true);
+        for (QueueListener l : listeners) l.onQueueCompleted(totalServed.get(), totalServeTime.get());
+    }
 
-            long expected = currentServing.getExpectedServeTime();
-            int deviation = new Random().nextInt(11) + 10; // 10–20s diff
-            boolean longer = new Random().nextBoolean();
-            long actual = longer ? expected + deviation : Math.max(30, expected - deviation);
-            long extraAdded = 0;
+    /**
+     * One service counter. Each desk takes the next patient straight off its department's heap,
+     * so desks never wait on each other beyond the O(log n) poll itself. With nobody waiting at
+     * home it steals from the department with the most waiting patients per desk, holding only
+     * that department's lock. An emergency desk only takes Emergency patients and idles otherwise.
+     */
+    private class ServiceDesk implements Runnable {
+        final int number;                    // 1..deskCount across the hospital
+        final DepartmentQueues.Shard home;
+        final int local;                     // 1..home desks, for the home queue's deadlines
+        final boolean emergencyOnly;
+        final Random random = new Random();
+
+        // What this desk is doing, replaced as a whole so readers never see a half-updated desk
+        volatile QueueSnapshot.Desk state;
+
+        ServiceDesk(int number, DepartmentQueues.Shard home, int local, boolean emergencyOnly) {
+            this.number = number;
+            this.home = home;
+            this.local = local;
+            this.emergencyOnly = emergencyOnly;
+            this.state = new QueueSnapshot.Desk(number, home.getName(), emergencyOnly, null, 0, 0, 0, clock);
+        }
 
-            Platform.runLater(() -> {
-                currentServing.setBeingServed(true);
-                updateWaitTimes(currentServing);
-                showCurrentServing(currentServing, 0, expected);
-                statusLabel.setText("🩺 Serving " + currentServing.getName() + " (" + currentServing.getCategory() + ")");
-                waitingPatients.remove(currentServing);
-            });
+        @Override
+        public void run() {
+            while (running) {
+                Patient next = take(home);
+                if (next == null) {
+                    DepartmentQueues.Shard victim = departments.stealTarget(home);
+                    next = victim == null ? null : take(victim);
+                    if (next != null) {
+                        stolen.incrementAndGet();
+                        log("🔁 " + home.getName() + " desk " + number + " helping " + victim.getName()
+                                + " with " + next.getName());
+                    }
+                }
+                if (next == null) {
+                    if (!keepOpen && departments.totalWaiting() == 0) break;
+                    sleepOneSecond(); // nothing this desk may take yet (emergency-only, or a race)
+                    continue;
+                }
+                waitingByToken.remove(next.getTokenNumber(), next);
+                serve(next);
+            }
+        }
 
-            long start = System.currentTimeMillis();
+        private Patient take(DepartmentQueues.Shard shard) {
+            return emergencyOnly
+                    ? shard.getQueue().pollEmergency()
+                    : shard.getQueue().poll();
+        }
 
-            for (long elapsed = 1; elapsed <= actual && running; elapsed++) {
-                currentRemainingTime = Math.max(0, actual - elapsed);
-                try {
-                    Thread.sleep(1000);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                }
+        private void serve(Patient patient) {
+            logPatientEvent("🟠 Serving started", patient);
+
+            long expected = patient.getExpectedServeTime();
+            long actual = visitDuration.actualSeconds(patient, expected, random);
+            long extraAdded = 0;
+            long start = clock.nowMillis();
+            state = new QueueSnapshot.Desk(number, home.getName(), emergencyOnly,
+                    new QueueSnapshot.Row(patient, 0, 0), expected, start, actual, clock);
 
-                long finalElapsed = elapsed;
-                Platform.runLater(() -> {
-                    showCurrentServing(currentServing, finalElapsed, expected);
-                    statusLabel.setText(String.format("🩺 Serving %s [%ds / %ds]",
-                            currentServing.getName(), finalElapsed, expected));
-                });
+            patient.setBeingServed(true);
+            for (QueueListener l : listeners) l.onServingStarted(number, patient, expected);
 
-                decrementWaitTimes();
+            home.getQueue().setDeskDeadline(local, start + expected * 1000);
+            fireWaitTimesChanged();
+
+            for (long elapsed = 1; elapsed <= actual && running; elapsed++) {
+                sleepOneSecond();
+                // Nothing to publish: snapshots work out progress and waits from the clock when read
+                for (QueueListener l : listeners) l.onServingProgress(number, patient, elapsed, expected);
 
                 // Overrun handling
-                if (elapsed > expected && elapsed % 10 == 0) {
-                    extraAdded += 10;
-                    applyExtraDelayToQueue(10);
-                    log("⏳ +10s delay added due to overrun by " + currentServing.getName());
+                if (ServiceTiming.isOverrunTick(elapsed, expected)) {
+                    extraAdded += ServiceTiming.OVERRUN_STEP;
+                    applyExtraDelayToQueue(this, ServiceTiming.OVERRUN_STEP);
+                    log("⏳ +10s delay added due to overrun by " + patient.getName());
                 }
             }
 
-            long end = System.currentTimeMillis();
+            long end = clock.nowMillis();
             long servedDuration = (end - start) / 1000;
 
-            currentServing.setBeingServed(false);
-            currentServing.markServed();
-            totalServed++;
-            totalServeTime += servedDuration;
-
-            // Make a safe copy to avoid NPE
-            Patient servedCopy = currentServing;
+            patient.setBeingServed(false);
+            patient.markServed(clock.localTime());
+            totalServed.incrementAndGet();
+            totalServeTime.addAndGet(servedDuration);
+            if (running) estimator.record(patient, servedDuration); // a visit cut short by stop() teaches nothing
 
-            Platform.runLater(() -> {
-                if (servedCopy != null) {
-                    servedPatients.add(servedCopy);
-                    detailsArea.setText(servedCopy.getDetails() + "\n\n✅ Served Successfully!");
-                    servedList.refresh();
-                    currentServingArea.clear();
-                }
-            });
+            for (QueueListener l : listeners) l.onServed(number, patient);
 
-            logPatientEvent("✅ Served completed", currentServing);
+            logPatientEvent("✅ Served completed", patient);
 
-            if (actual > expected && extraAdded > 0) {
-                long totalOverrun = actual - expected;
-                long leftover = extraAdded - totalOverrun;
-                if (leftover > 0) {
-                    removeExtraDelay(leftover);
-                    log("🔹 -" + leftover + "s deducted (early finish correction by " + currentServing.getName() + ")");
-                }
+            long leftover = ServiceTiming.earlyFinishCorrection(expected, actual, extraAdded);
+            if (leftover > 0) {
+                removeExtraDelay(this, leftover);
+                log("🔹 -" + leftover + "s deducted (early finish correction by " + patient.getName() + ")");
             }
 
-            currentServing = null;
-            currentRemainingTime = 0;
-            updateWaitTimes(null);
+            state = state.idle();
+            home.getQueue().clearDeskDeadline(local); // desk is free again
+            fireWaitTimesChanged();
         }
+    }
 
-        logSummary();
-        logHeader("Queue Completed");
+    private void sleepOneSecond() {
+        try {
+            clock.sleep(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
 
-        Platform.runLater(() -> statusLabel.setText("🎉 Queue complete!"));
-        running = false;
+    // Overruns and corrections move this desk's deadline once; waiting patients' ETAs follow from it
+    private void applyExtraDelayToQueue(ServiceDesk desk, long seconds) {
+        desk.home.getQueue().shiftDeskDeadline(desk.local, seconds * 1000);
+        for (QueueListener l : listeners) l.onDelayChanged(desk.number, seconds);
+        fireWaitTimesChanged();
     }
 
-    // --- Display Info ---
-    private void showCurrentServing(Patient p, long elapsed, long expected) {
-        if (p == null) return;
-        currentServingArea.setText(
-                "👤 " + p.getName() + " (" + p.getCategory() + ")\n" +
-                        "Token: " + p.getTokenNumber() + "\n" +
-                        "Expected Duration: " + expected + "s\n" +
-                        "Elapsed: " + elapsed + "s\n" +
-                        "Remaining: " + Math.max(0, expected - elapsed) + "s\n" +
-                        "Status: " + (p.isBeingServed() ? "Serving..." : "Served ✅")
-        );
+    private void removeExtraDelay(ServiceDesk desk, long seconds) {
+        desk.home.getQueue().shiftDeskDeadline(desk.local, -seconds * 1000);
+        for (QueueListener l : listeners) l.onDelayChanged(desk.number, -seconds);
+        fireWaitTimesChanged();
     }
 
-    private void applyExtraDelayToQueue(long seconds) {
-        Platform.runLater(() -> {
-            for (Patient p : waitingPatients) {
-                p.setApproxWaitTime(p.getApproxWaitTime() + seconds);
-            }
-            waitingList.refresh();
-        });
+    private void fireWaitTimesChanged() {
+        snapshotStale.set(true);
+        for (QueueListener l : listeners) l.onWaitTimesChanged();
     }
 
-    private void removeExtraDelay(long seconds) {
-        Platform.runLater(() -> {
-            for (Patient p : waitingPatients) {
-                long corrected = Math.max(0, p.getApproxWaitTime() - seconds);
-                p.setApproxWaitTime(corrected);
-            }
-            waitingList.refresh();
-        });
+    // --- Logging Utilities (queued to the background LogWriter) ---
+    private void logHeader(String header) {
+        LogWriter.getDefault().raw("\n==========================\n" +
+                "📅 " + LocalDate.now() + " | " + header + "\n" +
+                "==========================\n");
     }
 
-    private void decrementWaitTimes() {
-        Platform.runLater(() -> {
-            for (Patient p : waitingPatients) {
-                long remaining = Math.max(0, p.getApproxWaitTime() - 1);
-                p.setApproxWaitTime(remaining);
-            }
-            waitingList.refresh();
-        });
+    private void logSummary() {
+        long served = totalServed.get();
+        long serveTime = totalServeTime.get();
+        LogWriter.getDefault().raw(String.format("\n📊 Queue Summary:\nPatients Served: %d\nTotal Serve Time: %ds\nAverage Serve Time: %.2fs\n",
+                served, serveTime, (served > 0 ? (double) serveTime / served : 0)));
+    }
+
+    public static void logPatientEvent(String event, Patient p) {
+        LogWriter.getDefault().log(event + ": " + p.getName() + " (" + p.getCategory() + ")\n" +
+                "   Token: " + p.getTokenNumber() + " | Queue: " + p.getQueueNumber() +
+                " | Expected: " + p.getExpectedServeTime() + "s");
     }
 
-    private void updateWaitTimes(Patient current) {
-        List<Patient> sorted = new ArrayList<>(queue);
-        sorted.sort(priorityComparator);
+    private void log(String msg) {
+        LogWriter.getDefault().log(msg);
+    }
 
-        long cumulative = (current != null) ? current.getExpectedServeTime() : 0;
-        int pos = 1;
-        for (Patient p : sorted) {
-            p.setQueueNumber(pos++);
-            p.setApproxWaitTime(cumulative);
-            cumulative += p.getExpectedServeTime();
+    /** Shortest time left at any busy desk, i.e. when the next patient can be called. */
+    public long getCurrentRemainingTime() {
+        long min = Long.MAX_VALUE;
+        for (ServiceDesk desk : desks) {
+            QueueSnapshot.Desk d = desk.state;
+            if (d.isIdle()) return 0;
+            min = Math.min(min, d.getRemaining());
         }
+        return min;
+    }
 
-        Platform.runLater(() -> waitingPatients.setAll(sorted));
+    public QueueClock getClock() {
+        return clock;
     }
 
-    // --- Logging Utilities ---
-    private void logHeader(String header) {
-        try (FileWriter fw = new FileWriter(LOG_PATH, true)) {
-            fw.write("\n==========================\n");
-            fw.write("📅 " + LocalDate.now() + " | " + header + "\n");
-            fw.write("==========================\n");
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+    public int getDeskCount() {
+        return deskCount;
     }
 
-    private void logSummary() {
-        try (FileWriter fw = new FileWriter(LOG_PATH, true)) {
-            fw.write(String.format("\n📊 Queue Summary:\nPatients Served: %d\nTotal Serve Time: %ds\nAverage Serve Time: %.2fs\n",
-                    totalServed, totalServeTime, (totalServed > 0 ? (double) totalServeTime / totalServed : 0)));
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+    public boolean isEmergencyDesk(int desk) {
+        return desks[desk - 1].emergencyOnly;
     }
 
-    public static void logPatientEvent(String event, Patient p) {
-        try (FileWriter fw = new FileWriter(LOG_PATH, true)) {
-            fw.write(LocalTime.now().format(DateTimeFormatter.ofPattern("HH:mm:ss")) +
-                    " - " + event + ": " + p.getName() + " (" + p.getCategory() + ")\n" +
-                    "   Token: " + p.getTokenNumber() + " | Queue: " + p.getQueueNumber() +
-                    " | Expected: " + p.getExpectedServeTime() + "s\n");
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+    public SchedulingPolicy getPolicy() {
+        return queue.getPolicy();
     }
 
-    private void log(String msg) {
-        try (FileWriter fw = new FileWriter(LOG_PATH, true)) {
-            fw.write(LocalTime.now().format(DateTimeFormatter.ofPattern("HH:mm:ss")) +
-                    " - " + msg + "\n");
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+    /**
+     * Changes the calling order in every department (each gets its own instance of the named
+     * policy); patients already waiting are re-keyed under it.
+     */
+    public void setPolicy(String name) {
+        for (DepartmentQueues.Shard shard : departments) shard.getQueue().setPolicy(SchedulingPolicy.byName(name));
+        log("🔀 Scheduling policy: " + name);
+        for (QueueListener l : listeners) l.onOrderChanged();
+        fireWaitTimesChanged();
     }
 
-    private void ensureDirectoryExists() {
-        File f = new File(LOG_PATH);
-        File dir = f.getParentFile();
-        if (!dir.exists()) {
-            boolean ok = dir.mkdirs();
-            if (!ok) System.err.println("⚠ Could not create log directory: " + dir);
-        }
+    public DepartmentQueues getDepartments() {
+        return departments;
     }
 
-    public long getCurrentRemainingTime() {
-        return currentRemainingTime;
+    /** The department queue a patient waits (or would wait) in. */
+    public PatientQueue queueOf(Patient patient) {
+        return departments.shardOf(patient).getQueue();
+    }
+
+    /** Copies the patient's queue number and wait in their department into the Patient fields. */
+    public Patient refreshEta(Patient patient) {
+        return queueOf(patient).refreshEta(patient);
+    }
+
+    /** Patients served by a desk from outside its own department. */
+    public long getStolenCount() {
+        return stolen.get();
+    }
+
+    public String getDepartmentOf(int desk) {
+        return desks[desk - 1].home.getName();
+    }
+
+    public PatientQueue getQueue() {
+        return queue;
+    }
+
+    /**
+     * How long a desk really takes over a visit. The default deviates 10–20s from a given
+     * expected time and draws 40–100s for estimated ones, so the estimator never learns its own guesses.
+     */
+    public interface VisitDuration {
+        long actualSeconds(Patient patient, long expected, Random random);
+    }
+
+    /** Learns visit lengths from every desk and estimates them for new patients. */
+    public ServeTimeEstimator getEstimator() {
+        return estimator;
+    }
+
+    /** Replaces the visit-length model, e.g. with a WorkloadGenerator's overrun model. */
+    public void setVisitDuration(VisitDuration visitDuration) {
+        this.visitDuration = visitDuration;
+    }
+
+    /**
+     * With keepOpen, desks idle when nobody is waiting instead of finishing the run, so
+     * patients arriving later are still served; run() then returns only after stop().
+     */
+    public void setKeepOpen(boolean keepOpen) {
+        this.keepOpen = keepOpen;
     }
 
+    public boolean isRunning() {
+        return running;
+    }
+
+    /** Ends the run; the snapshot publisher exits too, also on a manager that was never run. */
     public void stop() {
         running = false;
+        stopped = true;
+        snapshotStale.set(true);
+    }
+
+    // -------------------- SNAPSHOTS --------------------
+
+    /**
+     * The latest published QueueSnapshot; lock-free, may be up to one publishing interval old.
+     * The first call builds one on the spot and starts a daemon publisher that replaces it at most
+     * every smartqueue.snapshot.intervalMillis (default 100) while the queue keeps changing.
+     * The engine only flags a change; it never builds a snapshot on its own threads or waits for one.
+     * Once the manager is stopped or its run is over the publisher exits, and calls after a later
+     * change build the snapshot themselves.
+     */
+    public QueueSnapshot snapshot() {
+        QueueSnapshot s = snapshot.get();
+        if (s != null && (publisherStarted.get() || !snapshotStale.get())) return s;
+        if (s == null || snapshotStale.getAndSet(false)) s = publishSnapshot();
+        if (!stopped && publisherStarted.compareAndSet(false, true)) {
+            Thread publisher = new Thread(this::publishLoop, "snapshot-publisher");
+            publisher.setDaemon(true);
+            publisher.start();
+        }
+        return s;
+    }
+
+    private void publishLoop() {
+        long intervalNanos = Long.getLong("smartqueue.snapshot.intervalMillis", 100) * 1_000_000;
+        while (!stopped) {
+            LockSupport.parkNanos(intervalNanos);
+            if (snapshotStale.getAndSet(false)) publishSnapshot();
+        }
+        publisherStarted.set(false); // from here snapshot() publishes changes itself, or starts a new publisher
+        if (snapshotStale.getAndSet(false)) publishSnapshot();
+    }
+
+    // One department lock at a time; the version is assigned after the content is complete
+    private QueueSnapshot publishSnapshot() {
+        QueueSnapshot s;
+        synchronized (snapshotLock) {
+            List<QueueSnapshot.Department> lines = new ArrayList<>(departments.size());
+            for (DepartmentQueues.Shard shard : departments) lines.add(shard.getQueue().snapshot(shard.getName()));
+            List<QueueSnapshot.Desk> deskStates = new ArrayList<>(deskCount);
+            for (ServiceDesk desk : desks) deskStates.add(desk.state);
+            s = new QueueSnapshot(++snapshotVersion, clock.nowMillis(), running, totalServed.get(), lines, deskStates);
+            snapshot.set(s);
+        }
+        for (QueueListener l : listeners) l.onSnapshotPublished(s);
+        return s;
     }
 }
@@ -0,0 +1,255 @@
+package com.example.smartqueuesystem;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Live instrumentation of one QueueManager, every series tagged by patient category:
+ *  - histograms of actual wait (arrival to serving start), serve duration and overrun (ms),
+ *  - a waiting-depth gauge, plus one per department and a count of desks helping elsewhere,
+ *  - enqueue / dequeue / cancel counters, enqueue and dequeue rates over the last minute,
+ *  - the FX update lag, when a UI hands over its FxUpdateBatcher histogram.
+ *
+ * It is a QueueListener; recording is atomic increments into preallocated arrays, so it is
+ * lock-free and allocation-free and safe on the desk threads. Read it in-process through
+ * the getters, or as Prometheus text from toPrometheus() / GET /metrics when
+ * -Dsmartqueue.metrics.port is set.
+ */
+public class QueueMetrics implements QueueListener {
+
+    private static final Patient.Category[] CATEGORIES = Patient.Category.values();
+    private static final long DAY_NANOS = 86_400_000_000_000L;
+
+    private final QueueClock clock;
+    private final LatencyHistogram[] waits = histograms();
+    private final LatencyHistogram[] serveDurations = histograms();
+    private final LatencyHistogram[] overruns = histograms();
+    private final AtomicLongArray depth = new AtomicLongArray(CATEGORIES.length);
+    private final AtomicLongArray enqueued = new AtomicLongArray(CATEGORIES.length);
+    private final AtomicLongArray dequeued = new AtomicLongArray(CATEGORIES.length);
+    private final AtomicLongArray cancelled = new AtomicLongArray(CATEGORIES.length);
+    private final RateMeter[] enqueueRates = new RateMeter[CATEGORIES.length];
+    private final RateMeter[] dequeueRates = new RateMeter[CATEGORIES.length];
+    private final AtomicLongArray deskStartMillis;
+    private volatile LatencyHistogram fxLag;
+    private final QueueManager manager;   // department gauges; null when built from a bare clock
+
+    public QueueMetrics(QueueManager manager) {
+        this(manager.getClock(), manager.getDeskCount(), manager);
+    }
+
+    public QueueMetrics(QueueClock clock, int deskCount) {
+        this(clock, deskCount, null);
+    }
+
+    private QueueMetrics(QueueClock clock, int deskCount, QueueManager manager) {
+        this.clock = clock;
+        this.manager = manager;
+        this.deskStartMillis = new AtomicLongArray(deskCount + 1);
+        for (int c = 0; c < CATEGORIES.length; c++) {
+            enqueueRates[c] = new RateMeter();
+            dequeueRates[c] = new RateMeter();
+        }
+    }
+
+    private static LatencyHistogram[] histograms() {
+        LatencyHistogram[] h = new LatencyHistogram[CATEGORIES.length];
+        for (int c = 0; c < h.length; c++) h[c] = new LatencyHistogram();
+        return h;
+    }
+
+    // -------------------- RECORDING (engine threads) --------------------
+    @Override
+    public void onPatientAdded(Patient p) {
+        int c = p.getCategoryType().ordinal();
+        depth.incrementAndGet(c);
+        enqueued.incrementAndGet(c);
+        enqueueRates[c].mark(clock.nowMillis());
+    }
+
+    @Override
+    public void onPatientCancelled(Patient p, String reason) {
+        int c = p.getCategoryType().ordinal();
+        depth.decrementAndGet(c);
+        cancelled.incrementAndGet(c);
+    }
+
+    // An escalated patient moves from one category's depth to the other's
+    @Override
+    public void onPatientUpdated(Patient p, Patient.Category previousCategory, long previousExpected) {
+        if (p.getCategoryType() == previousCategory) return;
+        depth.decrementAndGet(previousCategory.ordinal());
+        depth.incrementAndGet(p.getCategoryType().ordinal());
+    }
+
+    @Override
+    public void onServingStarted(int desk, Patient p, long expected) {
+        int c = p.getCategoryType().ordinal();
+        depth.decrementAndGet(c);
+        dequeued.incrementAndGet(c);
+        long now = clock.nowMillis();
+        dequeueRates[c].mark(now);
+        deskStartMillis.set(desk, now);
+
+        long waited = clock.localTime().toNanoOfDay() - p.getArrivalTime().toNanoOfDay();
+        if (waited < 0) waited += DAY_NANOS; // registered before midnight
+        waits[c].record(waited / 1_000_000);
+    }
+
+    @Override
+    public void onServed(int desk, Patient p) {
+        int c = p.getCategoryType().ordinal();
+        long duration = clock.nowMillis() - deskStartMillis.get(desk);
+        serveDurations[c].record(duration);
+        overruns[c].record(Math.max(0, duration - p.getExpectedServeTime() * 1000));
+    }
+
+    /** Hands over the UI's pulse-lag histogram (nanoseconds) so it is exported with the rest. */
+    public void setFxLag(LatencyHistogram lag) {
+        this.fxLag = lag;
+    }
+
+    // -------------------- IN-PROCESS API --------------------
+    public LatencyHistogram getWaitMillis(Patient.Category c) { return waits[c.ordinal()]; }
+    public LatencyHistogram getServeMillis(Patient.Category c) { return serveDurations[c.ordinal()]; }
+    public LatencyHistogram getOverrunMillis(Patient.Category c) { return overruns[c.ordinal()]; }
+    public long getDepth(Patient.Category c) { return depth.get(c.ordinal()); }
+    public long getEnqueued(Patient.Category c) { return enqueued.get(c.ordinal()); }
+    public long getDequeued(Patient.Category c) { return dequeued.get(c.ordinal()); }
+    public long getCancelled(Patient.Category c) { return cancelled.get(c.ordinal()); }
+    public double getEnqueueRate(Patient.Category c) { return enqueueRates[c.ordinal()].perSecond(clock.nowMillis()); }
+    public double getDequeueRate(Patient.Category c) { return dequeueRates[c.ordinal()].perSecond(clock.nowMillis()); }
+    public LatencyHistogram getFxLag() { return fxLag; }
+
+    // -------------------- PROMETHEUS --------------------
+    /** Prometheus text exposition format (version 0.0.4). */
+    public String toPrometheus() {
+        StringBuilder out = new StringBuilder(4096);
+        summary(out, "smartqueue_wait_seconds", "Time from arrival to serving start", waits, 1e3);
+        summary(out, "smartqueue_serve_seconds", "Time a desk spent serving", serveDurations, 1e3);
+        summary(out, "smartqueue_overrun_seconds", "Serve time beyond the expected duration", overruns, 1e3);
+
+        header(out, "smartqueue_waiting", "Patients currently waiting", "gauge");
+        for (Patient.Category c : CATEGORIES) sample(out, "smartqueue_waiting", c, null, getDepth(c));
+        header(out, "smartqueue_enqueued_total", "Patients added to the queue", "counter");
+        for (Patient.Category c : CATEGORIES) sample(out, "smartqueue_enqueued_total", c, null, getEnqueued(c));
+        header(out, "smartqueue_dequeued_total", "Patients called to a desk", "counter");
+        for (Patient.Category c : CATEGORIES) sample(out, "smartqueue_dequeued_total", c, null, getDequeued(c));
+        header(out, "smartqueue_cancelled_total", "Patients who left the queue unserved", "counter");
+        for (Patient.Category c : CATEGORIES) sample(out, "smartqueue_cancelled_total", c, null, getCancelled(c));
+        header(out, "smartqueue_enqueue_rate", "Patients added per second over the last minute", "gauge");
+        for (Patient.Category c : CATEGORIES) sample(out, "smartqueue_enqueue_rate", c, null, getEnqueueRate(c));
+        header(out, "smartqueue_dequeue_rate", "Patients called per second over the last minute", "gauge");
+        for (Patient.Category c : CATEGORIES) sample(out, "smartqueue_dequeue_rate", c, null, getDequeueRate(c));
+
+        if (manager != null) {
+            // Read from each shard's lock-free size, so scraping never blocks a desk
+            header(out, "smartqueue_department_waiting", "Patients currently waiting per department", "gauge");
+            for (DepartmentQueues.Shard s : manager.getDepartments()) {
+                sample(out, "smartqueue_department_waiting", null,
+                        "department=\"" + s.getName() + "\"", s.getQueue().approximateSize());
+            }
+            header(out, "smartqueue_stolen_total", "Patients called by a desk of another department", "counter");
+            sample(out, "smartqueue_stolen_total", null, null, manager.getStolenCount());
+        }
+
+        LatencyHistogram lag = fxLag;
+        if (lag != null) {
+            header(out, "smartqueue_fx_lag_seconds", "Delay from an engine event to the FX pulse that shows it", "summary");
+            quantiles(out, "smartqueue_fx_lag_seconds", null, lag, 1e9);
+        }
+        return out.toString();
+    }
+
+    private static void summary(StringBuilder out, String name, String help, LatencyHistogram[] byCategory, double perSecond) {
+        header(out, name, help, "summary");
+        for (Patient.Category c : CATEGORIES) quantiles(out, name, c, byCategory[c.ordinal()], perSecond);
+    }
+
+    private static void quantiles(StringBuilder out, String name, Patient.Category c, LatencyHistogram h, double perSecond) {
+        for (double q : new double[] { 0.5, 0.9, 0.99 }) {
+            sample(out, name, c, "quantile=\"" + q + "\"", h.percentile(q * 100) / perSecond);
+        }
+        sample(out, name + "_sum", c, null, h.sum() / perSecond);
+        sample(out, name + "_count", c, null, h.count());
+    }
+
+    private static void header(StringBuilder out, String name, String help, String type) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, Patient.Category c, String extraLabel, double value) {
+        out.append(name);
+        if (c != null || extraLabel != null) {
+            out.append('{');
+            if (c != null) out.append("category=\"").append(c.getLabel()).append('"');
+            if (c != null && extraLabel != null) out.append(',');
+            if (extraLabel != null) out.append(extraLabel);
+            out.append('}');
+        }
+        out.append(' ');
+        if (value == Math.rint(value)) out.append((long) value);
+        else out.append(value);
+        out.append('\n');
+    }
+
+    /** Serves GET /metrics on smartqueue.metrics.port (loopback unless smartqueue.metrics.host), if set. */
+    public HttpServer startEndpointIfConfigured() {
+        Integer port = Integer.getInteger("smartqueue.metrics.port");
+        if (port == null) return null;
+        try {
+            HttpServer server = HttpServer.create(
+                    new InetSocketAddress(System.getProperty("smartqueue.metrics.host", "127.0.0.1"), port), 16);
+            server.createContext("/metrics", exchange -> {
+                try (exchange) {
+                    byte[] body = toPrometheus().getBytes(StandardCharsets.UTF_8);
+                    exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+                    exchange.sendResponseHeaders(200, body.length);
+                    try (OutputStream out = exchange.getResponseBody()) {
+                        out.write(body);
+                    }
+                }
+            });
+            server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+            server.start();
+            System.out.println("📈 Metrics at http://127.0.0.1:" + server.getAddress().getPort() + "/metrics");
+            return server;
+        } catch (IOException e) {
+            System.err.println("⚠ Metrics endpoint not started: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // -------------------- RATE --------------------
+    // Events per second over a sliding minute: one counter per second slot, recycled by CAS on its stamp
+    private static final class RateMeter {
+        private static final int SLOTS = 60;
+        private final AtomicLongArray counts = new AtomicLongArray(SLOTS);
+        private final AtomicLongArray stamps = new AtomicLongArray(SLOTS);
+
+        void mark(long nowMillis) {
+            long second = nowMillis / 1000;
+            int slot = (int) (second % SLOTS);
+            long stamp = stamps.get(slot);
+            if (stamp != second && stamps.compareAndSet(slot, stamp, second)) counts.set(slot, 0);
+            counts.incrementAndGet(slot);
+        }
+
+        double perSecond(long nowMillis) {
+            long second = nowMillis / 1000;
+            long n = 0;
+            for (int slot = 0; slot < SLOTS; slot++) {
+                long age = second - stamps.get(slot);
+                if (age >= 0 && age < SLOTS) n += counts.get(slot);
+            }
+            return n / (double) SLOTS;
+        }
+    }
+}
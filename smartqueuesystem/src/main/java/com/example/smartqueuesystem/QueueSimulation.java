@@ -0,0 +1,392 @@
+package com.example.smartqueuesystem;
+
+import java.time.LocalTime;
+import java.util.*;
+
+/**
+ * Discrete-event simulation of the queue on a VirtualClock.
+ * Arrivals, overrun ticks and service completions are events on one timeline, so
+ * nothing waits on wall-clock time: a full day of thousands of patients replays in
+ * milliseconds. It uses the same Patient model, PatientQueue priority order and
+ * ServiceTiming overrun / early-finish rules as the live QueueManager.
+ * With an estimator set, arrivals without an expected time get its estimate and every finished
+ * visit teaches it, as the live QueueManager does.
+ *
+ * Capacity planning and policy comparison from the command line (policies: a comma list
+ * of strict, aging, wfq, sjf, or all):
+ *   java -cp target/classes com.example.smartqueuesystem.QueueSimulation [patients] [minDesks-maxDesks] [hours] [policies]
+ */
+public class QueueSimulation {
+
+    private static final int ARRIVAL = 0, OVERRUN = 1, COMPLETE = 2;
+
+    private static final class Event implements Comparable<Event> {
+        final long time;     // seconds since start of day
+        final int kind;
+        final long seq;
+        final Object target; // PendingArrival or Desk
+
+        Event(long time, int kind, long seq, Object target) {
+            this.time = time;
+            this.kind = kind;
+            this.seq = seq;
+            this.target = target;
+        }
+
+        // Same second: arrivals, then overrun ticks, then completions (the order the live loop sees them)
+        @Override
+        public int compareTo(Event o) {
+            if (time != o.time) return Long.compare(time, o.time);
+            if (kind != o.kind) return Integer.compare(kind, o.kind);
+            return Long.compare(seq, o.seq);
+        }
+    }
+
+    private static final class PendingArrival {
+        final String name;
+        final int age;
+        final String sex;
+        final String category;
+        final long expectedServeTime;  // 0: the estimator's (or the default) estimate
+        final long actualServeTime;    // 0: ServiceTiming's length for the patient
+
+        PendingArrival(String name, int age, String sex, String category, long expectedServeTime, long actualServeTime) {
+            this.name = name;
+            this.age = age;
+            this.sex = sex;
+            this.category = category;
+            this.expectedServeTime = expectedServeTime;
+            this.actualServeTime = actualServeTime;
+        }
+    }
+
+    private static final class Desk {
+        final int number;
+        final boolean emergencyOnly;
+        Patient serving;
+        long start, expected, actual, extraAdded;
+
+        Desk(int number, boolean emergencyOnly) {
+            this.number = number;
+            this.emergencyOnly = emergencyOnly;
+        }
+    }
+
+    private final PriorityQueue<Event> timeline = new PriorityQueue<>();
+    private final VirtualClock clock;
+    private final PatientQueue queue;
+    private final Desk[] desks;
+    private final Random random;
+    private final Map<Patient, Long> arrivedAt = new HashMap<>();
+    private final Map<Patient, Long> predictedWait = new HashMap<>();
+    private final Map<Patient, Long> visitLength = new HashMap<>();
+    private ServeTimeEstimator estimator;
+    private final Result result = new Result();
+    private long seq = 0;
+
+    public QueueSimulation(int deskCount, int emergencyDesks, LocalTime startOfDay, long seed) {
+        this(deskCount, emergencyDesks, startOfDay, seed, SchedulingPolicy.configured());
+    }
+
+    public QueueSimulation(int deskCount, int emergencyDesks, LocalTime startOfDay, long seed, SchedulingPolicy policy) {
+        this.clock = new VirtualClock(startOfDay);
+        this.queue = new PatientQueue(16, Patient.PRIORITY_ORDER, clock, policy);
+        int desksTotal = Math.max(1, deskCount);
+        int emergencyOnly = Math.max(0, Math.min(emergencyDesks, desksTotal - 1));
+        this.desks = new Desk[desksTotal];
+        for (int d = 0; d < desksTotal; d++) desks[d] = new Desk(d + 1, d < emergencyOnly);
+        this.random = new Random(seed);
+        this.result.desks = desksTotal;
+        this.result.policy = policy.name();
+        queue.setServers(desksTotal);
+        queue.setEmergencyServers(emergencyOnly);
+    }
+
+    /** Schedules a patient to walk in atSecond seconds after the start of the day. */
+    public void addArrival(long atSecond, String name, int age, String sex, String category, long expectedServeTime) {
+        addArrival(atSecond, name, age, sex, category, expectedServeTime, 0);
+    }
+
+    /**
+     * Schedules a patient whose visit really takes actualServeTime seconds whatever was expected.
+     * expectedServeTime 0 leaves the estimate to the estimator.
+     */
+    public void addArrival(long atSecond, String name, int age, String sex, String category,
+                           long expectedServeTime, long actualServeTime) {
+        timeline.add(new Event(atSecond, ARRIVAL, seq++,
+                new PendingArrival(name, age, sex, category, expectedServeTime, actualServeTime)));
+    }
+
+    /** Estimates arrivals that come without an expected time and learns from every finished visit. */
+    public void setEstimator(ServeTimeEstimator estimator) {
+        this.estimator = estimator;
+    }
+
+    /** Runs every scheduled event to completion. */
+    public Result run() {
+        long wallStart = System.nanoTime();
+        Event e;
+        while ((e = timeline.poll()) != null) {
+            clock.advanceTo(e.time * 1000);
+            switch (e.kind) {
+                case ARRIVAL -> arrive(e.time, (PendingArrival) e.target);
+                case OVERRUN -> overrun(e.time, (Desk) e.target);
+                case COMPLETE -> complete(e.time, (Desk) e.target);
+                default -> throw new IllegalStateException("Unknown event " + e.kind);
+            }
+            dispatch(e.time);
+        }
+        result.wallNanos = System.nanoTime() - wallStart;
+        return result;
+    }
+
+    // -------------------- EVENT HANDLERS --------------------
+    private void arrive(long t, PendingArrival a) {
+        Patient p = new Patient(a.name, a.age, a.sex, a.category, clock.localTime());
+        if (a.expectedServeTime > 0) p.setExpectedServeTime(a.expectedServeTime);
+        else if (estimator != null) p.estimateServeTime(estimator.estimate(p));
+        if (a.actualServeTime > 0) visitLength.put(p, a.actualServeTime);
+        queue.add(p);
+        arrivedAt.put(p, t);
+        predictedWait.put(p, queue.waitTimeOf(p));
+    }
+
+    private void overrun(long t, Desk d) {
+        d.extraAdded += ServiceTiming.OVERRUN_STEP;
+        queue.shiftDeskDeadline(d.number, ServiceTiming.OVERRUN_STEP * 1000);
+        result.overrunEvents++;
+        long next = t + ServiceTiming.OVERRUN_STEP;
+        if (next - d.start <= d.actual) timeline.add(new Event(next, OVERRUN, seq++, d));
+    }
+
+    private void complete(long t, Desk d) {
+        Patient p = d.serving;
+        p.setBeingServed(false);
+        p.markServed(clock.localTime());
+        if (ServiceTiming.earlyFinishCorrection(d.expected, d.actual, d.extraAdded) > 0) result.corrections++;
+        result.served++;
+        result.totalServeTime += d.actual;
+        if (estimator != null) estimator.record(p, d.actual);
+        result.makespan = Math.max(result.makespan, t);
+        d.serving = null;
+        queue.clearDeskDeadline(d.number);
+    }
+
+    private void dispatch(long t) {
+        for (Desk d : desks) {
+            if (d.serving != null) continue;
+            Patient next = d.emergencyOnly ? queue.pollEmergency() : queue.poll();
+            if (next == null) continue;
+            start(t, d, next);
+        }
+    }
+
+    private void start(long t, Desk d, Patient p) {
+        d.serving = p;
+        d.start = t;
+        d.expected = p.getExpectedServeTime();
+        Long length = visitLength.remove(p);
+        d.actual = length != null ? length : ServiceTiming.actualDuration(p, d.expected, random);
+        d.extraAdded = 0;
+        p.setBeingServed(true);
+        queue.setDeskDeadline(d.number, (t + d.expected) * 1000);
+
+        long waited = t - arrivedAt.remove(p);
+        result.record(p.getCategory(), waited, Math.abs(waited - predictedWait.remove(p)));
+        result.estimateErrorTotal += Math.abs(d.actual - d.expected);
+
+        long tick = ServiceTiming.firstOverrunTick(d.expected, d.actual);
+        if (tick > 0) timeline.add(new Event(t + tick, OVERRUN, seq++, d));
+        timeline.add(new Event(t + d.actual, COMPLETE, seq++, d));
+    }
+
+    // -------------------- RESULTS --------------------
+    public static class Result {
+        int desks;
+        String policy;
+        long served;
+        long totalServeTime;
+        long makespan;
+        long overrunEvents;
+        long corrections;
+        long wallNanos;
+        long etaErrorTotal;
+        long estimateErrorTotal;
+        private long[] etaErrors = new long[64];
+        private int etaCount;
+        private final Map<String, long[]> waits = new TreeMap<>();
+        private final Map<String, Integer> counts = new HashMap<>();
+
+        void record(String category, long wait, long etaError) {
+            long[] w = waits.computeIfAbsent(category, k -> new long[64]);
+            int n = counts.getOrDefault(category, 0);
+            if (n == w.length) {
+                w = Arrays.copyOf(w, n * 2);
+                waits.put(category, w);
+            }
+            w[n] = wait;
+            counts.put(category, n + 1);
+            if (etaCount == etaErrors.length) etaErrors = Arrays.copyOf(etaErrors, etaCount * 2);
+            etaErrors[etaCount++] = etaError;
+            etaErrorTotal += etaError;
+        }
+
+        public String getPolicy() { return policy; }
+        public long getServed() { return served; }
+        public long getMakespan() { return makespan; }
+        public long getOverrunEvents() { return overrunEvents; }
+        public long getCorrections() { return corrections; }
+        public double getWallMillis() { return wallNanos / 1e6; }
+        public double getMeanEtaError() { return served > 0 ? (double) etaErrorTotal / served : 0; }
+        /** Mean |actual - expected| visit length, in seconds. */
+        public double getMeanEstimateError() { return served > 0 ? (double) estimateErrorTotal / served : 0; }
+        public long getEtaErrorPercentile(double pct) { return percentile(sorted(etaErrors, etaCount), pct); }
+
+        /** Sorted waits (seconds) of one category, or of everyone when category is null. */
+        public long[] waits(String category) {
+            if (category != null) {
+                long[] w = waits.get(category);
+                return w == null ? new long[0] : sorted(w, counts.get(category));
+            }
+            long[] all = new long[0];
+            for (String c : waits.keySet()) {
+                long[] w = waits.get(c);
+                int n = counts.get(c);
+                int from = all.length;
+                all = Arrays.copyOf(all, from + n);
+                System.arraycopy(w, 0, all, from, n);
+            }
+            Arrays.sort(all);
+            return all;
+        }
+
+        public Set<String> categories() {
+            return waits.keySet();
+        }
+
+        public static long percentile(long[] sorted, double pct) {
+            if (sorted.length == 0) return 0;
+            int i = (int) Math.ceil(pct / 100.0 * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(sorted.length - 1, i))];
+        }
+
+        public static double mean(long[] values) {
+            long total = 0;
+            for (long v : values) total += v;
+            return values.length > 0 ? (double) total / values.length : 0;
+        }
+
+        private static long[] sorted(long[] w, int n) {
+            long[] copy = Arrays.copyOf(w, n);
+            Arrays.sort(copy);
+            return copy;
+        }
+
+        @Override
+        public String toString() {
+            long[] all = waits(null);
+            return String.format("%5d | %-6s | %7d | %8.1f | %8d | %8d | %8.1f | %7d | %6d | %7.2f | %6.1f",
+                    desks, policy, served, mean(all) / 60, percentile(all, 95) / 60, all.length > 0 ? all[all.length - 1] / 60 : 0,
+                    makespan / 3600.0, overrunEvents, corrections,
+                    getMeanEtaError() / 60, getWallMillis());
+        }
+    }
+
+    // -------------------- CAPACITY PLANNING --------------------
+    public static void main(String[] args) {
+        int patients = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        String[] range = (args.length > 1 ? args[1] : "6-12").split("-");
+        int minDesks = Integer.parseInt(range[0]);
+        int maxDesks = Integer.parseInt(range[range.length - 1]);
+        double hours = args.length > 2 ? Double.parseDouble(args[2]) : 24;
+        String policies = args.length > 3 ? args[3] : System.getProperty("smartqueue.policy", "strict");
+
+        System.out.printf("📊 %d patients over %.1f hours%n", patients, hours);
+        System.out.println("desks | policy | served  | avg wait | p95 wait | max wait | last out | overrun | corr.  | ETA err | sim ms");
+        System.out.println("      |        |         |  (min)   |  (min)   |  (min)   |   (h)    |  ticks  |        |  (min)  |");
+        List<Result> results = new ArrayList<>();
+        for (int desks = minDesks; desks <= maxDesks; desks++) {
+            for (SchedulingPolicy policy : policies(policies)) {
+                // Same seeds for every policy: identical arrivals and visit lengths, only the order differs
+                QueueSimulation sim = new QueueSimulation(desks, 0, LocalTime.of(0, 0), 42, policy);
+                Random r = new Random(7);
+                long span = (long) (hours * 3600);
+                for (int i = 0; i < patients; i++) {
+                    int age = r.nextInt(90);
+                    String category = r.nextInt(20) == 0 ? "Emergency" : "General";
+                    sim.addArrival(r.nextLong(span), "P" + i, age, "Other", category, 40 + r.nextInt(61));
+                }
+                Result result = sim.run();
+                results.add(result);
+                System.out.println(result);
+            }
+        }
+
+        System.out.println("\ndesks | policy | category  | served  | p50 wait | p95 wait | p99 wait");
+        System.out.println("      |        |           |         |  (min)   |  (min)   |  (min)");
+        for (Result result : results) {
+            for (String category : result.categories()) {
+                long[] w = result.waits(category);
+                System.out.printf("%5d | %-6s | %-9s | %7d | %8.1f | %8.1f | %8.1f%n", result.desks, result.policy,
+                        category, w.length, Result.percentile(w, 50) / 60.0, Result.percentile(w, 95) / 60.0,
+                        Result.percentile(w, 99) / 60.0);
+            }
+        }
+
+        compareEstimates(patients, maxDesks, hours, policies(policies)[0]);
+    }
+
+    /**
+     * The same day with visit lengths that really depend on category and age, once with the
+     * registration desk's old random 40–100 s guesses and once each with the learned EWMA and p70.
+     */
+    private static void compareEstimates(int patients, int desks, double hours, SchedulingPolicy policy) {
+        System.out.printf("%n⏱ Expected serve times, %d desks, %s; visit lengths depend on category and age%n", desks, policy.name());
+        System.out.println("estimates | overrun | corr.  | est. err | ETA err | ETA p95 | avg wait");
+        System.out.println("          |  ticks  |        |   (s)    |  (min)  |  (min)  |  (min)");
+        ServeTimeEstimator last = null;
+        for (String mode : new String[] { "random", "learned", "p70" }) {
+            QueueSimulation sim = new QueueSimulation(desks, 0, LocalTime.of(0, 0), 42, policy);
+            if (!mode.equals("random")) {
+                last = new ServeTimeEstimator(0.05, mode.equals("p70") ? 0.7 : Double.NaN, 20);
+                sim.setEstimator(last);
+            }
+            Random r = new Random(7);
+            Random lengths = new Random(11);
+            Random guesses = new Random(13);
+            long span = (long) (hours * 3600);
+            for (int i = 0; i < patients; i++) {
+                int age = r.nextInt(90);
+                String category = r.nextInt(20) == 0 ? "Emergency" : "General";
+                long actual = visitLength(Patient.Category.classify(category, age), age, lengths);
+                long expected = mode.equals("random") ? 40 + guesses.nextInt(61) : 0;
+                sim.addArrival(r.nextLong(span), "P" + i, age, "Other", category, expected, actual);
+            }
+            Result result = sim.run();
+            System.out.printf("%-9s | %7d | %6d | %8.1f | %7.2f | %7.2f | %8.1f%n", mode, result.overrunEvents,
+                    result.corrections, result.getMeanEstimateError(), result.getMeanEtaError() / 60,
+                    result.getEtaErrorPercentile(95) / 60.0, Result.mean(result.waits(null)) / 60);
+        }
+        System.out.println("\ncategory  | ages  | visits | EWMA     | quantile");
+        for (String line : last.describe()) System.out.println(line);
+    }
+
+    // Hidden truth of the comparison: a mean per category and age, lognormal spread around it (unit mean)
+    private static long visitLength(Patient.Category category, int age, Random r) {
+        double mean = switch (category) {
+            case EMERGENCY -> 150;
+            case SENIOR -> 90 + (age - 60);
+            case CHILD -> 50;
+            case GENERAL -> 55 + age / 2.0;
+        };
+        return Math.max(20, Math.round(mean * Math.exp(0.25 * r.nextGaussian() - 0.03125)));
+    }
+
+    private static SchedulingPolicy[] policies(String names) {
+        if (names.equalsIgnoreCase("all")) return SchedulingPolicy.all();
+        String[] parts = names.split(",");
+        SchedulingPolicy[] out = new SchedulingPolicy[parts.length];
+        for (int i = 0; i < parts.length; i++) out[i] = SchedulingPolicy.byName(parts[i]);
+        return out;
+    }
+}
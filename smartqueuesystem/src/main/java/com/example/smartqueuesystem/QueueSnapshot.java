@@ -0,0 +1,262 @@
+package com.example.smartqueuesystem;
+
+import java.time.LocalTime;
+import java.util.*;
+
+/**
+ * Immutable picture of the whole queue at one moment: every department's waiting patients
+ * in serving order with their queue numbers and waits, and what each desk is serving.
+ *
+ * QueueManager publishes a new one through a single atomic reference after the queue changes
+ * (see QueueManager.snapshot()), so the UI, metrics or a display board read a consistent view
+ * without taking any lock, and the engine never waits for them. Versions only increase; a
+ * reader that keeps the last version it drew can skip an unchanged snapshot.
+ *
+ * A snapshot holds the order, not the rows: each department keeps a frozen WaitTimeIndex view
+ * (positions and serve-time prefix sums) and its desk deadlines, taken in O(desks) under its
+ * lock. A Row is made when it is read, in O(log n), with the wait worked out from the deadlines
+ * at that moment; desks likewise report elapsed time from when they started. So waits and
+ * progress keep moving between publications, which only happen when the queue itself changes.
+ */
+public final class QueueSnapshot {
+
+    /** One waiting patient as of the snapshot. */
+    public static final class Row {
+        private final int token;
+        private final String name;
+        private final int age;
+        private final String sex;
+        private final Patient.Category category;
+        private final String department;
+        private final LocalTime arrivalTime;
+        private final long expectedServeTime;
+        private final int queueNumber;
+        private final long waitSeconds;
+
+        Row(Patient p, int queueNumber, long waitSeconds) {
+            this(p, p.getCategoryType(), queueNumber, p.getExpectedServeTime(), waitSeconds);
+        }
+
+        // Category and expected time as frozen in the wait-time index; the rest never changes once queued
+        Row(Patient p, Patient.Category category, int queueNumber, long expectedServeTime, long waitSeconds) {
+            this.token = p.getTokenNumber();
+            this.name = p.getName();
+            this.age = p.getAge();
+            this.sex = p.getSex();
+            this.category = category;
+            this.department = p.getDepartment();
+            this.arrivalTime = p.getArrivalTime();
+            this.expectedServeTime = expectedServeTime;
+            this.queueNumber = queueNumber;
+            this.waitSeconds = waitSeconds;
+        }
+
+        public int getTokenNumber() { return token; }
+        public String getName() { return name; }
+        public int getAge() { return age; }
+        public String getSex() { return sex; }
+        public Patient.Category getCategoryType() { return category; }
+        public String getCategory() { return category.getLabel(); }
+        public String getDepartment() { return department; }
+        public LocalTime getArrivalTime() { return arrivalTime; }
+        public long getExpectedServeTime() { return expectedServeTime; }
+        /** 1-based position within the department. */
+        public int getQueueNumber() { return queueNumber; }
+        public long getWaitSeconds() { return waitSeconds; }
+
+        public String getFormattedWaitTime() {
+            return DisplayText.waitTime(waitSeconds);
+        }
+
+        @Override
+        public String toString() {
+            return name + " (" + category + ")";
+        }
+    }
+
+    /** One desk: idle, or the patient it is serving and since when; elapsed time is read off the clock. */
+    public static final class Desk {
+        private final int number;
+        private final String department;
+        private final boolean emergencyOnly;
+        private final Row serving;  // null when idle; queue number and wait are 0
+        private final long expected;
+        private final long startedAtMillis;
+        private final long actual;
+        private final QueueClock clock;
+
+        Desk(int number, String department, boolean emergencyOnly, Row serving, long expected,
+             long startedAtMillis, long actual, QueueClock clock) {
+            this.number = number;
+            this.department = department;
+            this.emergencyOnly = emergencyOnly;
+            this.serving = serving;
+            this.expected = expected;
+            this.startedAtMillis = startedAtMillis;
+            this.actual = actual;
+            this.clock = clock;
+        }
+
+        Desk idle() {
+            return new Desk(number, department, emergencyOnly, null, 0, 0, 0, clock);
+        }
+
+        public int getNumber() { return number; }
+        public String getDepartment() { return department; }
+        public boolean isEmergencyOnly() { return emergencyOnly; }
+        public boolean isIdle() { return serving == null; }
+        public Row getServing() { return serving; }
+        public long getExpected() { return expected; }
+
+        /** Whole seconds since the visit started, as of now. */
+        public long getElapsed() {
+            if (serving == null) return 0;
+            return Math.max(0, Math.min(actual, (clock.nowMillis() - startedAtMillis) / 1000));
+        }
+
+        /** Seconds until the visit really ends (the actual duration, not the estimate). */
+        public long getRemaining() {
+            return serving == null ? 0 : actual - getElapsed();
+        }
+    }
+
+    /** One department's waiting line. */
+    public static final class Department {
+        private final String name;
+        private final WaitTimeIndex.View order;
+        private final long[] deskFreeAt;      // one per desk
+        private final int emergencyServers;   // the first desks, Emergency patients only
+        private final QueueClock clock;
+        private final List<Row> waiting = new Waiting();
+
+        Department(String name, WaitTimeIndex.View order, long[] deskFreeAt, int emergencyServers, QueueClock clock) {
+            this.name = name;
+            this.order = order;
+            this.deskFreeAt = deskFreeAt;
+            this.emergencyServers = emergencyServers;
+            this.clock = clock;
+        }
+
+        public String getName() { return name; }
+
+        /**
+         * Waiting patients in serving order, as an unmodifiable list whose rows are made on access:
+         * get(i) is O(log n), iterating is O(1) per row, and waits are as of the access.
+         */
+        public List<Row> getWaiting() { return waiting; }
+
+        public int getWaitingCount() { return order.size(); }
+
+        /** Seconds the busy desks still need before this department's head can start, as of now. */
+        public long getBaseWait() {
+            return PatientQueue.baseWait(deskFreeAt, 0, clock.nowMillis());
+        }
+
+        /** The row of a patient waiting here when the snapshot was taken, or null; O(log n). */
+        public Row rowOf(Patient p) {
+            return order.find(p, rows());
+        }
+
+        // Waits as PatientQueue works them out: only Emergency patients count the emergency-only desks
+        private WaitTimeIndex.RowFactory<Row> rows() {
+            long now = clock.nowMillis();
+            long base = PatientQueue.baseWait(deskFreeAt, 0, now);
+            long generalBase = PatientQueue.baseWait(deskFreeAt, emergencyServers, now);
+            int servers = PatientQueue.callingDesks(deskFreeAt.length, 0);
+            int generalServers = PatientQueue.callingDesks(deskFreeAt.length, emergencyServers);
+            return (p, category, index, expected, before) -> category == Patient.Category.EMERGENCY
+                    ? new Row(p, category, index + 1, expected, (base + before) / servers)
+                    : new Row(p, category, index + 1, expected, (generalBase + before) / generalServers);
+        }
+
+        private final class Waiting extends AbstractList<Row> {
+            @Override
+            public Row get(int index) {
+                return order.at(index, rows());
+            }
+
+            @Override
+            public int size() {
+                return order.size();
+            }
+
+            @Override
+            public Iterator<Row> iterator() {
+                return order.iterator(rows());
+            }
+        }
+    }
+
+    private final long version;
+    private final long takenAtMillis;
+    private final boolean running;
+    private final long served;
+    private final List<Department> departments;
+    private final List<Desk> desks;
+    private volatile Map<Integer, Patient> byToken; // built on first lookup; a racing rebuild is harmless
+
+    QueueSnapshot(long version, long takenAtMillis, boolean running, long served,
+                  List<Department> departments, List<Desk> desks) {
+        this.version = version;
+        this.takenAtMillis = takenAtMillis;
+        this.running = running;
+        this.served = served;
+        this.departments = Collections.unmodifiableList(departments);
+        this.desks = Collections.unmodifiableList(desks);
+    }
+
+    public long getVersion() { return version; }
+    /** QueueClock time the snapshot was taken. */
+    public long getTakenAtMillis() { return takenAtMillis; }
+    public boolean isRunning() { return running; }
+    public long getServed() { return served; }
+    public List<Department> getDepartments() { return departments; }
+    public List<Desk> getDesks() { return desks; }
+
+    public int getWaitingCount() {
+        int n = 0;
+        for (Department d : departments) n += d.getWaitingCount();
+        return n;
+    }
+
+    /** The patient's row in their department, or null if they were not waiting at the snapshot; O(log n). */
+    public Row rowOf(Patient p) {
+        if (departments.isEmpty()) return null;
+        String department = p.getDepartment();
+        for (Department d : departments) {
+            if (d.name.equalsIgnoreCase(department)) return d.rowOf(p);
+        }
+        return departments.get(0).rowOf(p); // unknown departments queue in the first, as in DepartmentQueues
+    }
+
+    /**
+     * The waiting patient with this token, or null if they were not waiting at the snapshot.
+     * Only the token is known here, so the first call indexes every patient (O(n)); prefer rowOf(Patient).
+     */
+    public Row rowOf(int token) {
+        Map<Integer, Patient> index = byToken;
+        if (index == null) {
+            Map<Integer, Patient> built = new HashMap<>(Math.max(16, getWaitingCount() * 4 / 3 + 1));
+            for (Department d : departments) {
+                Iterator<Patient> it = d.order.iterator((p, category, i, expected, before) -> p);
+                while (it.hasNext()) {
+                    Patient p = it.next();
+                    built.put(p.getTokenNumber(), p);
+                }
+            }
+            byToken = index = built;
+        }
+        Patient p = index.get(token);
+        return p == null ? null : rowOf(p);
+    }
+
+    /** Shortest time left at any desk, i.e. when the next patient can be called; 0 with a desk idle. */
+    public long getCurrentRemainingTime() {
+        long min = Long.MAX_VALUE;
+        for (Desk d : desks) {
+            if (d.isIdle()) return 0;
+            min = Math.min(min, d.getRemaining());
+        }
+        return desks.isEmpty() ? 0 : min;
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.smartqueuesystem;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Funnels registrations from any number of threads (kiosk requests, the triage desk)
+ * into one QueueManager. Producers only append to a lock-free MPSC queue; a single
+ * "registration-ingest" thread drains it in batches of up to smartqueue.ingest.batch
+ * patients and adds each batch with QueueManager.addPatients, so the priority queue lock
+ * and the wait-time refresh are paid once per batch instead of once per patient.
+ *
+ * Kiosks have already handed out token numbers by then, so a batch that fails is not dropped:
+ * its patients are retried one at a time, and anyone still refused is logged with their token
+ * and appended to data/registrations_rejected.txt in the import format (import that file to
+ * queue them again).
+ */
+public final class RegistrationIngestor implements AutoCloseable {
+
+    private final QueueManager manager;
+    private final MpscQueue<Patient> inbox = new MpscQueue<>();
+    private final int maxBatch;
+    private final Thread consumer;
+    private volatile boolean running = true;
+    private volatile boolean parked;
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong ingested = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public RegistrationIngestor(QueueManager manager) {
+        this(manager, Integer.getInteger("smartqueue.ingest.batch", 512));
+    }
+
+    public RegistrationIngestor(QueueManager manager, int maxBatch) {
+        this.manager = manager;
+        this.maxBatch = Math.max(1, maxBatch);
+        this.consumer = new Thread(this::drainLoop, "registration-ingest");
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    /** Thread-safe and non-blocking; the patient is queued by the ingest thread shortly after. */
+    public void submit(Patient p) {
+        submitted.incrementAndGet();
+        inbox.offer(p);
+        if (parked) LockSupport.unpark(consumer);
+    }
+
+    public void submitAll(List<Patient> patients) {
+        submitted.addAndGet(patients.size());
+        for (Patient p : patients) inbox.offer(p);
+        if (parked) LockSupport.unpark(consumer);
+    }
+
+    // -------------------- STATISTICS --------------------
+    public long getSubmittedCount() { return submitted.get(); }
+    public long getIngestedCount() { return ingested.get(); }
+    public long getBatchCount() { return batches.get(); }
+    /** Registrations that could not be queued and went to the rejected file. */
+    public long getRejectedCount() { return rejected.get(); }
+
+    // -------------------- CONSUMER --------------------
+    private void drainLoop() {
+        List<Patient> batch = new ArrayList<>(maxBatch);
+        while (running || !inbox.isEmpty()) {
+            inbox.drain(batch::add, maxBatch);
+            if (!batch.isEmpty()) {
+                try {
+                    manager.addPatients(batch);
+                    ingested.addAndGet(batch.size());
+                } catch (RuntimeException e) {
+                    recover(batch, e);
+                }
+                batches.incrementAndGet();
+                batch.clear();
+                continue;
+            }
+            parked = true;
+            // Re-check after announcing the park, so an offer racing with it can't be missed for long
+            if (inbox.isEmpty() && running) LockSupport.parkNanos(this, 50_000_000L);
+            parked = false;
+        }
+    }
+
+    // One bad registration must not take the rest of the batch down with it
+    private void recover(List<Patient> batch, RuntimeException cause) {
+        List<Patient> failed = new ArrayList<>();
+        for (Patient p : batch) {
+            try {
+                if (!accepted(p)) manager.addPatient(p); // some may have got in before the failure
+            } catch (RuntimeException e) {
+                // a listener can fail after the patient is already queued; accepted() tells
+            }
+            if (accepted(p)) ingested.incrementAndGet(); else failed.add(p);
+        }
+        if (failed.isEmpty()) return;
+        rejected.addAndGet(failed.size());
+        StringBuilder tokens = new StringBuilder();
+        for (Patient p : failed) tokens.append(tokens.length() > 0 ? ", " : "").append(p.getTokenNumber());
+        Path file = PatientTransfer.defaultFile(PatientTransfer.REJECTED_FILE);
+        String saved;
+        try {
+            PatientTransfer.appendPatients(file, failed);
+            saved = "saved to " + file;
+        } catch (IOException e) {
+            saved = "NOT saved (" + e.getMessage() + ")";
+        }
+        LogWriter.getDefault().log("⚠ Registrations not queued: " + cause.getMessage()
+                + "\n   Tokens: " + tokens + " | " + saved);
+    }
+
+    // PatientQueue stamps a queue number on everyone it takes in, so this holds even once a desk has called them
+    private static boolean accepted(Patient p) {
+        return p.getQueueNumber() > 0;
+    }
+
+    /** Stops accepting work once everything already submitted is queued. */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(consumer);
+        try {
+            consumer.join(5_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.smartqueuesystem;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Real time, sped up: one wall-clock second is `speed` queue seconds.
+ * Unlike VirtualClock it keeps the live engine's threads, locks and sleeps, so the real
+ * serving path can be soak-tested through a whole simulated day in minutes.
+ */
+public class ScaledClock implements QueueClock {
+
+    private final LocalTime startOfDay;
+    private final LocalDate startDate = LocalDate.now();
+    private final double speed;
+    private final long startNanos = System.nanoTime();
+
+    public ScaledClock(LocalTime startOfDay, double speed) {
+        if (speed <= 0) throw new IllegalArgumentException("speed must be positive");
+        this.startOfDay = startOfDay;
+        this.speed = speed;
+    }
+
+    public double getSpeed() {
+        return speed;
+    }
+
+    @Override
+    public long nowMillis() {
+        return (long) ((System.nanoTime() - startNanos) * speed / 1_000_000);
+    }
+
+    @Override
+    public LocalTime localTime() {
+        return startOfDay.plusNanos((long) ((System.nanoTime() - startNanos) * speed));
+    }
+
+    @Override
+    public LocalDateTime localDateTime() {
+        return startDate.atTime(startOfDay).plusNanos((long) ((System.nanoTime() - startNanos) * speed));
+    }
+
+    // Parks until the queue clock has moved on by millis; parkNanos may wake early, so loop
+    @Override
+    public void sleep(long millis) throws InterruptedException {
+        long wakeAt = System.nanoTime() + (long) (millis * 1_000_000 / speed);
+        for (long left; (left = wakeAt - System.nanoTime()) > 0; ) {
+            LockSupport.parkNanos(left);
+            if (Thread.interrupted()) throw new InterruptedException();
+        }
+    }
+
+    /** Parks the caller until the queue clock reads atMillis. */
+    public void sleepUntil(long atMillis) throws InterruptedException {
+        long ahead = atMillis - nowMillis();
+        if (ahead > 0) sleep(ahead);
+    }
+}
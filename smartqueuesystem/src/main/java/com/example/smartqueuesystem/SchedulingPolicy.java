@@ -0,0 +1,162 @@
+package com.example.smartqueuesystem;
+
+/**
+ * Decides the order in which waiting patients are called.
+ *
+ * A policy turns a patient into a long sort key as it joins the PatientQueue (smaller is
+ * called first). Every policy here is written so that the key never needs to change while
+ * the patient waits: time-dependent rules such as aging are expressed relative to the
+ * moment of joining, which keeps the relative order of waiting patients fixed as the clock
+ * moves. The heap and the wait-time index are therefore never resorted; joining, leaving
+ * and re-keying one patient stay O(log n).
+ *
+ * Keys and onDequeued are called under the queue's lock, so implementations need no
+ * locking of their own. Select one with -Dsmartqueue.policy=strict|aging|wfq|sjf.
+ */
+public interface SchedulingPolicy {
+
+    String name();
+
+    /**
+     * Sort key for p, which joined the queue at joinedMillis (QueueClock time). Asked again
+     * with the same joinedMillis when the patient's category or expected time is edited.
+     */
+    long keyFor(Patient p, long joinedMillis);
+
+    /** p was taken off the head of the queue by a desk. */
+    default void onDequeued(Patient p) {}
+
+    /** Policy named by smartqueue.policy, strict priority when unset. */
+    static SchedulingPolicy configured() {
+        return byName(System.getProperty("smartqueue.policy", "strict"));
+    }
+
+    static SchedulingPolicy byName(String name) {
+        return switch (name.trim().toLowerCase()) {
+            case "strict" -> new Strict();
+            case "aging" -> new Aging(Long.getLong("smartqueue.policy.agingMinutes", 15) * 60_000);
+            case "wfq" -> new WeightedFair(weights(System.getProperty("smartqueue.policy.weights", "16,4,3,2")));
+            case "sjf" -> new ShortestJobFirst();
+            default -> throw new IllegalArgumentException("Unknown scheduling policy: " + name);
+        };
+    }
+
+    /** One instance of every policy, for side-by-side comparisons. */
+    static SchedulingPolicy[] all() {
+        return new SchedulingPolicy[] { byName("strict"), byName("aging"), byName("wfq"), byName("sjf") };
+    }
+
+    // "16,4,3,2" -> weights indexed by Category ordinal
+    private static long[] weights(String csv) {
+        String[] parts = csv.split(",");
+        long[] w = new long[Patient.Category.values().length];
+        for (int c = 0; c < w.length; c++) {
+            w[c] = Math.max(1, Long.parseLong(parts[Math.min(c, parts.length - 1)].trim()));
+        }
+        return w;
+    }
+
+    // -------------------- STRICT --------------------
+    /**
+     * Emergency → Senior → Child → General, older seniors and younger children first, then
+     * arrival order. A steady stream of a higher class can hold a lower one back indefinitely.
+     */
+    final class Strict implements SchedulingPolicy {
+        @Override
+        public String name() { return "strict"; }
+
+        @Override
+        public long keyFor(Patient p, long joinedMillis) {
+            return Patient.packSortKey(p.getCategoryType(), p.getAge(), p.getArrivalTime());
+        }
+    }
+
+    // -------------------- AGING --------------------
+    /**
+     * Emergencies first, in arrival order. Every other patient ages at the same rate, and each
+     * class below Senior starts one agingStep behind the class above it: a General who has
+     * waited 2 x agingStep ranks level with a Senior who just arrived, so no one waits behind
+     * later arrivals for more than that. Because everyone ages at the same rate, comparing
+     * "waited minus handicap" at any instant gives the same order as comparing
+     * "joined plus handicap", which is the key: the boost is applied lazily, by the clock.
+     */
+    final class Aging implements SchedulingPolicy {
+        private static final long WAITING_CLASS = 1L << 62;
+        private final long agingStepMillis;
+
+        public Aging(long agingStepMillis) {
+            this.agingStepMillis = agingStepMillis;
+        }
+
+        @Override
+        public String name() { return "aging"; }
+
+        @Override
+        public long keyFor(Patient p, long joinedMillis) {
+            Patient.Category c = p.getCategoryType();
+            if (c == Patient.Category.EMERGENCY) return joinedMillis;
+            long handicap = (c.getPriority() - Patient.Category.SENIOR.getPriority()) * agingStepMillis;
+            return WAITING_CLASS | (joinedMillis + handicap);
+        }
+    }
+
+    // -------------------- WEIGHTED FAIR QUEUING --------------------
+    /**
+     * Self-clocked weighted fair queuing across categories. Each patient gets a virtual finish
+     * tag: max(virtual time, the previous tag of its category) + expected serve time / weight,
+     * and the smallest tag is called first. Virtual time is the tag of the patient last called.
+     * While every category has patients waiting, each gets desk time in proportion to its
+     * weight (default Emergency 16, Senior 4, Child 3, General 2), so none starves.
+     * An edited patient is charged a fresh tag, as if they had just joined.
+     */
+    final class WeightedFair implements SchedulingPolicy {
+        private final long[] weights;
+        private final long[] lastTag;
+        private long virtualTime;
+
+        public WeightedFair(long[] weights) {
+            this.weights = weights.clone();
+            this.lastTag = new long[weights.length];
+        }
+
+        @Override
+        public String name() { return "wfq"; }
+
+        @Override
+        public long keyFor(Patient p, long joinedMillis) {
+            int c = p.getCategoryType().ordinal();
+            long cost = p.getExpectedServeTime() * 1_000_000 / weights[c];
+            lastTag[c] = Math.max(virtualTime, lastTag[c]) + Math.max(1, cost);
+            return lastTag[c];
+        }
+
+        @Override
+        public void onDequeued(Patient p) {
+            virtualTime = Math.max(virtualTime, p.getSortKey());
+        }
+    }
+
+    // -------------------- SHORTEST JOB FIRST --------------------
+    /**
+     * Categories keep their strict order; inside a category the shortest expected visit goes
+     * first, then arrival order. Lowers the mean wait of a class at the cost of its long visits.
+     */
+    final class ShortestJobFirst implements SchedulingPolicy {
+        private static final int PRIORITY_SHIFT = 60;
+        private static final int EXPECTED_SHIFT = 40;
+        private static final long MAX_EXPECTED = (1L << (PRIORITY_SHIFT - EXPECTED_SHIFT)) - 1;
+        private static final long SEQUENCE_MASK = (1L << EXPECTED_SHIFT) - 1;
+        private long sequence;
+
+        @Override
+        public String name() { return "sjf"; }
+
+        @Override
+        public long keyFor(Patient p, long joinedMillis) {
+            long expected = Math.max(0, Math.min(MAX_EXPECTED, p.getExpectedServeTime()));
+            return ((long) p.getPriority() << PRIORITY_SHIFT)
+                    | (expected << EXPECTED_SHIFT)
+                    | (sequence++ & SEQUENCE_MASK);
+        }
+    }
+}
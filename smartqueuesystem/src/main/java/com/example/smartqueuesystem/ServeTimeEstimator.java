@@ -0,0 +1,204 @@
+package com.example.smartqueuesystem;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Learns how long visits take from the visits that finish, per category and age band, and
+ * proposes the expectedServeTime of patients registered without one.
+ *
+ * Each cell (category x age band 0–15, 16–39, 40–59, 60–74, 75+) keeps an EWMA of the duration
+ * and a P² sketch of one quantile (Jain & Chlamtac: five markers, no samples kept), both O(1) per
+ * visit. estimate() answers from the patient's cell once it has smartqueue.estimator.minSamples
+ * visits (default 20), else from the whole category, else from every visit, else PRIOR_SECONDS.
+ *
+ * The estimate is the EWMA by default (smartqueue.estimator.alpha, default 0.05): the mean keeps the
+ * sums behind queue ETAs unbiased and follows a slow drift through the day. With
+ * smartqueue.estimator.quantile=0.7 it is that quantile instead, trading longer ETAs for fewer overruns.
+ * Thread-safe: desks record while registrations estimate; each cell locks only itself.
+ */
+public class ServeTimeEstimator {
+
+    /** Expected seconds before anything has been learned. */
+    public static final long PRIOR_SECONDS = 80;
+    private static final long MIN_SECONDS = 10;
+    private static final int[] BAND_STARTS = { 0, 16, 40, 60, 75 };
+    private static final String[] BAND_LABELS = { "0-15", "16-39", "40-59", "60-74", "75+" };
+    private static final Patient.Category[] CATEGORIES = Patient.Category.values();
+
+    private final double alpha;
+    private final double quantile;  // NaN: estimate with the EWMA
+    private final int minSamples;
+    private final Cell[] cells = new Cell[CATEGORIES.length * BAND_STARTS.length];
+    private final Cell[] categories = new Cell[CATEGORIES.length];
+    private final Cell all;
+
+    public ServeTimeEstimator(double alpha, double quantile, int minSamples) {
+        this.alpha = alpha;
+        this.quantile = quantile;
+        this.minSamples = Math.max(1, minSamples);
+        double sketched = Double.isNaN(quantile) ? 0.5 : quantile;
+        for (int i = 0; i < cells.length; i++) cells[i] = new Cell(sketched);
+        for (int i = 0; i < categories.length; i++) categories[i] = new Cell(sketched);
+        this.all = new Cell(sketched);
+    }
+
+    /** An estimator set up from the smartqueue.estimator.* properties. */
+    public static ServeTimeEstimator configured() {
+        String q = System.getProperty("smartqueue.estimator.quantile");
+        return new ServeTimeEstimator(
+                Double.parseDouble(System.getProperty("smartqueue.estimator.alpha", "0.05")),
+                q != null ? Double.parseDouble(q) : Double.NaN,
+                Integer.getInteger("smartqueue.estimator.minSamples", 20));
+    }
+
+    // -------------------- LEARNING --------------------
+    public void record(Patient p, long seconds) {
+        record(p.getCategoryType(), p.getAge(), seconds);
+    }
+
+    public void record(Patient.Category category, int age, long seconds) {
+        if (seconds <= 0) return;
+        cells[index(category, band(age))].add(seconds);
+        categories[category.ordinal()].add(seconds);
+        all.add(seconds);
+    }
+
+    // -------------------- ESTIMATES --------------------
+    public long estimate(Patient p) {
+        return estimate(p.getCategoryType(), p.getAge());
+    }
+
+    public long estimate(Patient.Category category, int age) {
+        Cell c = cells[index(category, band(age))];
+        if (c.count() < minSamples) c = categories[category.ordinal()];
+        if (c.count() < minSamples) c = all;
+        if (c.count() == 0) return PRIOR_SECONDS;
+        double v = Double.isNaN(quantile) ? c.ewma() : c.quantile();
+        return Math.max(MIN_SECONDS, Math.round(v));
+    }
+
+    /** Visits learned from so far. */
+    public long getSamples() {
+        return all.count();
+    }
+
+    /** One line per learned cell: category, age band, visits, EWMA and the sketched quantile. */
+    public List<String> describe() {
+        List<String> out = new ArrayList<>();
+        String q = "p" + Math.round((Double.isNaN(quantile) ? 0.5 : quantile) * 100);
+        for (Patient.Category category : CATEGORIES) {
+            for (int b = 0; b < BAND_STARTS.length; b++) {
+                Cell c = cells[index(category, b)];
+                if (c.count() == 0) continue;
+                out.add(String.format("%-9s | %-5s | %6d | %6.1f s | %s %6.1f s",
+                        category, BAND_LABELS[b], c.count(), c.ewma(), q, c.quantile()));
+            }
+        }
+        return out;
+    }
+
+    private static int band(int age) {
+        int b = BAND_STARTS.length - 1;
+        while (b > 0 && age < BAND_STARTS[b]) b--;
+        return b;
+    }
+
+    private static int index(Patient.Category category, int band) {
+        return category.ordinal() * BAND_STARTS.length + band;
+    }
+
+    /** Streaming statistics of one group of visits. */
+    private final class Cell {
+        private final P2 sketch;
+        private long count;
+        private double ewma;
+
+        Cell(double quantile) {
+            this.sketch = new P2(quantile);
+        }
+
+        synchronized void add(double seconds) {
+            count++;
+            // Plain mean until 1/alpha visits, so the first few don't start from an arbitrary value
+            ewma += Math.max(alpha, 1.0 / count) * (seconds - ewma);
+            sketch.add(seconds);
+        }
+
+        synchronized long count() { return count; }
+        synchronized double ewma() { return ewma; }
+        synchronized double quantile() { return sketch.value(); }
+    }
+
+    /**
+     * P² quantile estimate: five markers at the min, p/2, p, (1+p)/2 and max positions, each nudged
+     * towards its ideal position per sample with a piecewise-parabolic height update.
+     */
+    private static final class P2 {
+        private final double p;
+        private final double[] q = new double[5];      // marker heights
+        private final int[] n = new int[5];            // marker positions, 1-based
+        private final double[] desired = new double[5];
+        private final double[] step;
+        private int count;
+
+        P2(double p) {
+            this.p = p;
+            this.step = new double[] { 0, p / 2, p, (1 + p) / 2, 1 };
+        }
+
+        void add(double x) {
+            if (count < 5) {
+                q[count++] = x;
+                if (count == 5) {
+                    Arrays.sort(q);
+                    for (int i = 0; i < 5; i++) n[i] = i + 1;
+                    desired[0] = 1;
+                    desired[1] = 1 + 2 * p;
+                    desired[2] = 1 + 4 * p;
+                    desired[3] = 3 + 2 * p;
+                    desired[4] = 5;
+                }
+                return;
+            }
+            count++;
+            int k;
+            if (x < q[0]) {
+                q[0] = x;
+                k = 0;
+            } else if (x >= q[4]) {
+                q[4] = x;
+                k = 3;
+            } else {
+                k = 0;
+                while (x >= q[k + 1]) k++;
+            }
+            for (int i = k + 1; i < 5; i++) n[i]++;
+            for (int i = 0; i < 5; i++) desired[i] += step[i];
+            for (int i = 1; i <= 3; i++) {
+                double d = desired[i] - n[i];
+                if ((d >= 1 && n[i + 1] - n[i] > 1) || (d <= -1 && n[i - 1] - n[i] < -1)) {
+                    int s = d >= 0 ? 1 : -1;
+                    double h = parabolic(i, s);
+                    q[i] = q[i - 1] < h && h < q[i + 1] ? h : q[i] + s * (q[i + s] - q[i]) / (n[i + s] - n[i]);
+                    n[i] += s;
+                }
+            }
+        }
+
+        private double parabolic(int i, int s) {
+            return q[i] + (double) s / (n[i + 1] - n[i - 1])
+                    * ((n[i] - n[i - 1] + s) * (q[i + 1] - q[i]) / (n[i + 1] - n[i])
+                    + (n[i + 1] - n[i] - s) * (q[i] - q[i - 1]) / (n[i] - n[i - 1]));
+        }
+
+        double value() {
+            if (count == 0) return 0;
+            if (count >= 5) return q[2];
+            double[] first = Arrays.copyOf(q, count);
+            Arrays.sort(first);
+            return first[(int) Math.min(count - 1, Math.round(p * (count - 1)))];
+        }
+    }
+}
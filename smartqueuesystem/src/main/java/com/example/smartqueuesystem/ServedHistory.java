@@ -0,0 +1,279 @@
+package com.example.smartqueuesystem;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Served patients, newest in a bounded in-memory ring and every record in an indexed
+ * on-disk segment, so a 24/7 desk never holds its whole history on the heap.
+ *
+ * Registered as a QueueListener it records each served patient. Files in LogWriter.dataDirectory():
+ *   served.idx   fixed 48-byte rows in serve order: token, age, category, arrival, served-at
+ *                (epoch millis), expected, approx wait, queue number, offset into served.dat
+ *   served.dat   name and sex strings for each row
+ *
+ * get(row) answers from the ring for recent rows and otherwise reads the row's page
+ * (PAGE_ROWS rows) from disk into a small PatientStore; a few pages stay cached.
+ * Rows are ordered by serve time, so a time range is two binary searches over the index;
+ * tokens map to rows through an in-memory int table. Serve times are dated by the queue's
+ * clock, the same one that stamped them. Disk pages are read outside the lock, so the FX
+ * thread paging through old rows never holds up a desk recording a serve.
+ */
+public class ServedHistory implements QueueListener, AutoCloseable {
+
+    private static final int ROW_BYTES = 48;
+    private static final int PAGE_ROWS = 256;
+    private static final int CACHED_PAGES = 8;
+
+    private final FileChannel index;
+    private final FileChannel data;
+    private final QueueClock clock;
+    private final PatientView[] ring;
+    private int size;
+    private long dataEnd;
+    private int[] rowByToken = new int[1024];  // token -> row + 1, 0 when unknown
+
+    private final ByteBuffer rowBuffer = ByteBuffer.allocate(ROW_BYTES);
+    private final Map<Integer, PatientStore> pages = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, PatientStore> eldest) {
+            return size() > CACHED_PAGES;
+        }
+    };
+
+    /** Opens the history in the data directory with a ring of smartqueue.history.ring rows. */
+    public static ServedHistory open() throws IOException {
+        return new ServedHistory(LogWriter.dataDirectory(), Integer.getInteger("smartqueue.history.ring", 200));
+    }
+
+    public ServedHistory(Path dir, int ringSize) throws IOException {
+        this(dir, ringSize, QueueClock.SYSTEM);
+    }
+
+    public ServedHistory(Path dir, int ringSize, QueueClock clock) throws IOException {
+        this.clock = clock;
+        Files.createDirectories(dir);
+        this.index = FileChannel.open(dir.resolve("served.idx"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.data = FileChannel.open(dir.resolve("served.dat"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.ring = new PatientView[Math.max(1, ringSize)];
+
+        // A crash can leave half a row at the end of the index; drop it
+        size = (int) (index.size() / ROW_BYTES);
+        index.truncate((long) size * ROW_BYTES);
+        dataEnd = data.size();
+
+        ByteBuffer all = index.map(FileChannel.MapMode.READ_ONLY, 0, (long) size * ROW_BYTES);
+        for (int row = 0; row < size; row++) mapToken(all.getInt(row * ROW_BYTES), row);
+        for (int row = Math.max(0, size - ring.length); row < size; row++) ring[row % ring.length] = fromDisk(row);
+    }
+
+    // -------------------- WRITE --------------------
+    @Override
+    public void onServed(int desk, Patient p) {
+        try {
+            add(p);
+        } catch (IOException e) {
+            System.err.println("⚠ Served history write failed: " + e.getMessage());
+        }
+    }
+
+    /** Appends a served patient and returns its row. */
+    public synchronized int add(PatientView p) throws IOException {
+        byte[] name = utf8(p.getName());
+        byte[] sex = utf8(p.getSex());
+        ByteBuffer strings = ByteBuffer.allocate(4 + name.length + sex.length);
+        strings.putShort((short) name.length).put(name).putShort((short) sex.length).put(sex).flip();
+        long offset = dataEnd;
+        while (strings.hasRemaining()) dataEnd += data.write(strings, dataEnd);
+
+        LocalDateTime now = clock.localDateTime();
+        LocalTime served = p.getServedTime() != null ? p.getServedTime() : now.toLocalTime();
+        LocalDate day = served.isAfter(now.toLocalTime()) ? now.toLocalDate().minusDays(1) : now.toLocalDate(); // served before midnight
+        rowBuffer.clear();
+        rowBuffer.putInt(p.getTokenNumber())
+                .putShort((short) p.getAge())
+                .put((byte) p.getCategoryType().ordinal())
+                .put((byte) 0)
+                .putLong(p.getArrivalTime().toNanoOfDay())
+                .putLong(epochMillis(day, served))
+                .putInt((int) p.getExpectedServeTime())
+                .putInt((int) p.getApproxWaitTime())
+                .putInt(p.getQueueNumber())
+                .putLong(offset)
+                .putInt(0)
+                .flip();
+        long at = (long) size * ROW_BYTES;
+        while (rowBuffer.hasRemaining()) at += index.write(rowBuffer, at);
+
+        int row = size++;
+        mapToken(p.getTokenNumber(), row);
+        ring[row % ring.length] = p;
+        return row;
+    }
+
+    // -------------------- READ --------------------
+    public synchronized int size() {
+        return size;
+    }
+
+    /** The served record at row (0 = first ever served), from the ring or its disk page. */
+    public PatientView get(int row) {
+        int page = row / PAGE_ROWS;
+        int at = row - page * PAGE_ROWS;
+        int count;
+        long end;
+        synchronized (this) {
+            if (row < 0 || row >= size) throw new IndexOutOfBoundsException("row " + row + " of " + size);
+            if (row >= size - ring.length) return ring[row % ring.length];
+            PatientStore cached = pages.get(page);
+            if (cached != null && cached.size() > at) return cached.view(at);
+            count = size;
+            end = dataEnd;
+        }
+        // Rows already written never change, so the read needs no lock; add() carries on meanwhile
+        PatientStore store;
+        try {
+            store = readPage(page, count, end);
+        } catch (IOException e) {
+            throw new IllegalStateException("Served history unreadable at row " + row, e);
+        }
+        synchronized (this) {
+            PatientStore cached = pages.get(page);
+            if (cached == null || cached.size() < store.size()) pages.put(page, store);
+        }
+        return store.view(at);
+    }
+
+    /** Row of the most recent serve of token, or -1. */
+    public synchronized int findByToken(int token) {
+        return token > 0 && token < rowByToken.length ? rowByToken[token] - 1 : -1;
+    }
+
+    /**
+     * Rows [first, last) served between from (inclusive) and to (exclusive) on the clock's current
+     * day; earlier days are not searched.
+     */
+    public synchronized int[] findServedBetween(LocalTime from, LocalTime to) throws IOException {
+        LocalDate today = clock.localDateTime().toLocalDate();
+        return new int[] { firstServedAtOrAfter(epochMillis(today, from)), firstServedAtOrAfter(epochMillis(today, to)) };
+    }
+
+    // Binary search over the served-at column, read straight from the index file
+    private int firstServedAtOrAfter(long millis) throws IOException {
+        int lo = 0, hi = size;
+        ByteBuffer b = ByteBuffer.allocate(8);
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            b.clear();
+            index.read(b, (long) mid * ROW_BYTES + 16);
+            if (b.getLong(0) < millis) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    // The page as it stood when the history held size rows whose strings ended at dataEnd
+    private PatientStore readPage(int page, int size, long dataEnd) throws IOException {
+        int first = page * PAGE_ROWS;
+        int rows = Math.min(PAGE_ROWS, size - first);
+        ByteBuffer idx = ByteBuffer.allocate(rows * ROW_BYTES);
+        while (idx.hasRemaining()) {
+            if (index.read(idx, (long) first * ROW_BYTES + idx.position()) < 0) break;
+        }
+        idx.flip();
+
+        long dataFrom = idx.getLong(36);
+        long dataTo = first + rows < size ? readDataOffset(first + rows) : dataEnd;
+        ByteBuffer str = ByteBuffer.allocate((int) (dataTo - dataFrom));
+        while (str.hasRemaining()) {
+            if (data.read(str, dataFrom + str.position()) < 0) break;
+        }
+        str.flip();
+
+        PatientStore store = new PatientStore(PAGE_ROWS);
+        for (int r = 0; r < rows; r++) decode(idx, r * ROW_BYTES, str, dataFrom, store);
+        return store;
+    }
+
+    // Only while opening; get() reads pages itself, outside the lock
+    private PatientView fromDisk(int row) throws IOException {
+        int page = row / PAGE_ROWS;
+        PatientStore store = pages.get(page);
+        if (store == null || store.size() <= row - page * PAGE_ROWS) { // missing, or cached while still filling
+            store = readPage(page, size, dataEnd);
+            pages.put(page, store);
+        }
+        return store.view(row - page * PAGE_ROWS);
+    }
+
+    private long readDataOffset(int row) throws IOException {
+        ByteBuffer b = ByteBuffer.allocate(8);
+        index.read(b, (long) row * ROW_BYTES + 36);
+        return b.getLong(0);
+    }
+
+    private static void decode(ByteBuffer idx, int at, ByteBuffer str, long strBase, PatientStore into) {
+        int token = idx.getInt(at);
+        int age = idx.getShort(at + 4);
+        Patient.Category category = Patient.Category.values()[idx.get(at + 6)];
+        long arrival = idx.getLong(at + 8);
+        LocalTime served = LocalDateTime.ofInstant(Instant.ofEpochMilli(idx.getLong(at + 16)),
+                ZoneId.systemDefault()).toLocalTime();
+        int expected = idx.getInt(at + 24);
+        int wait = idx.getInt(at + 28);
+        int queueNumber = idx.getInt(at + 32);
+        str.position((int) (idx.getLong(at + 36) - strBase));
+        String name = readString(str);
+        String sex = readString(str);
+        into.add(token, name, sex, age, category, arrival, served.toNanoOfDay(), expected, wait, queueNumber);
+    }
+
+    // -------------------- HELPERS --------------------
+    private void mapToken(int token, int row) {
+        if (token <= 0) return;
+        if (token >= rowByToken.length) {
+            rowByToken = Arrays.copyOf(rowByToken, Math.max(token + 1, rowByToken.length * 2));
+        }
+        rowByToken[token] = row + 1;
+    }
+
+    private static long epochMillis(LocalDate date, LocalTime time) {
+        return date.atTime(time).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static byte[] utf8(String s) {
+        byte[] b = (s == null ? "" : s).getBytes(StandardCharsets.UTF_8);
+        return b.length > Short.MAX_VALUE ? Arrays.copyOf(b, Short.MAX_VALUE) : b;
+    }
+
+    private static String readString(ByteBuffer b) {
+        byte[] bytes = new byte[b.getShort()];
+        b.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            index.close();
+            data.close();
+        } catch (IOException e) {
+            System.err.println("⚠ Served history close failed: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.smartqueuesystem;
+
+import javafx.collections.ObservableListBase;
+
+/**
+ * Read-only list over a ServedHistory for the served ListView.
+ * The ListView only asks for the rows it shows, so older records are paged in from disk
+ * as the user scrolls and nothing else of the history is held by the UI.
+ */
+public class ServedListModel extends ObservableListBase<PatientView> {
+
+    private final ServedHistory history;
+    private int visible;
+
+    public ServedListModel(ServedHistory history) {
+        this.history = history;
+        this.visible = history.size();
+    }
+
+    @Override
+    public PatientView get(int index) {
+        if (index >= visible) throw new IndexOutOfBoundsException(index);
+        return history.get(index);
+    }
+
+    @Override
+    public int size() {
+        return visible;
+    }
+
+    /** FX thread: shows the rows served since the last call as one add change. */
+    public void sync() {
+        int now = history.size();
+        if (now == visible) return;
+        beginChange();
+        nextAdd(visible, now);
+        visible = now;
+        endChange();
+    }
+}
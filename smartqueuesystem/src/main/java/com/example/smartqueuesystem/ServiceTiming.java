@@ -0,0 +1,49 @@
+package com.example.smartqueuesystem;
+
+import java.util.Random;
+
+/**
+ * Serve-time rules shared by the live desks and the simulation:
+ * how long a visit really takes, when an overrun adds delay to the queue,
+ * and how much of that delay is handed back after an early finish.
+ */
+final class ServiceTiming {
+
+    /** Seconds added to the queue each time a patient runs another step past their expected time. */
+    static final long OVERRUN_STEP = 10;
+
+    private ServiceTiming() {}
+
+    /**
+     * How long a patient's visit really takes. A length someone gave is kept to within 10–20s;
+     * one the ServeTimeEstimator filled in is not, since the estimator learns from these visits:
+     * they take 40–100s whatever it guessed, as the front desk used to assume.
+     */
+    static long actualDuration(Patient patient, long expected, Random random) {
+        if (!patient.isExpectedServeTimeGiven()) return 40 + random.nextInt(61);
+        return actualDuration(expected, random);
+    }
+
+    // Real visits deviate 10–20s either way from the estimate, never shorter than 30s
+    static long actualDuration(long expected, Random random) {
+        int deviation = random.nextInt(11) + 10; // 10–20s diff
+        boolean longer = random.nextBoolean();
+        return longer ? expected + deviation : Math.max(30, expected - deviation);
+    }
+
+    static boolean isOverrunTick(long elapsed, long expected) {
+        return elapsed > expected && elapsed % OVERRUN_STEP == 0;
+    }
+
+    /** First elapsed second after which an overrun tick fires, or -1 if the visit never reaches one. */
+    static long firstOverrunTick(long expected, long actual) {
+        long tick = (expected / OVERRUN_STEP + 1) * OVERRUN_STEP;
+        return tick <= actual ? tick : -1;
+    }
+
+    /** Delay to take back once a visit ends before using up the overrun time already added. */
+    static long earlyFinishCorrection(long expected, long actual, long extraAdded) {
+        if (actual <= expected || extraAdded <= 0) return 0;
+        return Math.max(0, extraAdded - (actual - expected));
+    }
+}
@@ -1,44 +1,42 @@
 package com.example.smartqueuesystem;
 
-import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.collections.*;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
 import java.util.*;
-import java.util.concurrent.PriorityBlockingQueue;
 
-public class UIController {
+/**
+ * JavaFX front end. It is one QueueListener of the headless QueueManager and
+ * moves every engine callback onto the FX thread before touching controls.
+ */
+public class UIController implements QueueListener {
 
     @FXML private ListView<Patient> waitingList;
-    @FXML private ListView<Patient> servedList;
+    @FXML private ListView<PatientView> servedList;
     @FXML private TextArea detailsArea;
     @FXML private TextArea currentServingArea;
-    @FXML private TextField nameField, ageField;
-    @FXML private ComboBox<String> sexChoice, categoryChoice;
+    @FXML private TextField nameField, ageField, servedSearchField, expectedField;
+    @FXML private ComboBox<String> sexChoice, categoryChoice, departmentChoice;
     @FXML private Button addButton, startButton;
     @FXML private Label statusLabel;
 
     private final ObservableList<Patient> waitingPatients = FXCollections.observableArrayList();
-    private final ObservableList<Patient> servedPatients = FXCollections.observableArrayList();
+    private ServedHistory servedHistory;    // recent rows in memory, the rest paged from disk
+    private ServedListModel servedPatients;
 
     private boolean queueRunning = false;
     private Thread queueThread;
-    private QueueManager activeManager; // reference to running queue
-
-    // Priority rule (Emergency → Senior → Child → General)
-    private final Comparator<Patient> priorityComparator = Comparator
-            .comparingInt(Patient::getPriority)
-            .thenComparing((p1, p2) -> {
-                if (p1.getCategory().equalsIgnoreCase("senior"))
-                    return Integer.compare(p2.getAge(), p1.getAge()); // older seniors first
-                if (p1.getCategory().equalsIgnoreCase("child"))
-                    return Integer.compare(p1.getAge(), p2.getAge()); // younger children first
-                return 0;
-            })
-            .thenComparing(Patient::getArrivalTime);
-
-    private final PriorityBlockingQueue<Patient> queue =
-            new PriorityBlockingQueue<>(10, priorityComparator);
+    private QueueManager activeManager; // engine behind this view
+    private QueueMetrics metrics;       // live per-category histograms, gauges and rates
+    private FxUpdateBatcher updates;    // coalesces engine events into one UI pass per pulse
+    private String[] deskLabels;        // "Desk 3: " prefixes, built once
+    private final StringBuilder statusText = new StringBuilder(64); // FX thread only
+    private final StringBuilder servingText = new StringBuilder(256); // FX thread only
+
 
     @FXML
     public void initialize() {
@@ -46,34 +44,39 @@ public class UIController {
         categoryChoice.getItems().addAll("General", "Emergency");
 
         waitingList.setItems(waitingPatients);
+        servedHistory = openServedHistory();
+        servedPatients = new ServedListModel(servedHistory);
         servedList.setItems(servedPatients);
 
+        // Cells keep one buffer each and only hand the control a new String when the row reads differently
         waitingList.setCellFactory(param -> new ListCell<>() {
+            private final StringBuilder text = new StringBuilder(96);
+
             @Override
             protected void updateItem(Patient p, boolean empty) {
                 super.updateItem(p, empty);
                 if (empty || p == null) {
                     setText(null);
                 } else {
-                    setText("Q" + p.getQueueNumber() +
-                            " | Token " + p.getTokenNumber() +
-                            " | " + p.getName() +
-                            " | " + p.getCategory() +
-                            " | ⏱ " + p.getFormattedWaitTime());
+                    // Position and wait come from the published snapshot; a patient added since shows "…"
+                    QueueSnapshot.Row row = activeManager.snapshot().rowOf(p);
+                    DisplayText.waitingRow(text, p, row, activeManager.getDepartments().size() > 1);
+                    if (!DisplayText.same(getText(), text)) setText(text.toString());
                 }
             }
         });
 
         servedList.setCellFactory(param -> new ListCell<>() {
+            private final StringBuilder text = new StringBuilder(64);
+
             @Override
-            protected void updateItem(Patient p, boolean empty) {
+            protected void updateItem(PatientView p, boolean empty) {
                 super.updateItem(p, empty);
                 if (empty || p == null) {
                     setText(null);
                 } else {
-                    setText("Token " + p.getTokenNumber() +
-                            " | " + p.getName() +
-                            " | Served ✅ at " + p.getServedTimeString());
+                    DisplayText.servedRow(text, p);
+                    if (!DisplayText.same(getText(), text)) setText(text.toString());
                 }
             }
         });
@@ -82,6 +85,27 @@ public class UIController {
             if (n != null) showPatientDetails(n);
         });
 
+        activeManager = QueueManager.configured(); // one queue per department in smartqueue.departments
+        for (DepartmentQueues.Shard shard : activeManager.getDepartments()) departmentChoice.getItems().add(shard.getName());
+        deskLabels = new String[activeManager.getDeskCount() + 1];
+        for (int d = 1; d < deskLabels.length; d++) deskLabels[d] = deskLabels.length > 2 ? "Desk " + d + ": " : "";
+        departmentChoice.setVisible(activeManager.getDepartments().size() > 1);
+        departmentChoice.setManaged(departmentChoice.isVisible());
+        metrics = new QueueMetrics(activeManager);
+        activeManager.addListener(metrics);
+        activeManager.addListener(servedHistory); // before this view, so a served row exists when we sync
+        activeManager.addListener(this);
+        activeManager.snapshot(); // starts the snapshot publisher that drives the waiting list and desk panel
+        DepartmentQueues departments = activeManager.getDepartments();
+        updates = new FxUpdateBatcher(waitingPatients, waitingList, p -> departments.shardOf(p).getIndex());
+        updates.start();
+        metrics.setFxLag(updates.getLag());
+        metrics.startEndpointIfConfigured();
+        QueueJournal.attach(activeManager); // restore patients left waiting by a crash or restart
+        KioskServer.startIfConfigured(activeManager); // kiosks and triage register concurrently over HTTP
+        BoardFeed.startIfConfigured(activeManager); // waiting-room screens follow the queue as replicas
+        PatientTransfer.importIfConfigured(activeManager); // a pre-booked appointment list, in one bulk load
+
         statusLabel.setText("Status: Queue not started");
     }
 
@@ -101,20 +125,10 @@ public class UIController {
         try {
             int age = Integer.parseInt(ageText);
             Patient patient = new Patient(name, age, sex, category);
-            patient.setExpectedServeTime(40 + new Random().nextInt(61)); // 40–100s realistic
-
-            queue.add(patient);
+            if (departmentChoice.getValue() != null) patient.setDepartment(departmentChoice.getValue());
 
-            // ✅ Log event (works before and after start)
-            QueueManager.logPatientEvent("🟢 Patient Added", patient);
-
-            // ✅ If queue is running, resync dynamically
-            if (queueRunning && activeManager != null) {
-                long baseOffset = activeManager.getCurrentRemainingTime();
-                syncWaitTimesDuringRuntime(baseOffset);
-            } else {
-                updateWaitTimes();
-            }
+            // ✅ Engine queues and logs it (works before and after start)
+            activeManager.addPatient(patient);
 
             nameField.clear();
             ageField.clear();
@@ -129,7 +143,7 @@ public class UIController {
     // Start serving queue
     @FXML
     public void startQueue() {
-        if (queueRunning || queue.isEmpty()) {
+        if (queueRunning || activeManager.getDepartments().totalWaiting() == 0) {
             statusLabel.setText("⚠ Queue already running or empty");
             return;
         }
@@ -137,23 +151,97 @@ public class UIController {
         queueRunning = true;
         statusLabel.setText("✅ Queue started...");
 
-        activeManager = new QueueManager(
-                queue,
-                priorityComparator,
-                waitingPatients,
-                servedPatients,
-                waitingList,
-                servedList,
-                detailsArea,
-                currentServingArea,
-                statusLabel
-        );
-
         queueThread = new Thread(activeManager);
         queueThread.setDaemon(true);
         queueThread.start();
     }
 
+    // -------------------- WAITING PATIENT EDITS --------------------
+    // Selected patient's handle; the engine reports the change back through the listener events
+
+    @FXML
+    public void cancelSelected() {
+        QueueHandle handle = selectedHandle();
+        if (handle == null) return;
+        String name = handle.getPatient().getName();
+        statusLabel.setText(handle.cancel("walked out") ? "❌ Cancelled " + name : "⚠ " + name + " is no longer waiting");
+    }
+
+    @FXML
+    public void escalateSelected() {
+        QueueHandle handle = selectedHandle();
+        if (handle == null) return;
+        String name = handle.getPatient().getName();
+        statusLabel.setText(handle.escalate() ? "🔺 " + name + " escalated to Emergency" : "⚠ " + name + " is no longer waiting");
+    }
+
+    @FXML
+    public void updateExpectedSelected() {
+        QueueHandle handle = selectedHandle();
+        if (handle == null) return;
+        try {
+            long seconds = Long.parseLong(expectedField.getText().trim());
+            if (seconds <= 0) throw new NumberFormatException();
+            String name = handle.getPatient().getName();
+            statusLabel.setText(handle.updateExpectedServeTime(seconds)
+                    ? "✏ " + name + " expected " + seconds + "s" : "⚠ " + name + " is no longer waiting");
+            expectedField.clear();
+        } catch (NumberFormatException e) {
+            statusLabel.setText("⚠ Invalid expected time");
+        }
+    }
+
+    private QueueHandle selectedHandle() {
+        Patient p = waitingList.getSelectionModel().getSelectedItem();
+        if (p == null) {
+            statusLabel.setText("⚠ Select a waiting patient first");
+            return null;
+        }
+        QueueHandle handle = activeManager.handle(p.getTokenNumber());
+        if (handle == null) statusLabel.setText("⚠ " + p.getName() + " is no longer waiting");
+        return handle;
+    }
+
+    // Search served history: a token number, or a time range such as 09:00-10:30
+    @FXML
+    public void searchServed() {
+        String text = servedSearchField.getText().trim();
+        if (text.isEmpty()) return;
+        try {
+            if (text.contains("-")) {
+                String[] range = text.split("-");
+                int[] rows = servedHistory.findServedBetween(LocalTime.parse(range[0].trim()),
+                        LocalTime.parse(range[1].trim()));
+                if (rows[1] > rows[0]) {
+                    servedList.scrollTo(rows[0]);
+                    servedList.getSelectionModel().select(rows[0]);
+                }
+                statusLabel.setText("🔎 " + (rows[1] - rows[0]) + " served between " + range[0].trim() + " and " + range[1].trim());
+            } else {
+                int row = servedHistory.findByToken(Integer.parseInt(text));
+                if (row < 0) {
+                    statusLabel.setText("⚠ Token " + text + " not found in served history");
+                    return;
+                }
+                servedList.scrollTo(row);
+                servedList.getSelectionModel().select(row);
+                detailsArea.setText(servedHistory.get(row).getDetails());
+            }
+        } catch (NumberFormatException | DateTimeParseException e) {
+            statusLabel.setText("⚠ Search by token number or HH:mm-HH:mm");
+        } catch (IOException e) {
+            statusLabel.setText("⚠ Served history unreadable: " + e.getMessage());
+        }
+    }
+
+    private static ServedHistory openServedHistory() {
+        try {
+            return ServedHistory.open();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open served history in " + LogWriter.dataDirectory(), e);
+        }
+    }
+
     // Display detailed info for selected patient
     private void showPatientDetails(Patient p) {
         if (p == null) {
@@ -161,49 +249,106 @@ public class UIController {
             return;
         }
 
+        QueueSnapshot.Row row = activeManager.snapshot().rowOf(p);
         StringBuilder sb = new StringBuilder();
         sb.append("Name: ").append(p.getName()).append("\n");
         sb.append("Age: ").append(p.getAge()).append("\n");
         sb.append("Sex: ").append(p.getSex()).append("\n");
         sb.append("Category: ").append(p.getCategory()).append("\n");
+        sb.append("Department: ").append(p.getDepartment()).append("\n");
         sb.append("Token No: ").append(p.getTokenNumber()).append("\n");
-        sb.append("Queue No: ").append(p.getQueueNumber()).append("\n");
+        sb.append("Queue No: ").append(row != null ? row.getQueueNumber() : "…").append("\n");
         sb.append("Added At: ").append(p.getAddedTime()).append("\n");
-        sb.append("Approx Wait Time: ").append(p.getFormattedWaitTime()).append("\n");
+        sb.append("Approx Wait Time: ").append(row != null ? row.getFormattedWaitTime() : "…").append("\n");
         sb.append("Expected Serve Time: ").append(p.getExpectedServeTime()).append("s\n");
         if (p.isBeingServed()) sb.append("\n🟢 Currently Being Served\n");
         detailsArea.setText(sb.toString());
     }
 
-    // Update queue wait times dynamically (normal pre-start calculation)
-    private void updateWaitTimes() {
-        List<Patient> sorted = new ArrayList<>(queue);
-        sorted.sort(priorityComparator);
+    // -------------------- ENGINE EVENTS --------------------
+    // All of these go through the batcher, which applies them on the next pulse
 
-        long cumulative = 0;
-        int position = 1;
-        for (Patient p : sorted) {
-            p.setQueueNumber(position++);
-            p.setApproxWaitTime(cumulative);
-            cumulative += p.getExpectedServeTime();
-        }
+    @Override
+    public void onPatientAdded(Patient p) {
+        updates.waitingAdded(p);
+    }
 
-        Platform.runLater(() -> waitingPatients.setAll(sorted));
+    @Override
+    public void onPatientCancelled(Patient p, String reason) {
+        updates.waitingRemoved(p);
     }
 
-    // 🔁 Update queue during runtime sync (after queue start)
-    private void syncWaitTimesDuringRuntime(long baseOffset) {
-        List<Patient> sorted = new ArrayList<>(queue);
-        sorted.sort(priorityComparator);
+    @Override
+    public void onPatientUpdated(Patient p, Patient.Category previousCategory, long previousExpected) {
+        updates.waitingMoved(p);
+        updates.post("details", () -> {
+            if (waitingList.getSelectionModel().getSelectedItem() == p) showPatientDetails(p);
+        });
+    }
 
-        long cumulative = baseOffset; // start from remaining time of currently serving
-        int position = 1;
-        for (Patient p : sorted) {
-            p.setQueueNumber(position++);
-            p.setApproxWaitTime(cumulative);
-            cumulative += p.getExpectedServeTime();
-        }
+    @Override
+    public void onOrderChanged() {
+        updates.waitingReordered();
+    }
 
-        Platform.runLater(() -> waitingPatients.setAll(sorted));
+    @Override
+    public void onServingStarted(int desk, Patient p, long expected) {
+        updates.waitingRemoved(p);
+        updates.post("status", () ->
+                statusLabel.setText(deskLabel(desk) + "🩺 Serving " + p.getName() + " (" + p.getCategory() + ")"));
+    }
+
+    @Override
+    public void onServingProgress(int desk, Patient p, long elapsed, long expected) {
+        // Waits and desk progress are read off the clock, so a tick redraws them without a new snapshot
+        updates.waitTimesChanged();
+        updates.post("serving-area", () -> renderDesks(activeManager.snapshot()));
+        updates.post("status", () -> {
+            statusText.setLength(0);
+            statusText.append(deskLabel(desk)).append("🩺 Serving ").append(p.getName())
+                    .append(" [").append(elapsed).append("s / ").append(expected).append("s]");
+            if (!DisplayText.same(statusLabel.getText(), statusText)) statusLabel.setText(statusText.toString());
+        });
+    }
+
+    @Override
+    public void onServed(int desk, Patient p) {
+        updates.post("served", servedPatients::sync);
+        updates.post("details", () -> detailsArea.setText(p.getDetails() + "\n\n✅ Served Successfully!"));
+    }
+
+    // Waits, queue numbers and desk panels are all drawn from the snapshot, so one publication
+    // redraws the visible rows and the serving area together
+    @Override
+    public void onSnapshotPublished(QueueSnapshot snapshot) {
+        updates.waitTimesChanged();
+        updates.post("serving-area", () -> renderDesks(snapshot));
+    }
+
+    @Override
+    public void onQueueCompleted(long totalServed, long totalServeTime) {
+        updates.post("status", () -> {
+            queueRunning = false;
+            statusLabel.setText("🎉 Queue complete!");
+            LogWriter.getDefault().log(String.format("🖥 UI updates: %d submitted, %d merged, %d frames",
+                    updates.getSubmittedCount(), updates.getMergedCount(), updates.getFrameCount()));
+        });
+    }
+
+    // --- Display Info ---
+    private String deskLabel(int desk) {
+        return deskLabels[desk];
+    }
+
+    private void renderDesks(QueueSnapshot snapshot) {
+        boolean several = snapshot.getDesks().size() > 1;
+        boolean departments = snapshot.getDepartments().size() > 1;
+        servingText.setLength(0);
+        for (QueueSnapshot.Desk d : snapshot.getDesks()) {
+            if (d.isIdle()) continue;
+            if (servingText.length() > 0) servingText.append("\n\n");
+            DisplayText.deskPanel(servingText, d, several, departments);
+        }
+        if (!DisplayText.same(currentServingArea.getText(), servingText)) currentServingArea.setText(servingText.toString());
     }
 }
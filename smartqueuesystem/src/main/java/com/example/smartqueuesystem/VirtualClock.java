@@ -0,0 +1,44 @@
+package com.example.smartqueuesystem;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * Clock that only moves when told to.
+ * sleep() advances time instantly, and QueueSimulation jumps it from event to event.
+ */
+public class VirtualClock implements QueueClock {
+
+    private final LocalTime startOfDay;
+    private final LocalDate startDate = LocalDate.now();
+    private long nowMillis;
+
+    public VirtualClock(LocalTime startOfDay) {
+        this.startOfDay = startOfDay;
+    }
+
+    @Override
+    public synchronized long nowMillis() {
+        return nowMillis;
+    }
+
+    @Override
+    public synchronized LocalTime localTime() {
+        return startOfDay.plusNanos(nowMillis * 1_000_000L);
+    }
+
+    @Override
+    public synchronized LocalDateTime localDateTime() {
+        return startDate.atTime(startOfDay).plusNanos(nowMillis * 1_000_000L);
+    }
+
+    @Override
+    public synchronized void sleep(long millis) {
+        nowMillis += millis;
+    }
+
+    public synchronized void advanceTo(long millis) {
+        if (millis > nowMillis) nowMillis = millis;
+    }
+}
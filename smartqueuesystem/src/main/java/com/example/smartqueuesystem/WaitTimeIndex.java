@@ -0,0 +1,327 @@
+package com.example.smartqueuesystem;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Order-statistic treap over waiting patients in serving order.
+ * Every node carries the size and the total expectedServeTime of its subtree,
+ * so a patient's queue position and the sum of serve times ahead of it are
+ * both answered in O(log n), and inserting or removing a patient keeps them
+ * up to date in O(log n) without touching anyone else.
+ *
+ * freeze() hands out the current tree as an immutable View in O(1). Nodes are copy-on-write
+ * across freezes: each carries the epoch it was made in, and an update copies a node from an
+ * earlier epoch instead of changing it, so a View never changes while the live tree moves on.
+ * Between two freezes a path is copied once; after that, updates change it in place.
+ *
+ * The tree is ordered by the queue's comparator, which must order by sort key and then token
+ * like Patient.PRIORITY_ORDER. Each node keeps the key its patient had when it went in, so a
+ * View is still searched in its own order after patients were re-keyed; a patient who was
+ * re-keyed itself is searched at its new key and not found until the next View. Its category and
+ * expected time are kept the same way, so a View's rows show what the patient was queued with.
+ *
+ * Not thread-safe; PatientQueue guards it with its own lock. Views are safe to read from any thread.
+ */
+class WaitTimeIndex {
+
+    private static final class Node {
+        final Patient patient;
+        final long key;
+        final long expected;
+        final Patient.Category category;
+        final int weight;
+        final long epoch;
+        Node left, right;
+        int size = 1;
+        long sum;
+
+        Node(Patient patient, long epoch) {
+            this.patient = patient;
+            this.key = patient.getSortKey();
+            this.expected = patient.getExpectedServeTime();
+            this.category = patient.getCategoryType();
+            this.weight = ThreadLocalRandom.current().nextInt();
+            this.epoch = epoch;
+            this.sum = expected;
+        }
+
+        Node(Node o, long epoch) {
+            this.patient = o.patient;
+            this.key = o.key;
+            this.expected = o.expected;
+            this.category = o.category;
+            this.weight = o.weight;
+            this.epoch = epoch;
+            this.left = o.left;
+            this.right = o.right;
+            this.size = o.size;
+            this.sum = o.sum;
+        }
+    }
+
+    private final Comparator<Patient> order;
+    private Node root;
+    private long epoch; // nodes made before the last freeze() belong to a View and are copied, not changed
+
+    WaitTimeIndex(Comparator<Patient> comparator) {
+        // Token numbers are unique, so ties in the priority rule still get a total order
+        this.order = comparator.thenComparingInt(Patient::getTokenNumber);
+    }
+
+    void insert(Patient p) {
+        Node[] parts = split(root, p, false);
+        root = merge(merge(parts[0], new Node(p, epoch)), parts[1]);
+    }
+
+    /**
+     * Adds a batch: sorts it (in parallel when large), builds a treap from the sorted run in O(k)
+     * and unions it with the current tree, instead of k separate O(log n) inserts.
+     */
+    void insertAll(Patient[] batch) {
+        if (batch.length == 0) return;
+        Arrays.parallelSort(batch, order);
+        root = union(root, build(batch, epoch));
+    }
+
+    void remove(Patient p) {
+        Node[] lower = split(root, p, false);
+        Node[] upper = split(lower[1], p, true);
+        root = merge(lower[0], upper[1]);
+    }
+
+    int size() {
+        return size(root);
+    }
+
+    long totalExpected() {
+        return sum(root);
+    }
+
+    /** Number of patients ordered before p. */
+    int countBefore(Patient p) {
+        int count = 0;
+        Node n = root;
+        while (n != null) {
+            if (order.compare(n.patient, p) < 0) {
+                count += size(n.left) + 1;
+                n = n.right;
+            } else {
+                n = n.left;
+            }
+        }
+        return count;
+    }
+
+    /** Total expectedServeTime of the patients ordered before p. */
+    long expectedBefore(Patient p) {
+        long total = 0;
+        Node n = root;
+        while (n != null) {
+            if (order.compare(n.patient, p) < 0) {
+                total += sum(n.left) + n.expected;
+                n = n.right;
+            } else {
+                n = n.left;
+            }
+        }
+        return total;
+    }
+
+    void clear() {
+        root = null;
+    }
+
+    /** The tree as it is now, immutable from here on; O(1). */
+    View freeze() {
+        epoch++;
+        return new View(root);
+    }
+
+    /** Rows of a View are made by the caller, so nothing is allocated for rows nobody reads. */
+    interface RowFactory<T> {
+        T row(Patient patient, Patient.Category category, int index, long expected, long expectedBefore);
+    }
+
+    /** A frozen tree: serving order, positions and serve-time prefix sums as of freeze(). */
+    static final class View {
+        private final Node root;
+
+        private View(Node root) {
+            this.root = root;
+        }
+
+        int size() {
+            return WaitTimeIndex.size(root);
+        }
+
+        long totalExpected() {
+            return sum(root);
+        }
+
+        /** The i-th patient in serving order (0-based) in O(log n). */
+        <T> T at(int i, RowFactory<T> rows) {
+            if (i < 0 || i >= size()) throw new IndexOutOfBoundsException(i);
+            int index = 0;
+            long before = 0;
+            Node n = root;
+            while (true) {
+                int left = WaitTimeIndex.size(n.left);
+                if (i < left) {
+                    n = n.left;
+                } else if (i == left) {
+                    return rows.row(n.patient, n.category, index + left, n.expected, before + sum(n.left));
+                } else {
+                    index += left + 1;
+                    before += sum(n.left) + n.expected;
+                    i -= left + 1;
+                    n = n.right;
+                }
+            }
+        }
+
+        /** The row of p in O(log n), or null if p was not waiting when the view was frozen. */
+        <T> T find(Patient p, RowFactory<T> rows) {
+            int index = 0;
+            long before = 0;
+            Node n = root;
+            while (n != null) {
+                if (n.patient == p) {
+                    return rows.row(p, n.category, index + WaitTimeIndex.size(n.left), n.expected, before + sum(n.left));
+                }
+                // p's key may have changed since; a miss then means p moved after the freeze
+                int c = n.key != p.getSortKey() ? Long.compare(n.key, p.getSortKey())
+                        : Integer.compare(n.patient.getTokenNumber(), p.getTokenNumber());
+                if (c < 0) {
+                    index += WaitTimeIndex.size(n.left) + 1;
+                    before += sum(n.left) + n.expected;
+                    n = n.right;
+                } else {
+                    n = n.left;
+                }
+            }
+            return null;
+        }
+
+        /** Rows from the first patient on, in serving order; O(1) per row. */
+        <T> Iterator<T> iterator(RowFactory<T> rows) {
+            return new Iterator<>() {
+                private final ArrayDeque<Node> path = new ArrayDeque<>();
+                private Node next = root;
+                private int index;
+                private long before;
+
+                @Override
+                public boolean hasNext() {
+                    return next != null || !path.isEmpty();
+                }
+
+                @Override
+                public T next() {
+                    if (!hasNext()) throw new NoSuchElementException();
+                    for (; next != null; next = next.left) path.push(next);
+                    Node n = path.pop();
+                    next = n.right;
+                    T row = rows.row(n.patient, n.category, index++, n.expected, before);
+                    before += n.expected;
+                    return row;
+                }
+            };
+        }
+    }
+
+    // -------------------- TREAP INTERNALS --------------------
+
+    /** Splits t into keys before p and the rest; with inclusive, p itself goes to the left part. */
+    private Node[] split(Node t, Patient p, boolean inclusive) {
+        if (t == null) return new Node[]{null, null};
+        int c = order.compare(t.patient, p);
+        if (c < 0 || (inclusive && c == 0)) {
+            Node[] parts = split(t.right, p, inclusive);
+            t = own(t);
+            t.right = parts[0];
+            update(t);
+            parts[0] = t;
+            return parts;
+        }
+        Node[] parts = split(t.left, p, inclusive);
+        t = own(t);
+        t.left = parts[1];
+        update(t);
+        parts[1] = t;
+        return parts;
+    }
+
+    private Node merge(Node a, Node b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        if (a.weight > b.weight) {
+            a = own(a);
+            a.right = merge(a.right, b);
+            update(a);
+            return a;
+        }
+        b = own(b);
+        b.left = merge(a, b.left);
+        update(b);
+        return b;
+    }
+
+    // A node this epoch may change in place; one a View can still see is copied first
+    private Node own(Node n) {
+        return n.epoch == epoch ? n : new Node(n, epoch);
+    }
+
+    // Cartesian tree over the random weights of an already sorted run, keeping its right spine on a stack
+    private static Node build(Patient[] sorted, long epoch) {
+        Node[] spine = new Node[sorted.length];
+        int top = 0;
+        for (Patient p : sorted) {
+            Node n = new Node(p, epoch);
+            Node last = null;
+            while (top > 0 && spine[top - 1].weight < n.weight) {
+                last = spine[--top];
+                update(last); // its subtrees are final once it leaves the spine
+            }
+            n.left = last;
+            if (top > 0) spine[top - 1].right = n;
+            spine[top++] = n;
+        }
+        for (int i = top - 1; i >= 0; i--) update(spine[i]);
+        return spine[0];
+    }
+
+    // Treap union: the heavier root stays on top and the other tree is split around its key
+    private Node union(Node a, Node b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        if (a.weight < b.weight) {
+            Node t = a;
+            a = b;
+            b = t;
+        }
+        Node[] parts = split(b, a.patient, false);
+        a = own(a);
+        a.left = union(a.left, parts[0]);
+        a.right = union(a.right, parts[1]);
+        update(a);
+        return a;
+    }
+
+    private static void update(Node n) {
+        n.size = 1 + size(n.left) + size(n.right);
+        n.sum = n.expected + sum(n.left) + sum(n.right);
+    }
+
+    private static int size(Node n) {
+        return n == null ? 0 : n.size;
+    }
+
+    private static long sum(Node n) {
+        return n == null ? 0 : n.sum;
+    }
+}
@@ -0,0 +1,277 @@
+package com.example.smartqueuesystem;
+
+import java.time.LocalTime;
+import java.util.*;
+
+/**
+ * Synthetic patient stream for load and soak tests, reproducible from a seed.
+ *
+ *  - arrivals: "poisson:RATE" (patients per hour), or "bursty:RATE,FACTOR,BURST_MIN,CALM_MIN",
+ *    a two-state process that runs at RATE for about CALM_MIN minutes, then at RATE x FACTOR
+ *    for about BURST_MIN minutes (both durations exponential);
+ *  - mix: "emergency:5,child:20,adult:55,senior:20", percentages. Only Emergency is requested
+ *    explicitly; the age band is drawn and Patient's auto-classification makes the rest
+ *    Child (0–15), General (16–59) or Senior (60–95);
+ *  - serve: expected serve time, "fixed:80", "uniform:60-100", "exp:80" or "lognormal:80,0.4"
+ *    (median, sigma), never under 10s;
+ *  - overrun: "P,MEAN", each visit overruns its estimate with probability P by an exponential
+ *    MEAN seconds, otherwise finishes up to 20s early. Unset, visits follow ServiceTiming;
+ *  - departments: "OPD:3,Lab:1", relative weights; unset, everyone goes to the default one.
+ *
+ * configured() reads each from smartqueue.load.arrivals / mix / serve / overrun / departments.
+ * As a QueueManager.VisitDuration it supplies the overrun model to the live desks.
+ */
+public class WorkloadGenerator implements QueueManager.VisitDuration {
+
+    private static final int EMERGENCY = 0, CHILD = 1, ADULT = 2, SENIOR = 3;
+
+    /** One patient walking in. */
+    public static final class Arrival {
+        private final long atMillis;
+        private final String name;
+        private final int age;
+        private final String sex;
+        private final String category;
+        private final long expectedServeTime;
+        private final String department;
+
+        Arrival(long atMillis, String name, int age, String sex, String category, long expectedServeTime, String department) {
+            this.atMillis = atMillis;
+            this.name = name;
+            this.age = age;
+            this.sex = sex;
+            this.category = category;
+            this.expectedServeTime = expectedServeTime;
+            this.department = department;
+        }
+
+        /** Arrival time in milliseconds from the start of the stream. */
+        public long getAtMillis() { return atMillis; }
+        public String getName() { return name; }
+        public int getAge() { return age; }
+        public String getSex() { return sex; }
+        public String getCategory() { return category; }
+        public long getExpectedServeTime() { return expectedServeTime; }
+        public String getDepartment() { return department; }
+
+        public Patient toPatient(LocalTime arrivalTime) {
+            Patient p = new Patient(name, age, sex, category, arrivalTime);
+            p.setExpectedServeTime(expectedServeTime);
+            if (department != null) p.setDepartment(department);
+            return p;
+        }
+    }
+
+    private final Random random;
+    private long count;
+    private double nowMillis;
+
+    // Arrival process; calm and burst rates are patients per millisecond
+    private double calmRate = 120 / 3_600_000.0;
+    private double burstRate = calmRate;
+    private double meanCalmMillis = Double.POSITIVE_INFINITY;
+    private double meanBurstMillis;
+    private boolean bursting;
+    private double stateEndsAt = Double.POSITIVE_INFINITY;
+
+    private double[] mix = { 5, 20, 55, 20 };
+    private String serveKind = "uniform";
+    private double serveA = 60, serveB = 100;
+    private double overrunProbability = -1; // < 0: ServiceTiming's deviation
+    private double overrunMeanSeconds;
+    private String[] departments;
+    private double[] departmentWeights;
+
+    public WorkloadGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /** A generator set up from the smartqueue.load.* properties, each falling back to its default. */
+    public static WorkloadGenerator configured(long seed) {
+        WorkloadGenerator g = new WorkloadGenerator(seed);
+        String arrivals = System.getProperty("smartqueue.load.arrivals");
+        String mix = System.getProperty("smartqueue.load.mix");
+        String serve = System.getProperty("smartqueue.load.serve");
+        String overrun = System.getProperty("smartqueue.load.overrun");
+        String departments = System.getProperty("smartqueue.load.departments");
+        if (arrivals != null) g.arrivals(arrivals);
+        if (mix != null) g.mix(mix);
+        if (serve != null) g.serveTimes(serve);
+        if (overrun != null) g.overruns(overrun);
+        if (departments != null) g.departments(departments);
+        return g;
+    }
+
+    // -------------------- CONFIGURATION --------------------
+    public WorkloadGenerator arrivals(String spec) {
+        String[] kv = spec.trim().split(":", 2);
+        double[] v = numbers(kv.length > 1 ? kv[1] : "");
+        switch (kv[0].toLowerCase()) {
+            case "poisson" -> {
+                calmRate = burstRate = positive(v, 0, "rate") / 3_600_000.0;
+                meanCalmMillis = Double.POSITIVE_INFINITY;
+            }
+            case "bursty" -> {
+                calmRate = positive(v, 0, "rate") / 3_600_000.0;
+                burstRate = calmRate * (v.length > 1 ? v[1] : 5);
+                meanBurstMillis = (v.length > 2 ? v[2] : 10) * 60_000;
+                meanCalmMillis = (v.length > 3 ? v[3] : 50) * 60_000;
+            }
+            default -> throw new IllegalArgumentException("Unknown arrival process: " + spec);
+        }
+        bursting = false;
+        stateEndsAt = nowMillis + exponential(meanCalmMillis);
+        return this;
+    }
+
+    public WorkloadGenerator mix(String spec) {
+        double[] m = new double[4];
+        for (String part : spec.split(",")) {
+            String[] kv = part.trim().split(":");
+            int band = switch (kv[0].trim().toLowerCase()) {
+                case "emergency" -> EMERGENCY;
+                case "child" -> CHILD;
+                case "adult", "general" -> ADULT;
+                case "senior" -> SENIOR;
+                default -> throw new IllegalArgumentException("Unknown mix entry: " + part);
+            };
+            m[band] = Double.parseDouble(kv[1].trim());
+        }
+        if (m[0] + m[1] + m[2] + m[3] <= 0) throw new IllegalArgumentException("Empty mix: " + spec);
+        mix = m;
+        return this;
+    }
+
+    public WorkloadGenerator serveTimes(String spec) {
+        String[] kv = spec.trim().split(":", 2);
+        String kind = kv[0].toLowerCase();
+        double[] v = numbers(kv.length > 1 ? kv[1].replace('-', ',') : "");
+        switch (kind) {
+            case "fixed", "exp" -> serveA = positive(v, 0, "seconds");
+            case "uniform" -> {
+                serveA = positive(v, 0, "min");
+                serveB = Math.max(serveA, v.length > 1 ? v[1] : serveA);
+            }
+            case "lognormal" -> {
+                serveA = positive(v, 0, "median");
+                serveB = v.length > 1 ? v[1] : 0.4;
+            }
+            default -> throw new IllegalArgumentException("Unknown serve-time distribution: " + spec);
+        }
+        serveKind = kind;
+        return this;
+    }
+
+    public WorkloadGenerator overruns(String spec) {
+        double[] v = numbers(spec);
+        overrunProbability = Math.max(0, Math.min(1, v.length > 0 ? v[0] : 0));
+        overrunMeanSeconds = v.length > 1 ? v[1] : 30;
+        return this;
+    }
+
+    public WorkloadGenerator departments(String spec) {
+        List<String> names = new ArrayList<>();
+        List<Double> weights = new ArrayList<>();
+        for (String part : spec.split(",")) {
+            String[] kv = part.trim().split(":");
+            if (kv[0].isBlank()) continue;
+            names.add(kv[0].trim());
+            weights.add(kv.length > 1 ? Double.parseDouble(kv[1].trim()) : 1);
+        }
+        departments = names.toArray(new String[0]);
+        departmentWeights = weights.stream().mapToDouble(Double::doubleValue).toArray();
+        return this;
+    }
+
+    // -------------------- STREAM --------------------
+    /** The next patient; arrival times never decrease. */
+    public Arrival next() {
+        nowMillis = nextArrivalMillis();
+        int band = pick(mix);
+        int age = switch (band) {
+            case CHILD -> random.nextInt(16);
+            case SENIOR -> 60 + random.nextInt(36);
+            case ADULT -> 16 + random.nextInt(44);
+            default -> random.nextInt(90);
+        };
+        String category = band == EMERGENCY ? "Emergency" : "General";
+        String department = departments == null ? null : departments[pick(departmentWeights)];
+        count++;
+        return new Arrival((long) nowMillis, "Load " + count, age, random.nextBoolean() ? "Female" : "Male",
+                category, expectedServeTime(), department);
+    }
+
+    public long getGenerated() {
+        return count;
+    }
+
+    /** Patients per hour averaged over calm and burst periods. */
+    public double meanRatePerHour() {
+        if (Double.isInfinite(meanCalmMillis)) return calmRate * 3_600_000;
+        double calmShare = meanCalmMillis / (meanCalmMillis + meanBurstMillis);
+        return (calmShare * calmRate + (1 - calmShare) * burstRate) * 3_600_000;
+    }
+
+    // Exponential gaps at the current state's rate. A gap that runs past the state's end is
+    // dropped and redrawn from the switch: the process is memoryless, so that is exact.
+    private double nextArrivalMillis() {
+        double t = nowMillis;
+        while (true) {
+            double gap = exponential(1 / (bursting ? burstRate : calmRate));
+            if (t + gap <= stateEndsAt) return t + gap;
+            t = stateEndsAt;
+            bursting = !bursting;
+            stateEndsAt = t + exponential(bursting ? meanBurstMillis : meanCalmMillis);
+        }
+    }
+
+    private long expectedServeTime() {
+        double s = switch (serveKind) {
+            case "fixed" -> serveA;
+            case "exp" -> exponential(serveA);
+            case "lognormal" -> serveA * Math.exp(serveB * random.nextGaussian());
+            default -> serveA + random.nextDouble() * (serveB - serveA);
+        };
+        return Math.max(10, Math.round(s));
+    }
+
+    // -------------------- OVERRUN MODEL --------------------
+    @Override
+    public long actualSeconds(Patient patient, long expected, Random random) {
+        if (overrunProbability < 0) return ServiceTiming.actualDuration(patient, expected, random);
+        if (random.nextDouble() < overrunProbability) {
+            return expected + 1 + (long) (-overrunMeanSeconds * Math.log(1 - random.nextDouble()));
+        }
+        return Math.max(Math.min(30, expected), expected - random.nextInt(21));
+    }
+
+    // -------------------- HELPERS --------------------
+    private double exponential(double mean) {
+        if (Double.isInfinite(mean)) return mean;
+        return -mean * Math.log(1 - random.nextDouble());
+    }
+
+    private int pick(double[] weights) {
+        double total = 0;
+        for (double w : weights) total += w;
+        double r = random.nextDouble() * total;
+        for (int i = 0; i < weights.length; i++) {
+            r -= weights[i];
+            if (r < 0) return i;
+        }
+        return weights.length - 1;
+    }
+
+    private static double[] numbers(String csv) {
+        if (csv.isBlank()) return new double[0];
+        String[] parts = csv.split(",");
+        double[] out = new double[parts.length];
+        for (int i = 0; i < parts.length; i++) out[i] = Double.parseDouble(parts[i].trim());
+        return out;
+    }
+
+    private static double positive(double[] v, int i, String what) {
+        if (v.length <= i || v[i] <= 0) throw new IllegalArgumentException("Missing or non-positive " + what);
+        return v[i];
+    }
+}
@@ -2,6 +2,7 @@ module com.example.smartqueuesystem {
     requires javafx.controls;
     requires javafx.fxml;
     requires javafx.web;
+    requires jdk.httpserver;
 
     requires org.controlsfx.controls;
     requires com.dlsc.formsfx;
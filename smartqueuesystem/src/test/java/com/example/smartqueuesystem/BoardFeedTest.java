@@ -0,0 +1,99 @@
+package com.example.smartqueuesystem;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoardFeedTest {
+
+    private static final String[] CATEGORIES = { "Emergency", "General", "General", "General" };
+
+    @TempDir
+    Path dir;
+
+    private final Random random = new Random(5);
+
+    private QueueHandle register(QueueManager manager) {
+        Patient p = new Patient("P", 5 + random.nextInt(80), "Male", CATEGORIES[random.nextInt(CATEGORIES.length)]);
+        p.setExpectedServeTime(20 + random.nextInt(300));
+        return manager.addPatient(p);
+    }
+
+    private static void await(BooleanSupplier condition, String what) throws InterruptedException {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "board never caught up: " + what);
+            Thread.sleep(10);
+        }
+    }
+
+    private static List<Integer> tokens(List<Patient> patients) {
+        List<Integer> out = new ArrayList<>();
+        for (Patient p : patients) out.add(p.getTokenNumber());
+        return out;
+    }
+
+    // The board's line, positions, categories and ETAs are the engine's own
+    private static void assertBoardMatches(PatientQueue queue, BoardReplica board) {
+        List<Patient> order = queue.orderedSnapshot();
+        List<BoardReplica.Upcoming> next = board.next("OPD", order.size());
+        assertEquals(order.size(), next.size());
+        for (int i = 0; i < order.size(); i++) {
+            Patient p = order.get(i);
+            BoardReplica.Upcoming u = next.get(i);
+            assertEquals(p.getTokenNumber(), u.getTokenNumber(), "token at " + i);
+            assertEquals(i + 1, u.getQueueNumber());
+            assertSame(p.getCategoryType(), u.getCategory());
+            assertEquals(queue.waitTimeOf(p), u.getWaitSeconds(), "wait of token " + p.getTokenNumber());
+        }
+    }
+
+    @Test
+    void replicaFollowsTheFeedThroughEditsAndAPolicyChange() throws Exception {
+        String dataDir = System.getProperty("smartqueue.dataDir");
+        System.setProperty("smartqueue.dataDir", dir.toString());
+        // Three desks, the first for emergencies only; never started, so no desk is busy and ETAs are exact
+        VirtualClock clock = new VirtualClock(LocalTime.of(8, 0));
+        PatientQueue queue = new PatientQueue(16, Patient.PRIORITY_ORDER, clock);
+        QueueManager manager = new QueueManager(queue, 3, 1, clock);
+        List<QueueHandle> handles = new ArrayList<>();
+        for (int i = 0; i < 40; i++) handles.add(register(manager)); // in the HELLO
+
+        try (BoardFeed feed = new BoardFeed(manager, new InetSocketAddress("127.0.0.1", 0))) {
+            feed.start();
+            try (BoardReplica board = new BoardReplica(feed.getAddress()).start()) {
+                await(() -> board.isSynced() && board.getWaitingCount() == 40, "HELLO");
+                assertBoardMatches(queue, board);
+
+                // ENQUEUE, REMOVE and UPDATE frames
+                for (int i = 0; i < 40; i++) handles.add(register(manager));
+                handles.get(3).cancel("left");
+                handles.get(50).cancel("left");
+                handles.get(7).updateExpectedServeTime(400);
+                handles.get(60).changeCategory(Patient.Category.EMERGENCY);
+                List<Integer> expected = tokens(queue.orderedSnapshot());
+                await(() -> board.waitingTokens("OPD").equals(expected), "deltas");
+                assertBoardMatches(queue, board);
+
+                // Every sort key changes; the board re-sorts from the UPDATEs
+                manager.setPolicy("sjf");
+                List<Integer> reordered = tokens(queue.orderedSnapshot());
+                assertNotEquals(expected, reordered);
+                await(() -> board.waitingTokens("OPD").equals(reordered), "policy change");
+                assertBoardMatches(queue, board);
+                assertEquals(1, board.getConnectCount());
+            }
+        } finally {
+            manager.stop();
+            if (dataDir == null) System.clearProperty("smartqueue.dataDir");
+            else System.setProperty("smartqueue.dataDir", dataDir);
+        }
+    }
+}
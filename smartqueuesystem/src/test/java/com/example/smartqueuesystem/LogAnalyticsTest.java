@@ -0,0 +1,118 @@
+package com.example.smartqueuesystem;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogAnalyticsTest {
+
+    static {
+        // Chunks of a couple of KB, so most arrival/start/finish pairs and many records cross a boundary
+        System.setProperty("smartqueue.analytics.chunkBytes", "2048");
+    }
+
+    private static final LocalDate DAY = LocalDate.of(2025, 10, 1);
+    private static final Patient.Category[] CATEGORIES = Patient.Category.values();
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm:ss"); // as LogWriter stamps
+
+    @TempDir
+    Path dir;
+
+    private record Line(int second, int order, String text) { }
+
+    private static String event(int second, String event, Patient.Category category, int token) {
+        return LocalTime.ofSecondOfDay(second).format(TIME) + " - " + event + ": Patient " + token + " (" + category + ")\n"
+                + "   Token: " + token + " | Queue: 1 | Expected: 80s\n";
+    }
+
+    @Test
+    void pairsThatStraddleChunkBoundariesAreCountedOnce() throws IOException {
+        Random random = new Random(11);
+        List<Line> lines = new ArrayList<>();
+        long[] arrivals = new long[CATEGORIES.length];
+        long[] waitSum = new long[CATEGORIES.length];
+        long[] serveSum = new long[CATEGORIES.length];
+        int second = 8 * 3600;
+        for (int token = 1; token <= 3000; token++) {
+            Patient.Category c = CATEGORIES[random.nextInt(CATEGORIES.length)];
+            second += random.nextInt(6);
+            int wait = random.nextInt(1800);
+            int serve = 1 + random.nextInt(600);
+            lines.add(new Line(second, lines.size(), event(second, "🟢 Patient Added", c, token)));
+            lines.add(new Line(second + wait, lines.size(), event(second + wait, "🟠 Serving started", c, token)));
+            lines.add(new Line(second + wait + serve, lines.size(), event(second + wait + serve, "✅ Served completed", c, token)));
+            arrivals[c.ordinal()]++;
+            waitSum[c.ordinal()] += wait;
+            serveSum[c.ordinal()] += serve;
+        }
+        lines.sort(Comparator.comparingInt(Line::second).thenComparingInt(Line::order));
+
+        StringBuilder log = new StringBuilder("\n==========================\n📅 " + DAY + " | Queue Started\n==========================\n");
+        for (Line l : lines) log.append(l.text());
+        Files.writeString(dir.resolve("queue_log.txt"), log, StandardCharsets.UTF_8);
+
+        LogAnalytics.Report report = LogAnalytics.analyse(dir);
+        assertTrue(report.chunks > 100, "expected many chunks, got " + report.chunks);
+        assertEquals(Set.of((int) DAY.toEpochDay()), report.days().keySet());
+
+        LogAnalytics.Tally total = report.total(null, null);
+        for (Patient.Category c : CATEGORIES) {
+            int cat = c.ordinal();
+            long arrived = 0, waited = 0;
+            for (int h = 0; h < 24; h++) {
+                arrived += total.arrivals(cat, h);
+                waited += total.waitCount[h + cat * 24];
+            }
+            assertEquals(arrivals[cat], arrived, c + " arrivals");
+            assertEquals(arrivals[cat], total.served(cat), c + " starts");
+            assertEquals(arrivals[cat], waited, c + " starts paired with their arrival");
+            assertEquals((double) waitSum[cat] / arrivals[cat], total.meanWait(cat), 1e-9, c + " mean wait");
+            assertEquals(arrivals[cat], total.serveCount[cat], c + " completions paired with their start");
+            assertEquals(serveSum[cat], total.serveSum[cat], c + " serve seconds");
+        }
+    }
+
+    @Test
+    void cancelledArrivalsAndEventsDaysApartAreNotPaired() throws IOException {
+        Patient.Category general = Patient.Category.GENERAL;
+        // Without filler the log is one chunk; with it the second day starts chunks later
+        for (int filler : new int[] { 0, 200 }) {
+            StringBuilder log = new StringBuilder("\n==========================\n📅 " + DAY + " | Queue Started\n==========================\n");
+            log.append(event(10 * 3600, "🟢 Patient Added", general, 5));
+            log.append(event(10 * 3600 + 300, "❌ Patient Cancelled (left)", general, 5));
+            log.append(event(10 * 3600 + 600, "🟢 Patient Added", general, 7)); // never called
+            log.append(event(10 * 3600 + 1200, "🟢 Patient Added", general, 8));
+            log.append(event(10 * 3600 + 1800, "🟠 Serving started", general, 8));
+            for (int i = 0; i < filler; i++) {
+                log.append(LocalTime.ofSecondOfDay(11 * 3600).format(TIME)).append(" - ⏳ +10s delay added due to overrun by Patient 8\n");
+            }
+            // Three days later, after a restart that began the tokens again
+            log.append("\n==========================\n📅 ").append(DAY.plusDays(3)).append(" | Queue Started\n==========================\n");
+            log.append(event(9 * 3600, "🟠 Serving started", general, 5));
+            log.append(event(9 * 3600 + 60, "🟠 Serving started", general, 7));
+            log.append(event(9 * 3600 + 120, "✅ Served completed", general, 8));
+            Files.writeString(dir.resolve("queue_log.txt"), log, StandardCharsets.UTF_8);
+
+            LogAnalytics.Report report = LogAnalytics.analyse(dir);
+            LogAnalytics.Tally total = report.total(null, null);
+            int cat = general.ordinal();
+            long waited = 0;
+            for (int h = 0; h < 24; h++) waited += total.waitCount[h + cat * 24];
+            assertEquals(3, total.served(cat), "starts");
+            assertEquals(1, waited, "only token 8's start has its arrival; filler " + filler);
+            assertEquals(600.0, total.meanWait(cat), 1e-9);
+            assertEquals(0, total.serveCount[cat], "token 8's start was days before its completion");
+            assertEquals(1, total.cancellations);
+            assertEquals(filler, total.overruns);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.smartqueuesystem;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MpscQueueTest {
+
+    private static final int PRODUCERS = 4;
+    private static final int PER_PRODUCER = 50_000;
+
+    @Test
+    void drainSeesEveryOfferOnceAndEachProducerInOrder() throws InterruptedException {
+        MpscQueue<Long> queue = new MpscQueue<>();
+        List<Thread> producers = new ArrayList<>();
+        for (int id = 0; id < PRODUCERS; id++) {
+            long producer = id;
+            producers.add(new Thread(() -> {
+                for (long seq = 0; seq < PER_PRODUCER; seq++) queue.offer(producer << 32 | seq);
+            }));
+        }
+        producers.forEach(Thread::start);
+
+        // Drain while the producers are still offering, in small batches like the ingest thread
+        long[] next = new long[PRODUCERS];
+        int[] drained = { 0 };
+        while (drained[0] < PRODUCERS * PER_PRODUCER) {
+            int n = queue.drain(v -> {
+                int producer = (int) (v >>> 32);
+                assertEquals(next[producer]++, v & 0xFFFF_FFFFL, "producer " + producer + " out of order");
+                drained[0]++;
+            }, 64);
+            assertTrue(n <= 64);
+            if (n == 0) Thread.onSpinWait();
+        }
+        for (Thread t : producers) t.join();
+
+        assertTrue(queue.isEmpty());
+        assertEquals(0, queue.drain(v -> fail("drained " + v + " twice"), 64));
+        for (int id = 0; id < PRODUCERS; id++) assertEquals(PER_PRODUCER, next[id]);
+    }
+}
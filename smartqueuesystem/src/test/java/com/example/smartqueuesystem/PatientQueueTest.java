@@ -0,0 +1,208 @@
+package com.example.smartqueuesystem;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalTime;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PatientQueueTest {
+
+    private static final String[] CATEGORIES = { "Emergency", "General", "General", "General" };
+
+    private final Random random = new Random(7);
+    private final VirtualClock clock = new VirtualClock(LocalTime.of(8, 0));
+
+    private PatientQueue queue(String policy) {
+        return new PatientQueue(4, Patient.PRIORITY_ORDER, clock, SchedulingPolicy.byName(policy));
+    }
+
+    private Patient patient(String category, long expected) {
+        Patient p = new Patient("P", 5 + random.nextInt(80), "Female", category,
+                LocalTime.of(8, 0).plusSeconds(random.nextInt(3600)));
+        p.setExpectedServeTime(expected);
+        return p;
+    }
+
+    private Patient randomPatient() {
+        return patient(CATEGORIES[random.nextInt(CATEGORIES.length)], 10 + random.nextInt(300));
+    }
+
+    // Every waiting patient holds a distinct slot and the queue drains in comparator order
+    private static void assertHeap(PatientQueue queue, List<Patient> waiting) {
+        assertEquals(waiting.size(), queue.size());
+        Set<Integer> slots = new HashSet<>();
+        for (Patient p : waiting) {
+            assertTrue(queue.contains(p), "token " + p.getTokenNumber() + " lost its slot");
+            assertTrue(p.heapIndex >= 0 && p.heapIndex < waiting.size(), "slot " + p.heapIndex);
+            assertTrue(slots.add(p.heapIndex), "slot " + p.heapIndex + " held twice");
+        }
+        List<Patient> sorted = new ArrayList<>(waiting);
+        sorted.sort(queue.comparator());
+        assertEquals(sorted, queue.orderedSnapshot());
+    }
+
+    @Test
+    void heapIndexFollowsEveryOperation() {
+        PatientQueue queue = queue("strict");
+        List<Patient> waiting = new ArrayList<>();
+        List<Patient> gone = new ArrayList<>();
+        for (int step = 0; step < 3000; step++) {
+            int op = waiting.isEmpty() ? 0 : random.nextInt(5);
+            switch (op) {
+                case 0, 1 -> {
+                    Patient p = randomPatient();
+                    queue.add(p);
+                    waiting.add(p);
+                }
+                case 2 -> {
+                    Patient p = waiting.remove(random.nextInt(waiting.size()));
+                    assertTrue(queue.remove(p));
+                    gone.add(p);
+                }
+                case 3 -> {
+                    Patient head = queue.poll();
+                    waiting.sort(queue.comparator());
+                    assertSame(waiting.remove(0), head);
+                    gone.add(head);
+                }
+                default -> {
+                    Patient p = waiting.get(random.nextInt(waiting.size()));
+                    assertTrue(queue.update(p, q -> q.setExpectedServeTime(10 + random.nextInt(300))));
+                }
+            }
+            if (step % 250 == 0) assertHeap(queue, waiting);
+        }
+        assertHeap(queue, waiting);
+        for (Patient p : gone) {
+            assertEquals(-1, p.heapIndex);
+            assertEquals(-1, p.emergencyIndex);
+            assertFalse(queue.contains(p));
+            assertFalse(queue.remove(p));
+        }
+        assertThrows(IllegalStateException.class, () -> queue.add(waiting.get(0)));
+    }
+
+    @Test
+    void bulkAddAllHeapifiesAndIndexesTheBatch() {
+        PatientQueue queue = queue("strict");
+        List<Patient> waiting = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            Patient p = randomPatient();
+            queue.add(p);
+            waiting.add(p);
+        }
+        // At least as large as the queue and over the bulk threshold: appended and heapified at once
+        List<Patient> batch = new ArrayList<>();
+        for (int i = 0; i < 500; i++) batch.add(randomPatient());
+        queue.addAll(batch);
+        waiting.addAll(batch);
+        assertHeap(queue, waiting);
+
+        // Queue numbers and waits from the index match the serving order, and were stamped on the batch
+        waiting.sort(queue.comparator());
+        long before = 0;
+        for (int i = 0; i < waiting.size(); i++) {
+            Patient p = waiting.get(i);
+            assertEquals(i + 1, queue.positionOf(p));
+            assertEquals(before, queue.waitTimeOf(p));
+            before += p.getExpectedServeTime();
+        }
+        for (Patient p : batch) assertEquals(queue.positionOf(p), p.getQueueNumber());
+
+        // A small batch goes the one-by-one path
+        List<Patient> small = List.of(randomPatient(), randomPatient(), randomPatient());
+        queue.addAll(small);
+        waiting.addAll(small);
+        assertHeap(queue, waiting);
+
+        waiting.sort(queue.comparator());
+        for (Patient p : waiting) assertSame(p, queue.poll());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    void addAllRejectsABatchWithAQueuedPatientBeforeAddingAny() {
+        PatientQueue queue = queue("strict");
+        Patient queued = randomPatient();
+        queue.add(queued);
+        List<Patient> batch = new ArrayList<>();
+        for (int i = 0; i < 100; i++) batch.add(randomPatient());
+        batch.add(queued);
+
+        assertThrows(IllegalStateException.class, () -> queue.addAll(batch));
+        assertEquals(1, queue.size());
+        for (Patient p : batch) {
+            if (p != queued) assertEquals(-1, p.heapIndex);
+        }
+    }
+
+    @Test
+    void pollStampsWherePatientStood() {
+        PatientQueue queue = queue("strict");
+        Patient first = patient("Emergency", 100);
+        Patient second = patient("General", 60);
+        queue.add(first);
+        queue.add(second);
+        assertEquals(2, second.getQueueNumber());
+        assertEquals(100, second.getApproxWaitTime());
+
+        assertSame(first, queue.poll());
+        assertEquals(1, first.getQueueNumber());
+        assertEquals(0, first.getApproxWaitTime());
+    }
+
+    @Test
+    void pollEmergencyTakesTheBestEmergencyWhereverThePolicyPutsIt() {
+        PatientQueue queue = queue("wfq");
+        // Long emergency visits get later fair-queueing tags than a short general one
+        List<Patient> emergencies = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Patient p = patient("Emergency", 1000);
+            queue.add(p);
+            emergencies.add(p);
+        }
+        Patient general = patient("General", 20);
+        queue.add(general);
+        assertSame(general, queue.peek());
+
+        for (Patient e : emergencies) {
+            assertSame(e, queue.pollEmergency());
+            assertEquals(-1, e.heapIndex);
+            assertEquals(-1, e.emergencyIndex);
+        }
+        assertNull(queue.pollEmergency());
+        assertSame(general, queue.poll());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    void emergencyOnlyDesksAreLeftOutOfOtherPatientsWaits() {
+        PatientQueue queue = queue("strict");
+        queue.setServers(3);
+        queue.setEmergencyServers(1);
+        long now = clock.nowMillis();
+        queue.setDeskDeadline(1, now + 100_000); // emergency-only
+        queue.setDeskDeadline(2, now + 40_000);  // desk 3 idle
+
+        Patient emergency = patient("Emergency", 60);
+        Patient first = new Patient("G1", 30, "Male", "General", LocalTime.of(8, 0));
+        Patient second = new Patient("G2", 30, "Male", "General", LocalTime.of(8, 1));
+        first.setExpectedServeTime(60);
+        second.setExpectedServeTime(60);
+        queue.add(second);
+        queue.add(first);
+        queue.add(emergency);
+
+        // Emergency: every desk's backlog over all three; the rest: desks 2 and 3 only
+        assertEquals((100 + 40) / 3, queue.waitTimeOf(emergency));
+        assertEquals((40 + 60) / 2, queue.waitTimeOf(first));
+        assertEquals((40 + 120) / 2, queue.waitTimeOf(second));
+
+        List<QueueSnapshot.Row> rows = queue.snapshot("OPD").getWaiting();
+        assertEquals(queue.waitTimeOf(emergency), rows.get(0).getWaitSeconds());
+        assertEquals(queue.waitTimeOf(first), rows.get(1).getWaitSeconds());
+        assertEquals(queue.waitTimeOf(second), rows.get(2).getWaitSeconds());
+    }
+}
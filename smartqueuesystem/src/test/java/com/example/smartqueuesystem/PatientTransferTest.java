@@ -0,0 +1,134 @@
+package com.example.smartqueuesystem;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalTime;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PatientTransferTest {
+
+    private static final String[] CATEGORIES = { "Emergency", "General", "General", "General" };
+    private static final String[] DEPARTMENTS = { "OPD", "Lab", "X-Ray" };
+
+    @TempDir
+    Path dir;
+
+    private final Random random = new Random(3);
+
+    private static QueueManager manager() {
+        VirtualClock clock = new VirtualClock(LocalTime.of(8, 0));
+        LinkedHashMap<String, Integer> desks = new LinkedHashMap<>();
+        desks.put("OPD", 2);
+        desks.put("Lab", 1);
+        desks.put("X-Ray", 1);
+        return new QueueManager(new DepartmentQueues(desks, name -> new PatientQueue(16, Patient.PRIORITY_ORDER, clock)), 0, clock);
+    }
+
+    // Everything an export carries over, one string per waiting patient, in no particular order
+    private static List<String> waiting(QueueManager manager) {
+        List<String> out = new ArrayList<>();
+        for (Map.Entry<String, List<Patient>> e : manager.getDepartments().orderedSnapshots().entrySet()) {
+            for (Patient p : e.getValue()) {
+                assertEquals(e.getKey(), p.getDepartment());
+                out.add(p.getName() + "|" + p.getAge() + "|" + p.getSex() + "|" + p.getCategory() + "|"
+                        + p.getExpectedServeTime() + "|" + p.getDepartment() + "|" + p.getArrivalTime());
+            }
+        }
+        Collections.sort(out);
+        return out;
+    }
+
+    private void roundTrip(String fileName) throws IOException {
+        QueueManager source = manager();
+        QueueManager target = manager();
+        try {
+            List<Patient> batch = new ArrayList<>();
+            for (int i = 0; i < 500; i++) {
+                String name = i % 50 == 0 ? "Zoë Ünal-Şahin " + i : "Patient " + i;
+                Patient p = new Patient(name, random.nextInt(100), i % 2 == 0 ? "Female" : "Male",
+                        CATEGORIES[random.nextInt(CATEGORIES.length)], LocalTime.ofSecondOfDay(8 * 3600 + random.nextInt(4 * 3600)));
+                p.setExpectedServeTime(20 + random.nextInt(600));
+                p.setDepartment(DEPARTMENTS[random.nextInt(DEPARTMENTS.length)]);
+                batch.add(p);
+            }
+            source.addPatients(batch);
+
+            Path file = dir.resolve(fileName);
+            assertEquals(500, PatientTransfer.exportWaiting(source, file));
+            PatientTransfer.Result result = PatientTransfer.importFile(target, file);
+            assertEquals(500, result.getImported(), fileName);
+            assertEquals(0, result.getRejected(), result.getErrors().toString());
+            assertEquals(waiting(source), waiting(target), fileName);
+        } finally {
+            source.stop();
+            target.stop();
+        }
+    }
+
+    @Test
+    void exportedPatientsImportBackAsTheyWere() throws IOException {
+        String dataDir = System.getProperty("smartqueue.dataDir");
+        String chunk = System.getProperty("smartqueue.import.chunk");
+        System.setProperty("smartqueue.dataDir", dir.toString());
+        System.setProperty("smartqueue.import.chunk", "64"); // several chunks parsed in parallel
+        try {
+            roundTrip("patients.csv");
+            roundTrip("patients.bin");
+        } finally {
+            restore("smartqueue.dataDir", dataDir);
+            restore("smartqueue.import.chunk", chunk);
+        }
+    }
+
+    @Test
+    void rejectedLinesKeepTheirNumbersAcrossChunks() throws IOException {
+        String dataDir = System.getProperty("smartqueue.dataDir");
+        String chunk = System.getProperty("smartqueue.import.chunk");
+        System.setProperty("smartqueue.dataDir", dir.toString());
+        System.setProperty("smartqueue.import.chunk", "5");
+        QueueManager manager = manager();
+        try {
+            List<String> lines = new ArrayList<>();
+            lines.add("# name,age,sex,category,expectedSeconds,department,arrival");
+            for (int i = 2; i <= 23; i++) lines.add(i == 9 ? "" : "Patient " + i + ",40,Male,General,60,Lab,09:00");
+            // Last line of the first chunk, first of the second, the ends of the fourth and the partial fifth
+            lines.set(5 - 1, "Patient 5,forty,Male,General");
+            lines.set(6 - 1, "Patient 6,40,Male,General,60,Radiology");
+            lines.set(15 - 1, "Patient 15,40,Male,Walk-in");
+            lines.set(20 - 1, "Patient 20,40,Male,General,60,Lab,9 o'clock");
+            lines.set(23 - 1, "Patient 23,40,Male");
+            Path file = dir.resolve("appointments.csv");
+            Files.write(file, lines, StandardCharsets.UTF_8);
+
+            PatientTransfer.Result result = PatientTransfer.importFile(manager, file);
+            assertEquals(List.of(
+                    "line 5: invalid number",
+                    "line 6: unknown department Radiology",
+                    "line 15: unknown category Walk-in",
+                    "line 20: invalid arrival time",
+                    "line 23: expected name,age,sex,category[,expectedSeconds[,department[,arrival]]]"), result.getErrors());
+            assertEquals(5, result.getRejected());
+            assertEquals(16, result.getImported()); // 22 patient lines, one blank, five rejected
+
+            // Accepted lines were queued in file order
+            List<Patient> lab = manager.getDepartments().shardOf("Lab").getQueue().orderedSnapshot();
+            assertEquals("Patient 2", lab.get(0).getName());
+            assertEquals("Patient 22", lab.get(lab.size() - 1).getName());
+        } finally {
+            manager.stop();
+            restore("smartqueue.dataDir", dataDir);
+            restore("smartqueue.import.chunk", chunk);
+        }
+    }
+
+    private static void restore(String key, String value) {
+        if (value == null) System.clearProperty(key);
+        else System.setProperty(key, value);
+    }
+}
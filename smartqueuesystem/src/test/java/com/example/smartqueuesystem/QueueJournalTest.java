@@ -0,0 +1,129 @@
+package com.example.smartqueuesystem;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueueJournalTest {
+
+    @TempDir
+    Path dir;
+
+    private static List<Integer> tokens(List<Patient> patients) {
+        List<Integer> out = new ArrayList<>();
+        for (Patient p : patients) out.add(p.getTokenNumber());
+        return out;
+    }
+
+    // A journal left open, as a crash would leave it; returns the patients it recorded
+    private List<Patient> crashAfterAdding(int count) throws IOException {
+        QueueJournal journal = new QueueJournal(dir, 10_000, false);
+        List<Patient> added = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Patient p = new Patient("Patient " + i, 40, "Male", "General");
+            journal.onPatientAdded(p);
+            added.add(p);
+        }
+        return added;
+    }
+
+    // Offset of the last complete [length][crc32][body] record in a journal file
+    private static long lastRecordStart(Path file) throws IOException {
+        ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(file));
+        long last = -1;
+        while (buf.remaining() >= 8) {
+            int at = buf.position();
+            int length = buf.getInt();
+            if (length <= 0) break;
+            buf.position(buf.position() + 4 + length);
+            last = at;
+        }
+        return last;
+    }
+
+    @Test
+    void recordWithABadChecksumEndsTheReplay() throws IOException {
+        List<Patient> added = crashAfterAdding(3);
+        Path file = dir.resolve("journal-1.bin");
+        long last = lastRecordStart(file);
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ch.write(ByteBuffer.wrap(new byte[] { 'X' }), last + 12); // inside the body, so the CRC no longer matches
+        }
+
+        QueueJournal recovered = new QueueJournal(dir, 10_000, false);
+        assertEquals(2, recovered.getReplayedRecords());
+        assertEquals(tokens(added.subList(0, 2)), tokens(recovered.recoveredPatients()));
+        recovered.close();
+    }
+
+    @Test
+    void recordCutShortEndsTheReplay() throws IOException {
+        List<Patient> added = crashAfterAdding(3);
+        Path file = dir.resolve("journal-1.bin");
+        long last = lastRecordStart(file);
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ch.truncate(last + 10); // header and two bytes of the body made it to disk
+        }
+
+        QueueJournal recovered = new QueueJournal(dir, 10_000, false);
+        assertEquals(2, recovered.getReplayedRecords());
+        List<Patient> patients = recovered.recoveredPatients();
+        assertEquals(tokens(added.subList(0, 2)), tokens(patients));
+        assertEquals("Patient 1", patients.get(1).getName());
+        recovered.close();
+
+        // The surviving state was folded into a snapshot, so a second restart needs no replay
+        QueueJournal again = new QueueJournal(dir, 10_000, false);
+        assertEquals(0, again.getReplayedRecords());
+        assertEquals(tokens(added.subList(0, 2)), tokens(again.recoveredPatients()));
+        again.close();
+    }
+
+    @Test
+    void rollsAndCloseKeepOnlyUnservedPatients() throws IOException {
+        QueueJournal journal = new QueueJournal(dir, 50, false);
+        List<Patient> waiting = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            Patient p = new Patient("Patient " + i, 40, "Male", "General");
+            journal.onPatientAdded(p);
+            waiting.add(p);
+            if (i % 3 == 2) {
+                Patient first = waiting.remove(0);
+                journal.onServingStarted(1, first, first.getExpectedServeTime());
+                journal.onServed(1, first);
+            }
+        }
+        Patient edited = waiting.get(0);
+        journal.onPatientUpdated(edited, edited.getCategoryType(), edited.getExpectedServeTime());
+        journal.close();
+        try (DirectoryStream<Path> journals = Files.newDirectoryStream(dir, "journal-*.bin")) {
+            assertFalse(journals.iterator().hasNext(), "generations covered by the snapshot are deleted");
+        }
+
+        QueueJournal reopened = new QueueJournal(dir, 50, false);
+        assertEquals(0, reopened.getReplayedRecords());
+        assertEquals(tokens(waiting), tokens(reopened.recoveredPatients()));
+        reopened.close();
+    }
+
+    @Test
+    void longNamesAreCutBetweenCharacters() throws IOException {
+        // Three UTF-8 bytes per character, so the byte limit falls inside one
+        String name = "病".repeat(400);
+        Patient p = new Patient(name, 40, "Female", "General");
+        new QueueJournal(dir, 10_000, false).onPatientAdded(p);
+
+        QueueJournal recovered = new QueueJournal(dir, 10_000, false);
+        String replayed = recovered.recoveredPatients().get(0).getName();
+        assertFalse(replayed.isEmpty());
+        assertTrue(name.startsWith(replayed), "cut mid-character: " + replayed.substring(replayed.length() - 1));
+        recovered.close();
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.smartqueuesystem;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RegistrationIngestorTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void failedBatchIsRetriedOneByOneAndTheRefusedAreSaved() throws IOException {
+        String dataDir = System.getProperty("smartqueue.dataDir");
+        System.setProperty("smartqueue.dataDir", dir.toString());
+        try {
+            PatientQueue queue = new PatientQueue(Patient.PRIORITY_ORDER);
+            QueueManager manager = new QueueManager(queue, 1, 0);
+            Patient first = new Patient("First", 30, "Male", "General");
+            Patient refused = new Patient("Refused", 40, "Female", "General");
+            Patient last = new Patient("Last", 50, "Male", "General");
+            refused.heapIndex = 3; // looks queued already, so the batch add and its own add both throw
+
+            RegistrationIngestor ingestor = new RegistrationIngestor(manager, 16);
+            ingestor.submitAll(List.of(first, refused, last));
+            ingestor.close(); // returns once everything submitted has been handled
+
+            assertEquals(3, ingestor.getSubmittedCount());
+            assertEquals(2, ingestor.getIngestedCount());
+            assertEquals(1, ingestor.getRejectedCount());
+            assertTrue(queue.contains(first));
+            assertTrue(queue.contains(last));
+            assertEquals(2, queue.size());
+
+            List<String> saved = Files.readAllLines(dir.resolve(PatientTransfer.REJECTED_FILE), StandardCharsets.UTF_8);
+            assertEquals(1, saved.size());
+            assertTrue(saved.get(0).startsWith("Refused,40,Female,General,"), saved.get(0));
+        } finally {
+            if (dataDir == null) System.clearProperty("smartqueue.dataDir");
+            else System.setProperty("smartqueue.dataDir", dataDir);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.smartqueuesystem;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalTime;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ServedHistoryTest {
+
+    @TempDir
+    Path dir;
+
+    private static Patient served(String name, LocalTime at) {
+        Patient p = new Patient(name, 40, "Female", "General", at.minusMinutes(5));
+        p.markServed(at);
+        return p;
+    }
+
+    @Test
+    void rowsOutsideTheRingArePagedBackFromDisk() throws IOException {
+        VirtualClock clock = new VirtualClock(LocalTime.of(8, 0));
+        ServedHistory history = new ServedHistory(dir, 16, clock);
+        List<Patient> added = new ArrayList<>();
+        for (int i = 0; i < 600; i++) {
+            clock.advanceTo(i * 10_000L);
+            Patient p = served("Patient " + i, clock.localTime());
+            assertEquals(i, history.add(p));
+            added.add(p);
+        }
+
+        // Three disk pages, the last still filling, then the ring
+        for (int row : new int[] { 0, 255, 256, 511, 512, 583, 584, 599 }) {
+            PatientView v = history.get(row);
+            assertEquals(added.get(row).getTokenNumber(), v.getTokenNumber(), "row " + row);
+            assertEquals("Patient " + row, v.getName());
+        }
+        assertEquals(599, history.findByToken(added.get(599).getTokenNumber()));
+        assertArrayEquals(new int[] { 6, 60 }, history.findServedBetween(LocalTime.of(8, 1), LocalTime.of(8, 10)));
+        history.close();
+    }
+
+    @Test
+    void serveTimesAreDatedByTheQueueClock() throws IOException {
+        VirtualClock clock = new VirtualClock(LocalTime.of(23, 59));
+        ServedHistory history = new ServedHistory(dir, 16, clock);
+        clock.advanceTo(120_000); // 00:01 the next day
+        history.add(served("Before midnight", LocalTime.of(23, 59, 30)));
+        history.add(served("After midnight", LocalTime.of(0, 0, 30)));
+
+        // Only the clock's current day is searched; the 23:59 serve belongs to the day before
+        assertArrayEquals(new int[] { 1, 2 }, history.findServedBetween(LocalTime.MIDNIGHT, LocalTime.of(0, 1)));
+        int[] lateEvening = history.findServedBetween(LocalTime.of(23, 59), LocalTime.of(23, 59, 59));
+        assertEquals(lateEvening[0], lateEvening[1]);
+        history.close();
+    }
+}
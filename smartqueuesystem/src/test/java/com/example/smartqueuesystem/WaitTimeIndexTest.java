@@ -0,0 +1,127 @@
+package com.example.smartqueuesystem;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WaitTimeIndexTest {
+
+    private final Random random = new Random(42);
+
+    private Patient patient(long sortKey, long expected) {
+        Patient p = new Patient("P", 30, "Male", "General");
+        p.setSortKey(sortKey);
+        p.setExpectedServeTime(expected);
+        return p;
+    }
+
+    // Checks size, total, position and prefix sum of every patient against a sorted list
+    private static void assertMatches(List<Patient> model, WaitTimeIndex index) {
+        model.sort(Patient.PRIORITY_ORDER);
+        assertEquals(model.size(), index.size(), "size");
+        long before = 0;
+        for (int i = 0; i < model.size(); i++) {
+            Patient p = model.get(i);
+            assertEquals(i, index.countBefore(p), "countBefore of token " + p.getTokenNumber());
+            assertEquals(before, index.expectedBefore(p), "expectedBefore of token " + p.getTokenNumber());
+            before += p.getExpectedServeTime();
+        }
+        assertEquals(before, index.totalExpected(), "totalExpected");
+    }
+
+    @Test
+    void insertAndRemoveKeepSizesAndSums() {
+        WaitTimeIndex index = new WaitTimeIndex(Patient.PRIORITY_ORDER);
+        List<Patient> model = new ArrayList<>();
+        for (int step = 0; step < 2000; step++) {
+            if (model.isEmpty() || random.nextInt(3) > 0) {
+                // Few distinct keys, so ties fall back to token order
+                Patient p = patient(random.nextInt(50), 10 + random.nextInt(300));
+                index.insert(p);
+                model.add(p);
+            } else {
+                index.remove(model.remove(random.nextInt(model.size())));
+            }
+            if (step % 100 == 0) assertMatches(model, index);
+        }
+        assertMatches(model, index);
+    }
+
+    @Test
+    void insertAllUnionsIntoAnExistingTree() {
+        WaitTimeIndex index = new WaitTimeIndex(Patient.PRIORITY_ORDER);
+        List<Patient> model = new ArrayList<>();
+        for (int round = 0; round < 20; round++) {
+            // Batches overlap the keys already in the tree, so union has to split and interleave
+            Patient[] batch = new Patient[1 + random.nextInt(500)];
+            for (int i = 0; i < batch.length; i++) batch[i] = patient(random.nextInt(1000), 10 + random.nextInt(300));
+            index.insertAll(batch);
+            model.addAll(Arrays.asList(batch));
+            for (int i = 0; i < 50 && !model.isEmpty(); i++) index.remove(model.remove(random.nextInt(model.size())));
+            assertMatches(model, index);
+        }
+    }
+
+    @Test
+    void insertAllIntoAnEmptyTreeBuildsTheSortedRun() {
+        WaitTimeIndex index = new WaitTimeIndex(Patient.PRIORITY_ORDER);
+        index.insertAll(new Patient[0]);
+        assertEquals(0, index.size());
+
+        Patient[] batch = new Patient[1000];
+        for (int i = 0; i < batch.length; i++) batch[i] = patient(random.nextInt(100), 10 + random.nextInt(300));
+        List<Patient> model = new ArrayList<>(Arrays.asList(batch));
+        index.insertAll(batch);
+        assertMatches(model, index);
+    }
+
+    @Test
+    void frozenViewDoesNotSeeLaterChanges() {
+        WaitTimeIndex index = new WaitTimeIndex(Patient.PRIORITY_ORDER);
+        List<Patient> model = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            Patient p = patient(random.nextInt(1000), 10 + random.nextInt(300));
+            index.insert(p);
+            model.add(p);
+        }
+        model.sort(Patient.PRIORITY_ORDER);
+        WaitTimeIndex.View view = index.freeze();
+
+        // Move a patient the way PatientQueue.update does: out, re-keyed, back in
+        Patient moved = model.get(150);
+        index.remove(moved);
+        moved.setSortKey(-1);
+        moved.setCategory(Patient.Category.EMERGENCY);
+        index.insert(moved);
+        for (int i = 0; i < 100; i++) index.insert(patient(random.nextInt(1000), 10 + random.nextInt(300)));
+        index.remove(model.get(0));
+
+        assertEquals(model.size(), view.size());
+        long before = 0;
+        Iterator<long[]> rows = view.iterator((p, category, i, expected, sum) -> new long[] { p.getTokenNumber(), i, sum });
+        for (int i = 0; i < model.size(); i++) {
+            Patient p = model.get(i);
+            long[] row = rows.next();
+            assertEquals(p.getTokenNumber(), row[0], "token at " + i);
+            assertEquals(i, row[1]);
+            assertEquals(before, row[2], "expected before " + i);
+            assertSame(p, view.at(i, (q, category, j, expected, sum) -> q));
+            before += p.getExpectedServeTime();
+        }
+        assertFalse(rows.hasNext());
+        assertEquals(before, view.totalExpected());
+        assertSame(Patient.Category.GENERAL, view.at(150, (p, category, i, expected, sum) -> category));
+
+        // The view searches its nodes by the keys they were frozen with, so the moved patient's
+        // neighbours are still found; the moved patient itself is looked up at its new key and is not
+        for (int i = 0; i < model.size(); i++) {
+            if (i == 150) continue;
+            assertEquals(i, (int) view.find(model.get(i), (p, category, j, expected, sum) -> j), "find at " + i);
+        }
+        assertNull(view.find(moved, (p, category, i, expected, sum) -> i));
+        assertEquals(0, index.countBefore(moved));
+        assertNull(view.find(patient(0, 10), (p, category, i, expected, sum) -> i));
+    }
+}